@@ -0,0 +1,63 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright (C) 2010 Benoit 'BoD' Lubek (BoD@JRAF.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.vtail.core;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jraf.vtail.arguments.Arguments;
+
+import com.beust.jcommander.JCommander;
+
+/**
+ * The input of the benchmarks: synthetic logcat lines, and the rules of the ini files of the etc directory.
+ */
+final class BenchmarkData {
+    private BenchmarkData() {}
+
+    /**
+     * @return {@code count} lines in the logcat time format, always the same for a given count.
+     */
+    static List<String> createLines(final int count) {
+        final LogGenerator logGenerator = new LogGenerator(LogGenerator.Format.LOGCAT, 42);
+        final List<String> res = new ArrayList<String>(count);
+        for (int i = 0; i < count; i++) {
+            res.add(logGenerator.nextLine());
+        }
+        return res;
+    }
+
+    /**
+     * @return the arguments of the given ini file of the etc directory (set with the {@code vtail.etc} system property, by default
+     *         {@code ../etc}).
+     */
+    static Arguments loadArguments(final String iniName) {
+        final Arguments arguments = new Arguments();
+        final File etcDirectory = new File(System.getProperty("vtail.etc", "../etc"));
+        new JCommander(arguments, "@" + new File(etcDirectory, iniName).getAbsolutePath());
+        return arguments;
+    }
+}
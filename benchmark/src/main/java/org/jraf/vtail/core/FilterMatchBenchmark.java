@@ -0,0 +1,107 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright (C) 2010 Benoit 'BoD' Lubek (BoD@JRAF.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.vtail.core;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jraf.vtail.misc.MiscUtil;
+import org.jraf.vtail.parser.LineFormat;
+import org.jraf.vtail.parser.LogLevel;
+import org.jraf.vtail.store.ChunkedBitmap;
+import org.jraf.vtail.store.LineStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Deciding whether a line is displayed: the text filter, and the facets (levels and tags).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class FilterMatchBenchmark {
+    private static final int LINE_COUNT = 10000;
+
+    @Param({ "ActivityManager", "no such text" })
+    public String filter;
+
+    private List<String> mLines;
+    private LineStore mLineStore;
+    private boolean[] mSelectedLevels;
+    private int[] mSelectedTagIds;
+
+    @Setup
+    public void setUp() {
+        mLines = BenchmarkData.createLines(LINE_COUNT);
+        mLineStore = new LineStore(false, false, LineFormat.LOGCAT.newParser());
+        for (final String line : mLines) {
+            mLineStore.add(line);
+        }
+        mSelectedLevels = new boolean[LogLevel.COUNT];
+        mSelectedLevels[LogLevel.WARN] = true;
+        mSelectedLevels[LogLevel.ERROR] = true;
+        mSelectedTagIds = new int[] { mLineStore.getTagDictionary().getId("dalvikvm") };
+    }
+
+    /**
+     * Lines per second.
+     */
+    @Benchmark
+    @OperationsPerInvocation(LINE_COUNT)
+    public int isTextFilterMatch() {
+        int res = 0;
+        for (final String line : mLines) {
+            if (MiscUtil.containsIgnoreCase(line, filter)) {
+                res++;
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Lines per second.
+     */
+    @Benchmark
+    @OperationsPerInvocation(LINE_COUNT)
+    public int selectFacets() {
+        synchronized (mLineStore) {
+            final ChunkedBitmap selection = mLineStore.getFacetIndex().select(mSelectedLevels, mSelectedTagIds);
+            int res = 0;
+            for (int i = selection.nextSetBit(0); i != -1; i = selection.nextSetBit(i + 1)) {
+                res++;
+            }
+            return res;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright (C) 2010 Benoit 'BoD' Lubek (BoD@JRAF.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.vtail.core;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.DefaultStyledDocument;
+import javax.swing.text.SimpleAttributeSet;
+import javax.swing.text.StyledDocument;
+
+import org.jraf.vtail.arguments.Arguments;
+import org.jraf.vtail.misc.MiscUtil;
+import org.jraf.vtail.store.LineStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Displaying the whole line store again, as done when the filter changes: matching each stored line, then printing the matching ones with
+ * their highlights.<br/>
+ * This is the work of {@link VtailWindow#filter()}, without the window (which needs a display).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Djava.awt.headless=true", "-Xmx2g" })
+public class FilterReplayBenchmark {
+    @Param({ "10000", "100000", "1000000" })
+    public int lineCount;
+
+    @Param({ "", "dalvikvm" })
+    public String filter;
+
+    private Arguments mArguments;
+    private LineStore mLineStore;
+
+    @Setup
+    public void setUp() {
+        mArguments = BenchmarkData.loadArguments("logcat.ini");
+        mLineStore = new LineStore(!mArguments.nocollapse, mArguments.collapseSimilar, mArguments.format.newParser());
+        final List<String> lines = BenchmarkData.createLines(lineCount);
+        for (final String line : lines) {
+            mLineStore.add(line);
+        }
+    }
+
+    @Benchmark
+    public int filter() throws BadLocationException {
+        final StyledDocument document = new DefaultStyledDocument();
+        final SimpleAttributeSet style = new SimpleAttributeSet();
+        final boolean filtering = filter.length() != 0;
+        synchronized (mLineStore) {
+            for (int i = 0, len = mLineStore.size(); i < len; i++) {
+                final String line = mLineStore.get(i);
+                if (filtering && !MiscUtil.containsIgnoreCase(line, filter)) {
+                    continue;
+                }
+                final int posStart = document.getLength();
+                document.insertString(posStart, (posStart == 0 ? "" : "\n") + line, style);
+                VtailWindow.applyHighlights(mArguments, null, document, posStart, line, mLineStore.getLevel(i), mLineStore.getTagId(i),
+                        null);
+            }
+        }
+        return document.getLength();
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright (C) 2010 Benoit 'BoD' Lubek (BoD@JRAF.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.vtail.core;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.DefaultStyledDocument;
+import javax.swing.text.SimpleAttributeSet;
+import javax.swing.text.StyledDocument;
+
+import org.jraf.vtail.arguments.Arguments;
+import org.jraf.vtail.parser.LineFields;
+import org.jraf.vtail.parser.LineParser;
+import org.jraf.vtail.store.Dictionary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Inserting the lines in a document and applying the highlights of an ini file, as done when printing a line.<br/>
+ * {@link #insert()} gives the cost of the document alone.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class HighlightBenchmark {
+    private static final int LINE_COUNT = 1000;
+
+    @Param({ "ariba.ini", "logcat.ini", "logcatvox.ini" })
+    public String ini;
+
+    private List<String> mLines;
+    private byte[] mLevels;
+    private Arguments mArguments;
+
+    @Setup
+    public void setUp() {
+        mLines = BenchmarkData.createLines(LINE_COUNT);
+        mArguments = BenchmarkData.loadArguments(ini);
+        final LineParser lineParser = mArguments.format.newParser();
+        final LineFields fields = new LineFields();
+        mLevels = new byte[LINE_COUNT];
+        for (int i = 0; i < LINE_COUNT; i++) {
+            fields.reset();
+            if (lineParser != null) {
+                lineParser.parse(mLines.get(i), fields);
+            }
+            mLevels[i] = fields.level;
+        }
+    }
+
+    /**
+     * Lines per second.
+     */
+    @Benchmark
+    @OperationsPerInvocation(LINE_COUNT)
+    public int insert() throws BadLocationException {
+        return print(false);
+    }
+
+    /**
+     * Lines per second.
+     */
+    @Benchmark
+    @OperationsPerInvocation(LINE_COUNT)
+    public int insertAndHighlight() throws BadLocationException {
+        return print(true);
+    }
+
+    private int print(final boolean highlight) throws BadLocationException {
+        final StyledDocument document = new DefaultStyledDocument();
+        final SimpleAttributeSet style = new SimpleAttributeSet();
+        for (int i = 0; i < LINE_COUNT; i++) {
+            final String line = mLines.get(i);
+            final int posStart = document.getLength();
+            document.insertString(posStart, (i == 0 ? "" : "\n") + line, style);
+            if (highlight) {
+                VtailWindow.applyHighlights(mArguments, null, document, posStart, line, mLevels[i], Dictionary.NO_ID, null);
+            }
+        }
+        return document.getLength();
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright (C) 2010 Benoit 'BoD' Lubek (BoD@JRAF.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.vtail.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.jraf.vtail.arguments.Arguments;
+import org.jraf.vtail.arguments.Highlight;
+import org.jraf.vtail.misc.MiscUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Checking each new line against the --ignore rules.<br/>
+ * The shipped ini files have almost no --ignore rules, so their --highlight patterns are used too, to get a realistic number of rules.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class IgnoreBenchmark {
+    private static final int LINE_COUNT = 10000;
+
+    @Param({ "ariba.ini", "default.ini", "logcat.ini", "logcatvox.ini" })
+    public String ini;
+
+    private List<String> mLines;
+    private List<Pattern> mIgnoreList;
+
+    @Setup
+    public void setUp() {
+        mLines = BenchmarkData.createLines(LINE_COUNT);
+        final Arguments arguments = BenchmarkData.loadArguments(ini);
+        mIgnoreList = new ArrayList<Pattern>();
+        if (arguments.ignoreList != null) {
+            mIgnoreList.addAll(arguments.ignoreList);
+        }
+        if (arguments.highlightList != null) {
+            for (final Highlight highlight : arguments.highlightList) {
+                mIgnoreList.add(highlight.pattern);
+            }
+        }
+    }
+
+    /**
+     * Lines per second.
+     */
+    @Benchmark
+    @OperationsPerInvocation(LINE_COUNT)
+    public int isIgnored() {
+        int res = 0;
+        for (final String line : mLines) {
+            if (MiscUtil.isIgnored(mIgnoreList, line)) {
+                res++;
+            }
+        }
+        return res;
+    }
+}
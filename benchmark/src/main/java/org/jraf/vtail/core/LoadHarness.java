@@ -0,0 +1,306 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright (C) 2010 Benoit 'BoD' Lubek (BoD@JRAF.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.vtail.core;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.BadLocationException;
+
+import org.jraf.vtail.arguments.Arguments;
+import org.jraf.vtail.misc.MiscUtil;
+import org.jraf.vtail.source.StreamSource;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.ParameterException;
+
+/**
+ * Feeds vtail (in this VM) with generated lines, and measures how fast it displays them: ingest rate, latency between the writing of a line
+ * and its display, and heap growth. Exits with 1 if one of the given limits is exceeded, so it can be used as a regression check. E.g.:
+ * 
+ * <pre>
+ * java -cp target/benchmarks.jar org.jraf.vtail.core.LoadHarness -r 5000 -b 100 -d 30 --maxp99 500 -ini ../etc/logcat.ini
+ * </pre>
+ * 
+ * By default vtail renders for a terminal (as with --tty), which needs no display. With --gui the window is used: it needs a display (e.g.
+ * {@code xvfb-run}), and a line counts as displayed once it is in the document of the text pane.
+ */
+public class LoadHarness {
+    private static final String SEQ_MARKER = " seq=";
+    private static final long END_TIMEOUT_MS = 10000;
+
+    private static class HarnessArguments {
+        @Parameter(names = { "-h", "--help" }, description = "Display this help and exit")
+        public boolean help;
+
+        @Parameter(names = { "-r", "--rate" }, description = "Lines per second")
+        public int rate = 1000;
+
+        @Parameter(names = { "-b", "--burst" }, description = "Lines written at once (1 to spread them evenly)")
+        public int burst = 1;
+
+        @Parameter(names = { "-d", "--duration" }, description = "Seconds to generate lines for")
+        public int duration = 10;
+
+        @Parameter(names = { "-l4j", "--log4j" }, description = "Generate log4j lines instead of logcat ones")
+        public boolean log4j;
+
+        @Parameter(names = { "-g", "--gui" }, description = "Display the lines in the window instead of rendering them for a terminal")
+        public boolean gui;
+
+        @Parameter(names = { "--maxp99" }, description = "Fail if the 99th percentile of the latency is above this many milliseconds")
+        public long maxP99;
+
+        @Parameter(names = { "--minrate" }, description = "Fail if less than this many lines per second are displayed")
+        public int minRate;
+
+        @Parameter(names = { "--maxheapgrowth" }, description = "Fail if the heap grows by more than this many megabytes")
+        public long maxHeapGrowth;
+
+        @Parameter(names = { "-ini", "--ini" }, description = "File of vtail options to use, e.g. ../etc/logcat.ini")
+        public String ini;
+    }
+
+    private final HarnessArguments mArguments;
+    private final AtomicLongArray mSendTimes;
+    private final boolean[] mDisplayed;
+    private final long[] mLatencies;
+    private int mDisplayedCount;
+    private long mLastDisplayTime;
+    private volatile long mSentCount = -1;
+
+    private LoadHarness(final HarnessArguments arguments) {
+        mArguments = arguments;
+        final int maxCount = (int) Math.min(Integer.MAX_VALUE - arguments.burst, (long) arguments.rate * arguments.duration) + arguments.burst;
+        mSendTimes = new AtomicLongArray(maxCount);
+        mDisplayed = new boolean[maxCount];
+        mLatencies = new long[maxCount];
+    }
+
+    /**
+     * @return {@code true} if all the limits are respected.
+     */
+    private boolean run() throws IOException {
+        final Arguments vtailArguments = new Arguments();
+        if (mArguments.ini != null) {
+            new JCommander(vtailArguments, "@" + mArguments.ini);
+        }
+
+        final long heapBefore = getUsedHeapAfterGc();
+        final PipedInputStream in = new PipedInputStream(1024 * 1024);
+        final Thread generatorThread = startGenerator(new PipedOutputStream(in));
+        final long start = System.nanoTime();
+        final StreamSource source = new StreamSource("generator", in, "UTF-8");
+        if (mArguments.gui) {
+            runWindow(vtailArguments, source, generatorThread);
+        } else {
+            runTty(vtailArguments, source);
+        }
+        final long heapAfter = getUsedHeapAfterGc();
+
+        return report(start, heapAfter - heapBefore);
+    }
+
+    private Thread startGenerator(final OutputStream out) throws IOException {
+        final LogGenerator logGenerator = new LogGenerator(mArguments.log4j ? LogGenerator.Format.LOG4J : LogGenerator.Format.LOGCAT, 42);
+        final Writer writer = new OutputStreamWriter(out, "UTF-8");
+        final Thread res = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    mSentCount = logGenerator.generate(mArguments.rate, mArguments.burst, mArguments.duration * 1000L, new LogGenerator.Output() {
+                        @Override
+                        public void write(final long seq, final String line) throws IOException {
+                            mSendTimes.set((int) seq, System.nanoTime());
+                            writer.write(line + SEQ_MARKER + seq + "\n");
+                        }
+
+                        @Override
+                        public void flush() throws IOException {
+                            writer.flush();
+                        }
+                    });
+                    writer.close();
+                } catch (final IOException e) {
+                    System.err.println("Cannot write the lines: " + e.getMessage());
+                }
+            }
+        }, "harness-generator");
+        res.start();
+        return res;
+    }
+
+    private void runTty(final Arguments vtailArguments, final StreamSource source) throws IOException {
+        final TtyRenderer ttyRenderer = new TtyRenderer(vtailArguments, new OutputStream() {
+            @Override
+            public void write(final byte[] b, final int off, final int len) throws IOException {
+                onDisplayed(new String(b, off, len, "UTF-8"));
+            }
+
+            @Override
+            public void write(final int b) {
+                // only whole batches are written
+            }
+        }, "UTF-8");
+        // returns when the generator is done
+        ttyRenderer.run(source);
+    }
+
+    private void runWindow(final Arguments vtailArguments, final StreamSource source, final Thread generatorThread) {
+        final LinePipeline linePipeline = new LinePipeline(vtailArguments);
+        linePipeline.start(source);
+        final VtailWindow vtailWindow = new VtailWindow(vtailArguments, linePipeline);
+        vtailWindow.addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(final DocumentEvent e) {
+                try {
+                    onDisplayed(e.getDocument().getText(e.getOffset(), e.getLength()));
+                } catch (final BadLocationException ex) {
+                    // should never happen
+                    ex.printStackTrace();
+                }
+            }
+
+            @Override
+            public void removeUpdate(final DocumentEvent e) {}
+
+            @Override
+            public void changedUpdate(final DocumentEvent e) {}
+        });
+        vtailWindow.show();
+        vtailWindow.start("UTF-8");
+
+        try {
+            generatorThread.join();
+        } catch (final InterruptedException e) {
+            // what can you do
+        }
+        // give the last lines some time to be displayed
+        final long end = System.currentTimeMillis() + END_TIMEOUT_MS;
+        while (getDisplayedCount() < mSentCount && System.currentTimeMillis() < end) {
+            MiscUtil.sleep(100);
+        }
+    }
+
+    /**
+     * Records the display time of the lines in the given text.
+     */
+    private synchronized void onDisplayed(final String text) {
+        final long now = System.nanoTime();
+        int markerIndex = text.indexOf(SEQ_MARKER);
+        while (markerIndex != -1) {
+            int pos = markerIndex + SEQ_MARKER.length();
+            int seq = 0;
+            while (pos < text.length() && text.charAt(pos) >= '0' && text.charAt(pos) <= '9') {
+                seq = seq * 10 + text.charAt(pos) - '0';
+                pos++;
+            }
+            // lines are displayed several times when the window is filtered: only the first time counts
+            if (seq < mDisplayed.length && !mDisplayed[seq]) {
+                mDisplayed[seq] = true;
+                mLatencies[mDisplayedCount++] = now - mSendTimes.get(seq);
+                mLastDisplayTime = now;
+            }
+            markerIndex = text.indexOf(SEQ_MARKER, pos);
+        }
+    }
+
+    private synchronized int getDisplayedCount() {
+        return mDisplayedCount;
+    }
+
+    private synchronized boolean report(final long start, final long heapGrowth) {
+        final long[] latencies = Arrays.copyOf(mLatencies, mDisplayedCount);
+        Arrays.sort(latencies);
+        final double seconds = (mLastDisplayTime - start) / 1000000000d;
+        final long rate = mDisplayedCount == 0 ? 0 : Math.round(mDisplayedCount / seconds);
+        final long p99 = percentileMs(latencies, .99);
+        final long heapGrowthMb = heapGrowth / (1024 * 1024);
+
+        System.out.println("Lines: sent " + mSentCount + ", displayed " + mDisplayedCount);
+        System.out.println("Ingest: " + rate + " lines/s");
+        System.out.println("Latency (ms): p50 " + percentileMs(latencies, .5) + ", p90 " + percentileMs(latencies, .9) + ", p99 " + p99
+                + ", max " + percentileMs(latencies, 1));
+        System.out.println("Heap growth: " + heapGrowthMb + " MB");
+
+        boolean res = true;
+        if (mArguments.maxP99 > 0 && p99 > mArguments.maxP99) {
+            System.out.println("FAILED: p99 latency above " + mArguments.maxP99 + " ms");
+            res = false;
+        }
+        if (mArguments.minRate > 0 && rate < mArguments.minRate) {
+            System.out.println("FAILED: ingest below " + mArguments.minRate + " lines/s");
+            res = false;
+        }
+        if (mArguments.maxHeapGrowth > 0 && heapGrowthMb > mArguments.maxHeapGrowth) {
+            System.out.println("FAILED: heap growth above " + mArguments.maxHeapGrowth + " MB");
+            res = false;
+        }
+        return res;
+    }
+
+    private static long percentileMs(final long[] sortedLatencies, final double percentile) {
+        if (sortedLatencies.length == 0) {
+            return 0;
+        }
+        final int index = Math.min(sortedLatencies.length - 1, (int) (percentile * sortedLatencies.length));
+        return TimeUnit.NANOSECONDS.toMillis(sortedLatencies[index]);
+    }
+
+    private static long getUsedHeapAfterGc() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    public static void main(final String[] args) throws IOException {
+        final HarnessArguments arguments = new HarnessArguments();
+        final JCommander jCommander = new JCommander(arguments);
+        try {
+            jCommander.parse(args);
+        } catch (final ParameterException e) {
+            System.err.println(e.getMessage());
+            jCommander.usage();
+            System.exit(-1);
+        }
+        if (arguments.help) {
+            jCommander.usage();
+            return;
+        }
+
+        final boolean success = new LoadHarness(arguments).run();
+        System.exit(success ? 0 : 1);
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright (C) 2010 Benoit 'BoD' Lubek (BoD@JRAF.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.vtail.core;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.ParameterException;
+
+/**
+ * Generates realistic log lines (logcat or log4j style), always the same for a given seed, and writes them at a given rate.<br/>
+ * E.g. to feed vtail 2000 lines per second, in bursts of 500 lines:
+ * 
+ * <pre>
+ * java -cp target/benchmarks.jar org.jraf.vtail.core.LogGenerator -r 2000 -b 500 | vtail @etc/logcat.ini
+ * </pre>
+ */
+public class LogGenerator {
+    public static enum Format {
+        LOGCAT, LOG4J
+    }
+
+    /**
+     * Receives the generated lines.
+     */
+    public static interface Output {
+        void write(long seq, String line) throws IOException;
+
+        /**
+         * Called at the end of each burst.
+         */
+        void flush() throws IOException;
+    }
+
+    private static final String[] TAGS = { "ActivityManager", "dalvikvm", "PackageManager", "WindowManager", "FamilyWall", "SipSimpleManager",
+            "AndroidRuntime" };
+    private static final String[] CATEGORIES = { "org.jraf.sync.SyncEngine", "org.jraf.sync.http.HttpClient", "org.jraf.db.Pool",
+            "org.jraf.web.Dispatcher", "org.jraf.auth.SessionManager" };
+    private static final String[] THREADS = { "main", "pool-1-thread-1", "pool-1-thread-2", "http-8080-1", "Timer-0" };
+    private static final char[] LEVELS = { 'V', 'D', 'D', 'I', 'I', 'I', 'W', 'E' };
+    private static final String[] LEVEL_NAMES = { "TRACE", "DEBUG", "DEBUG", "INFO ", "INFO ", "INFO ", "WARN ", "ERROR" };
+    private static final String[] MESSAGES = { "Starting: Intent { act=android.intent.action.MAIN cmp=com.example/.MainActivity } from pid 1234",
+            "GC_CONCURRENT freed 2048K, 45% free 9012K/16327K, external 1625K/2137K, paused 2ms+3ms", "Displayed com.example/.MainActivity: +512ms",
+            "\tat com.voxmobili.sync.SyncEngine.run(SyncEngine.java:245)", "REQ: INVITE sip:bob@example.com SIP/2.0",
+            "Scanning package com.example.app", "xxx unexpected state 3" };
+
+    private final Format mFormat;
+    private final Random mRandom;
+    private long mTime;
+
+    public LogGenerator(final Format format, final long seed) {
+        mFormat = format;
+        mRandom = new Random(seed);
+    }
+
+    public String nextLine() {
+        // the time of the lines is made up, so that they are the same from one run to the other
+        mTime += mRandom.nextInt(50);
+        final int levelIndex = mRandom.nextInt(LEVELS.length);
+        final String message = MESSAGES[mRandom.nextInt(MESSAGES.length)];
+        final long hours = mTime / 3600000 % 24;
+        final long minutes = mTime / 60000 % 60;
+        final long seconds = mTime / 1000 % 60;
+        final long millis = mTime % 1000;
+        if (mFormat == Format.LOG4J) {
+            return String.format("2010-10-19 %02d:%02d:%02d,%03d %s [%s] %s - %s", hours, minutes, seconds, millis, LEVEL_NAMES[levelIndex],
+                    THREADS[mRandom.nextInt(THREADS.length)], CATEGORIES[mRandom.nextInt(CATEGORIES.length)], message);
+        }
+        return String.format("10-19 %02d:%02d:%02d.%03d %c/%s(%5d): %s", hours, minutes, seconds, millis, LEVELS[levelIndex],
+                TAGS[mRandom.nextInt(TAGS.length)], 1000 + mRandom.nextInt(50), message);
+    }
+
+    /**
+     * Generates lines at the given rate. The lines of a burst are generated at once, then nothing is generated until the next burst is due.
+     * 
+     * @param durationMs For how long to generate lines, or 0 to never stop.
+     * @return how many lines were generated.
+     */
+    public long generate(final int rate, final int burst, final long durationMs, final Output output) throws IOException {
+        final long start = System.nanoTime();
+        final long end = durationMs == 0 ? Long.MAX_VALUE : start + TimeUnit.MILLISECONDS.toNanos(durationMs);
+        final long burstIntervalNs = TimeUnit.SECONDS.toNanos(burst) / rate;
+        long seq = 0;
+        for (long burstIndex = 0;; burstIndex++) {
+            final long due = start + burstIndex * burstIntervalNs;
+            if (due >= end) {
+                return seq;
+            }
+            final long waitNs = due - System.nanoTime();
+            if (waitNs > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(waitNs);
+                } catch (final InterruptedException e) {
+                    return seq;
+                }
+            }
+            for (int i = 0; i < burst; i++) {
+                output.write(seq++, nextLine());
+            }
+            output.flush();
+        }
+    }
+
+    private static class GeneratorArguments {
+        @Parameter(names = { "-h", "--help" }, description = "Display this help and exit")
+        public boolean help;
+
+        @Parameter(names = { "-l4j", "--log4j" }, description = "Generate log4j lines instead of logcat ones")
+        public boolean log4j;
+
+        @Parameter(names = { "-r", "--rate" }, description = "Lines per second")
+        public int rate = 1000;
+
+        @Parameter(names = { "-b", "--burst" }, description = "Lines written at once (1 to spread them evenly)")
+        public int burst = 1;
+
+        @Parameter(names = { "-d", "--duration" }, description = "Seconds to run for (0 to never stop)")
+        public int duration;
+
+        @Parameter(names = { "-s", "--seed" }, description = "Seed of the random generator")
+        public long seed = 42;
+
+        @Parameter(names = { "-o", "--output" }, description = "File to write to (default: standard output)")
+        public String output;
+    }
+
+    public static void main(final String[] args) throws IOException {
+        final GeneratorArguments arguments = new GeneratorArguments();
+        final JCommander jCommander = new JCommander(arguments);
+        try {
+            jCommander.parse(args);
+        } catch (final ParameterException e) {
+            System.err.println(e.getMessage());
+            jCommander.usage();
+            System.exit(-1);
+        }
+        if (arguments.help) {
+            jCommander.usage();
+            return;
+        }
+
+        final OutputStream outputStream = arguments.output == null ? System.out : new FileOutputStream(arguments.output);
+        final Writer writer = new OutputStreamWriter(outputStream, "UTF-8");
+        final LogGenerator logGenerator = new LogGenerator(arguments.log4j ? Format.LOG4J : Format.LOGCAT, arguments.seed);
+        logGenerator.generate(arguments.rate, arguments.burst, arguments.duration * 1000L, new Output() {
+            @Override
+            public void write(final long seq, final String line) throws IOException {
+                writer.write(line);
+                writer.write('\n');
+            }
+
+            @Override
+            public void flush() throws IOException {
+                writer.flush();
+            }
+        });
+        writer.close();
+    }
+}
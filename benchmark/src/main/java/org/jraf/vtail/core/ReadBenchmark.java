@@ -0,0 +1,86 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright (C) 2010 Benoit 'BoD' Lubek (BoD@JRAF.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.vtail.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jraf.vtail.source.Source;
+import org.jraf.vtail.source.StreamSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Decoding and splitting the input into lines, as done for stdin, files and commands.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class ReadBenchmark {
+    private static final int LINE_COUNT = 100000;
+
+    @Param({ "UTF-8", "ISO-8859-1" })
+    public String charset;
+
+    private byte[] mInput;
+
+    @Setup
+    public void setUp() throws IOException {
+        final List<String> lines = BenchmarkData.createLines(LINE_COUNT);
+        final StringBuilder input = new StringBuilder();
+        for (final String line : lines) {
+            input.append(line).append('\n');
+        }
+        mInput = input.toString().getBytes(charset);
+    }
+
+    /**
+     * Lines per second.
+     */
+    @Benchmark
+    @OperationsPerInvocation(LINE_COUNT)
+    public int read() throws IOException {
+        final int[] length = new int[1];
+        final StreamSource streamSource = new StreamSource("benchmark", new ByteArrayInputStream(mInput), charset);
+        streamSource.run(new Source.LineSink() {
+            @Override
+            public void onLine(final Source source, final String line) {
+                length[0] += line.length();
+            }
+        });
+        return length[0];
+    }
+}
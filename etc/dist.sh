@@ -5,10 +5,12 @@ cd ..
 mvn clean assembly:assembly
 rm -rf dist
 mkdir -p dist/vtail
-cp target/vtail-$VERSION-with-deps.jar dist/vtail
+# the name etc/vtail runs
+cp target/vtail-$VERSION-bundle.jar dist/vtail/vtail-$VERSION-with-deps.jar
 cp etc/vtail dist/vtail
 cp -r etc dist/vtail/etc
 rm dist/vtail/etc/dist.sh
 rm dist/vtail/etc/vtail
+rm dist/vtail/etc/startup-benchmark.sh
 cd dist
 tar cvfz vtail-$VERSION.tgz vtail
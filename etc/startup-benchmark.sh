@@ -0,0 +1,23 @@
+#!/bin/sh
+# Measures the time from the start of the VM to the display of the first line of a file,
+# without and with a class data sharing archive (JDK 13+).
+# Usage: startup-benchmark.sh [file] [runs]
+VERSION=1.00
+
+cd `dirname $0`/..
+JAR=target/vtail-$VERSION-bundle.jar
+FILE=${1:-README}
+RUNS=${2:-5}
+
+echo "Without archive:"
+for i in `seq $RUNS`; do
+    java -jar $JAR --startupbenchmark $FILE
+done
+
+# the archive must be created with the same class path as the runs using it
+rm -f target/vtail.jsa
+java -XX:ArchiveClassesAtExit=target/vtail.jsa -jar $JAR --startupbenchmark $FILE > /dev/null
+echo "With archive:"
+for i in `seq $RUNS`; do
+    java -XX:SharedArchiveFile=target/vtail.jsa -jar $JAR --startupbenchmark $FILE
+done
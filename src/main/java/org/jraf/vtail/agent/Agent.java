@@ -0,0 +1,288 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright (C) 2010 Benoit 'BoD' Lubek (BoD@JRAF.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.vtail.agent;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.zip.Deflater;
+
+import org.jraf.vtail.arguments.OverloadPolicy;
+import org.jraf.vtail.core.LineQueue;
+import org.jraf.vtail.misc.Config;
+import org.jraf.vtail.misc.Log;
+import org.jraf.vtail.misc.MiscUtil;
+import org.jraf.vtail.source.Source;
+import org.jraf.vtail.source.SourceScheduler;
+
+/**
+ * Headless mode, running next to the logs: reads a source, and streams the lines which are not ignored to the connected GUIs (see
+ * {@link AgentProtocol}).<br/>
+ * Each GUI pushes its filter, which is applied here so that only the matching lines are sent.<br/>
+ * The GUIs must first send the token given to the agent, since the lines are sent off the machine.
+ */
+public class Agent {
+    private static final String TAG = Agent.class.getName();
+
+    /**
+     * Lines are sent in batches, at most this often.
+     */
+    private static final long BATCH_INTERVAL_MS = 250;
+
+    /**
+     * Lines waiting to be sent to a slow client above this number are dropped.
+     */
+    private static final int CLIENT_CAPACITY = 100000;
+
+    /**
+     * A GUI that doesn't send its token and filter within this delay is disconnected.
+     */
+    private static final int HELLO_TIMEOUT_MS = 10000;
+
+    private static final AtomicInteger sConnectionCount = new AtomicInteger();
+
+    private final List<Pattern> mIgnoreList;
+    private final ServerSocket mServerSocket;
+    private final String mToken;
+    private final SourceScheduler mSourceScheduler;
+    private final List<Client> mClients = new ArrayList<Client>();
+    private volatile boolean mStopped;
+
+    /**
+     * A connected GUI.
+     */
+    private class Client {
+        private final Socket mSocket;
+        private final LineQueue mLineQueue = new LineQueue(OverloadPolicy.DROP, CLIENT_CAPACITY, 1);
+        private volatile String mFilter;
+
+        Client(final Socket socket, final String filter) {
+            mSocket = socket;
+            mFilter = filter.toLowerCase();
+        }
+
+        void offer(final String line) {
+            final String filter = mFilter;
+            if (filter.length() == 0 || line.toLowerCase().contains(filter)) {
+                mLineQueue.put(line);
+            }
+        }
+
+        /**
+         * Starts sending the lines, and reads the filter changes in the current thread until the GUI disconnects.
+         */
+        void run(final DataInputStream in) throws IOException {
+            final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(mSocket.getOutputStream()));
+            final Thread writerThread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    writeLoop(out);
+                }
+            }, "vtail-agent-writer-" + mSocket.getRemoteSocketAddress());
+            writerThread.setDaemon(true);
+            writerThread.start();
+            readLoop(in);
+        }
+
+        private void writeLoop(final DataOutputStream out) {
+            final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            final List<String> lines = new ArrayList<String>();
+            try {
+                while (!mSocket.isClosed()) {
+                    lines.clear();
+                    mLineQueue.drainTo(lines);
+                    if (!lines.isEmpty()) {
+                        AgentProtocol.writeBatch(out, lines, deflater);
+                    }
+                    MiscUtil.sleep(BATCH_INTERVAL_MS);
+                }
+            } catch (final IOException e) {
+                if (Config.LOGD) Log.d(TAG, "Cannot write to " + mSocket.getRemoteSocketAddress() + ": disconnecting");
+            } finally {
+                deflater.end();
+                close();
+            }
+        }
+
+        private void readLoop(final DataInputStream in) {
+            try {
+                while (true) {
+                    mFilter = AgentProtocol.readFilter(in).toLowerCase();
+                    if (Config.LOGD) Log.d(TAG, "New filter from " + mSocket.getRemoteSocketAddress() + ": " + mFilter);
+                }
+            } catch (final IOException e) {
+                if (Config.LOGD) Log.d(TAG, "Disconnected " + mSocket.getRemoteSocketAddress());
+            } finally {
+                close();
+            }
+        }
+
+        void close() {
+            synchronized (mClients) {
+                mClients.remove(this);
+            }
+            try {
+                mSocket.close();
+            } catch (final IOException e) {
+                // what can you do
+            }
+        }
+    }
+
+    /**
+     * Starts listening right away, so that errors (port already in use...) are reported to the caller.
+     * 
+     * @param bindAddress The address to listen on, or {@code null} for all of them.
+     * @param port The port to listen on, or 0 for any free port.
+     * @param token The token the GUIs must send, or {@code null} to generate one (see {@link #getToken()}).
+     */
+    public Agent(final InetAddress bindAddress, final int port, final String token, final List<Pattern> ignoreList) throws IOException {
+        mIgnoreList = ignoreList;
+        mServerSocket = new ServerSocket(port, 50, bindAddress);
+        mToken = token != null ? token : new BigInteger(128, new SecureRandom()).toString(16);
+        mSourceScheduler = new SourceScheduler(new Source.LineSink() {
+            @Override
+            public void onLine(final Source source, final String line) {
+                if (line.length() == 0 || MiscUtil.isIgnored(mIgnoreList, line)) {
+                    return;
+                }
+                synchronized (mClients) {
+                    for (final Client client : mClients) {
+                        client.offer(line);
+                    }
+                }
+            }
+        });
+    }
+
+    public int getPort() {
+        return mServerSocket.getLocalPort();
+    }
+
+    public String getToken() {
+        return mToken;
+    }
+
+    public int getClientCount() {
+        synchronized (mClients) {
+            return mClients.size();
+        }
+    }
+
+    /**
+     * Reads the given source, and accepts GUIs until {@link #stop()} is called.
+     */
+    public void run(final Source source) {
+        mSourceScheduler.start(source);
+        while (!mStopped) {
+            try {
+                final Socket socket = mServerSocket.accept();
+                // a GUI that doesn't say anything must not block the other ones
+                final Thread connectionThread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        handle(socket);
+                    }
+                }, "vtail-agent-connection-" + sConnectionCount.incrementAndGet());
+                connectionThread.setDaemon(true);
+                connectionThread.start();
+            } catch (final IOException e) {
+                if (!mStopped) {
+                    Log.e(TAG, "Cannot accept connections anymore: giving up", e);
+                }
+                break;
+            }
+        }
+        stop();
+    }
+
+    private void handle(final Socket socket) {
+        try {
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout(HELLO_TIMEOUT_MS);
+            final DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            if (!isTokenValid(AgentProtocol.readToken(in))) {
+                Log.w(TAG, "Wrong token from " + socket.getRemoteSocketAddress());
+                socket.close();
+                return;
+            }
+            // the filter is sent first, so that the GUI never receives lines it doesn't want
+            final Client client = new Client(socket, AgentProtocol.readFilter(in));
+            socket.setSoTimeout(0);
+            if (Config.LOGD) Log.d(TAG, "Connection from " + socket.getRemoteSocketAddress());
+            synchronized (mClients) {
+                if (mStopped) {
+                    socket.close();
+                    return;
+                }
+                mClients.add(client);
+            }
+            client.run(in);
+        } catch (final IOException e) {
+            Log.w(TAG, "Cannot accept connection from " + socket.getRemoteSocketAddress(), e);
+            try {
+                socket.close();
+            } catch (final IOException e2) {
+                // what can you do
+            }
+        }
+    }
+
+    /**
+     * Compares in constant time, so that the token can't be guessed from the response times.
+     */
+    private boolean isTokenValid(final String token) throws IOException {
+        return MessageDigest.isEqual(mToken.getBytes("UTF-8"), token.getBytes("UTF-8"));
+    }
+
+    public void stop() {
+        mStopped = true;
+        try {
+            mServerSocket.close();
+        } catch (final IOException e) {
+            // what can you do
+        }
+        final ArrayList<Client> clients;
+        synchronized (mClients) {
+            clients = new ArrayList<Client>(mClients);
+        }
+        for (final Client client : clients) {
+            client.close();
+        }
+        mSourceScheduler.shutdown(1000);
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright (C) 2010 Benoit 'BoD' Lubek (BoD@JRAF.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.vtail.agent;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The protocol between an {@link Agent} and a GUI vtail.<br/>
+ * The GUI first sends the token shared with the agent, then its filter, and then sends the filter again each time it changes (all as
+ * {@link DataOutputStream#writeUTF(String) UTF strings}).<br/>
+ * The agent sends batches of lines: each batch is the deflated UTF-8 lines separated by newlines, preceded by its compressed and
+ * uncompressed lengths.
+ */
+public class AgentProtocol {
+    /**
+     * Batches bigger than this are refused, to protect against garbage.
+     */
+    private static final int MAX_BATCH_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * Writes the token and the first filter, which is all the agent waits for before sending lines.
+     */
+    public static void writeHello(final DataOutputStream out, final String token, final String filter) throws IOException {
+        out.writeUTF(token);
+        writeFilter(out, filter);
+    }
+
+    public static String readToken(final DataInputStream in) throws IOException {
+        return in.readUTF();
+    }
+
+    public static void writeFilter(final DataOutputStream out, final String filter) throws IOException {
+        out.writeUTF(filter);
+        out.flush();
+    }
+
+    public static String readFilter(final DataInputStream in) throws IOException {
+        return in.readUTF();
+    }
+
+    /**
+     * Writes and flushes a batch of lines.
+     * 
+     * @param deflater A deflater, reused between batches.
+     */
+    public static void writeBatch(final DataOutputStream out, final List<String> lines, final Deflater deflater) throws IOException {
+        final StringBuilder text = new StringBuilder();
+        for (final String line : lines) {
+            text.append(line).append('\n');
+        }
+        final byte[] bytes = text.toString().getBytes("UTF-8");
+        deflater.reset();
+        deflater.setInput(bytes);
+        deflater.finish();
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream(bytes.length / 4 + 64);
+        final byte[] buffer = new byte[8192];
+        while (!deflater.finished()) {
+            final int len = deflater.deflate(buffer);
+            compressed.write(buffer, 0, len);
+        }
+        out.writeInt(compressed.size());
+        out.writeInt(bytes.length);
+        compressed.writeTo(out);
+        out.flush();
+    }
+
+    /**
+     * Reads a batch of lines, blocking until one is available.
+     * 
+     * @param inflater An inflater, reused between batches.
+     * @param lines Where to add the lines.
+     */
+    public static void readBatch(final DataInputStream in, final Inflater inflater, final List<String> lines) throws IOException {
+        final int compressedLength = in.readInt();
+        final int length = in.readInt();
+        if (compressedLength < 0 || compressedLength > MAX_BATCH_SIZE || length < 0 || length > MAX_BATCH_SIZE) {
+            throw new IOException("Invalid batch length " + compressedLength + "/" + length);
+        }
+        final byte[] compressed = new byte[compressedLength];
+        in.readFully(compressed);
+        final byte[] bytes = new byte[length];
+        inflater.reset();
+        inflater.setInput(compressed);
+        try {
+            int inflated = 0;
+            while (inflated < length) {
+                final int len = inflater.inflate(bytes, inflated, length - inflated);
+                if (len == 0 && (inflater.finished() || inflater.needsInput())) {
+                    throw new IOException("Truncated batch");
+                }
+                inflated += len;
+            }
+        } catch (final DataFormatException e) {
+            throw new IOException("Invalid batch: " + e.getMessage());
+        }
+        final String text = new String(bytes, "UTF-8");
+        int start = 0;
+        int end;
+        while ((end = text.indexOf('\n', start)) != -1) {
+            lines.add(text.substring(start, end));
+            start = end + 1;
+        }
+    }
+}
@@ -30,8 +30,11 @@ import java.io.File;
 import java.util.List;
 import java.util.regex.Pattern;
 
+import org.jraf.vtail.parser.LineFormat;
+
 import com.beust.jcommander.Parameter;
 import com.beust.jcommander.Parameters;
+import com.beust.jcommander.converters.FileConverter;
 
 
 @Parameters(separators = " =")
@@ -53,6 +56,12 @@ public class Arguments {
     @Parameter(names = { "-hl", "--highlight" }, converter = HighlightConverter.class, description = "Regular expression for lines to highlight and corresponding style. E.g.: -hl .*foobar.*:red,white,bold")
     public List<Highlight> highlightList;
 
+    @Parameter(names = { "-hlv", "--highlightlevel" }, converter = LevelHighlightConverter.class, description = "Log level of lines to highlight and corresponding style. Like all the highlights, applied in the order of the command line. Needs a --format. E.g.: -hlv W:#ff8000 or -hlv error:red,bold")
+    public List<LevelHighlight> levelHighlightList;
+
+    @Parameter(names = { "-hlt", "--highlighttag" }, converter = TagHighlightConverter.class, description = "Tag of lines to highlight and corresponding style. Like all the highlights, applied in the order of the command line. Cheaper than a regular expression. Needs a --format. E.g.: -hlt dalvikvm:#a0a0a0")
+    public List<TagHighlight> tagHighlightList;
+
     @Parameter(names = { "-i", "--ignore" }, converter = PatternConverter.class, description = "Regular expression for lines to ignore. E.g.: -i .*foobar.*")
     public List<Pattern> ignoreList;
 
@@ -68,6 +77,90 @@ public class Arguments {
     @Parameter(names = { "-t", "--title" }, description = "Window title")
     public String title = DEFAULT_TITLE;
 
+    @Parameter(names = { "-op", "--overloadpolicy" }, converter = OverloadPolicyConverter.class, description = "What to do when lines come in faster than they can be displayed - block (wait), drop (drop the oldest pending lines), sample (keep 1 line out of --samplerate) or latest (display only the --latest most recent lines, the others are still kept for filtering)")
+    public OverloadPolicy overloadPolicy = OverloadPolicy.BLOCK;
+
+    @Parameter(names = { "-oc", "--overloadcapacity" }, description = "Maximum number of lines waiting to be displayed before the overload policy kicks in")
+    public int overloadCapacity = 10000;
+
+    @Parameter(names = { "-sr", "--samplerate" }, description = "With the sample overload policy, keep 1 line out of this many")
+    public int sampleRate = 10;
+
+    @Parameter(names = { "-lt", "--latest" }, description = "With the latest overload policy, number of most recent lines to display")
+    public int latest = 1000;
+
+    @Parameter(names = { "-nc", "--nocollapse" }, description = "Don't collapse consecutive identical lines into a single one")
+    public boolean nocollapse;
+
+    @Parameter(names = { "-cs", "--collapsesimilar" }, description = "Also collapse consecutive lines that differ only by their numbers (e.g. timestamps)")
+    public boolean collapseSimilar;
+
+    @Parameter(names = { "-fmt", "--format" }, converter = LineFormatConverter.class, description = "Format of the lines, to extract their timestamp, level, tag and pid - none, auto, logcat, log4j or syslog")
+    public LineFormat format = LineFormat.AUTO;
+
+    @Parameter(names = { "-ml", "--maxlines" }, description = "Maximum number of lines kept, the oldest ones being forgotten (0 to keep them all)")
+    public int maxLines = 1000000;
+
+    @Parameter(names = { "-md", "--maxdisplayed" }, description = "Maximum number of lines displayed, the older ones being still kept for filtering (0 to display them all)")
+    public int maxDisplayed = 100000;
+
+    @Parameter(names = { "-nz", "--nocompress" }, description = "Don't compress the older lines kept in memory")
+    public boolean nocompress;
+
+    @Parameter(names = { "-b", "--browse" }, description = "For huge files: don't load the whole file, only follow its end, and browse the rest page by page")
+    public boolean browse;
+
+    @Parameter(names = { "-lth", "--loadthreads" }, description = "Number of threads used to load the existing content of the file")
+    public int loadThreads = Runtime.getRuntime().availableProcessors();
+
+    @Parameter(names = { "-ic", "--indexcache" }, converter = FileConverter.class, description = "Directory where the indexes of the files are kept, so that they are not indexed again when reopened")
+    public File indexCache = new File(System.getProperty("user.home"), ".vtail" + File.separator + "cache");
+
+    @Parameter(names = { "-nic", "--noindexcache" }, description = "Don't keep the indexes of the files")
+    public boolean noIndexCache;
+
+    @Parameter(names = { "-x", "--exec" }, description = "Command to run and read the output of, instead of a file. The arguments are split on whitespace, quotes and backslashes work like in a shell. It is started again when it exits. E.g.: -x \"adb -d logcat -v time\"")
+    public String exec;
+
+    @Parameter(names = { "-lp", "--listentcp" }, description = "TCP port to listen on for log messages (e.g. from syslog), one per line or octet counted")
+    public int listenTcpPort = -1;
+
+    @Parameter(names = { "-lu", "--listenudp" }, description = "UDP port to listen on for log messages (e.g. from syslog)")
+    public int listenUdpPort = -1;
+
+    @Parameter(names = { "-ag", "--agent" }, description = "Run headless, and stream the lines which are not ignored to the GUIs connecting to this port (see --connect)")
+    public int agentPort = -1;
+
+    @Parameter(names = { "-agb", "--agentbind" }, description = "Address the agent listens on (see --agent). Use 0.0.0.0 to accept GUIs from other machines")
+    public String agentBindAddress = "127.0.0.1";
+
+    @Parameter(names = { "-co", "--connect" }, description = "Read the lines streamed by an agent (see --agent), given as host:port. The filter is applied by the agent")
+    public String connect;
+
+    @Parameter(names = { "-tk", "--token" }, description = "Token shared by an agent and its GUIs (see --agent and --connect). The agent generates one if none is given")
+    public String token;
+
+    @Parameter(names = { "-tty", "--tty" }, description = "Display the lines in the terminal, with the highlights as ANSI colors, instead of opening a window")
+    public boolean tty;
+
+    @Parameter(names = { "-si", "--singleinstance" }, description = "Open the window in the vtail already running with this option, if any, which is much faster than starting a new one")
+    public boolean singleInstance;
+
+    @Parameter(names = { "-st", "--statusbar" }, description = "Show the number of lines read, ignored and rendered per second, and other metrics of the pipeline, in a status bar")
+    public boolean statusBar;
+
+    @Parameter(names = { "-jmx", "--jmx" }, description = "Export the metrics of the pipeline (see --statusbar) as an MBean, e.g. for jconsole")
+    public boolean jmx;
+
+    @Parameter(names = { "-pr", "--profile-rules" }, description = "Measure the time taken by each --ignore and --highlight rule, and how often it matches. The report is printed on exit")
+    public boolean profileRules;
+
+    @Parameter(names = { "-ew", "--edtwatchdog" }, description = "Watch the responsiveness of the window: when it is blocked for more than this many milliseconds, print what it is busy with. A summary is in the context menu and printed on exit")
+    public int edtWatchdog = -1;
+
+    @Parameter(names = { "-sb", "--startupbenchmark" }, hidden = true, description = "Print the time from the start of the VM to the display of the first line, and exit")
+    public boolean startupBenchmark;
+
     @Parameter(description = "file", arity = 1)
     public List<File> fileList;
 }
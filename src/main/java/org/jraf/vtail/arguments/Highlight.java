@@ -31,5 +31,9 @@ import javax.swing.text.SimpleAttributeSet;
 public class Highlight {
 
     public Pattern pattern;
+    /**
+     * Position of the option among all the highlight options of the command line, so that they are applied in that order.
+     */
+    public int order;
     public SimpleAttributeSet style = new SimpleAttributeSet();
 }
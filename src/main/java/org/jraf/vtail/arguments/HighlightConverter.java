@@ -25,9 +25,11 @@
 package org.jraf.vtail.arguments;
 
 import java.awt.Color;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
+import javax.swing.text.SimpleAttributeSet;
 import javax.swing.text.StyleConstants;
 
 import com.beust.jcommander.ParameterException;
@@ -35,6 +37,9 @@ import com.beust.jcommander.converters.BaseConverter;
 
 
 public class HighlightConverter extends BaseConverter<Highlight> {
+    // the options are converted in the order of the command line
+    private static final AtomicInteger sOrder = new AtomicInteger();
+
     public HighlightConverter(final String optionName) {
         super(optionName);
     }
@@ -48,6 +53,7 @@ public class HighlightConverter extends BaseConverter<Highlight> {
         }
 
         final Highlight res = new Highlight();
+        res.order = nextOrder();
 
         final String regexpStr = value.substring(0, colonIndex);
         try {
@@ -65,16 +71,31 @@ public class HighlightConverter extends BaseConverter<Highlight> {
                     + "'. Value must be of the form <regular expression>:<highlight expression>, eg: -hl .*foobar.*:red,bold or -hl .*foobar.*:#ff0000");
         }
 
+        parseStyle(getOptionName(), styleStr, res.style);
+        return res;
+    }
+
+    /**
+     * @return the order of the next highlight option converted (see {@link Highlight#order}).
+     */
+    static int nextOrder() {
+        return sOrder.incrementAndGet();
+    }
+
+    /**
+     * Parses a comma separated sequence of colors and attributes into the given style.
+     */
+    static void parseStyle(final String optionName, final String styleStr, final SimpleAttributeSet style) {
         final String[] styleParts = styleStr.split(",");
         boolean foreground = true;
         for (final String part : styleParts) {
             Color color = null;
             if ("bold".equals(part)) {
-                res.style.addAttribute(StyleConstants.Bold, true);
+                style.addAttribute(StyleConstants.Bold, true);
             } else if ("italic".equals(part)) {
-                res.style.addAttribute(StyleConstants.Italic, true);
+                style.addAttribute(StyleConstants.Italic, true);
             } else if ("underline".equals(part)) {
-                res.style.addAttribute(StyleConstants.Underline, true);
+                style.addAttribute(StyleConstants.Underline, true);
             } else if ("BLACK".equalsIgnoreCase(part)) {
                 color = Color.BLACK;
             } else if ("BLUE".equalsIgnoreCase(part)) {
@@ -106,7 +127,7 @@ public class HighlightConverter extends BaseConverter<Highlight> {
                     color = Color.decode(part);
                 } catch (final NumberFormatException e) {
                     throw new ParameterException(
-                            getOptionName()
+                            optionName
                                     + ": could not parse the style part '"
                                     + part
                                     + "'. Style must be a comma separated sequence of a color (a logical name like red or black, or an hex value like #ff0000) or an attribute (bold, italic, or underline).\nIf 2 colors are present, the first one is for the foreground and the second one for the background.");
@@ -114,13 +135,12 @@ public class HighlightConverter extends BaseConverter<Highlight> {
             }
             if (color != null) {
                 if (foreground) {
-                    res.style.addAttribute(StyleConstants.Foreground, color);
+                    style.addAttribute(StyleConstants.Foreground, color);
                     foreground = false;
                 } else {
-                    res.style.addAttribute(StyleConstants.Background, color);
+                    style.addAttribute(StyleConstants.Background, color);
                 }
             }
         }
-        return res;
     }
 }
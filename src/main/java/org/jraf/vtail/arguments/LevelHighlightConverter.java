@@ -0,0 +1,56 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright (C) 2010 Benoit 'BoD' Lubek (BoD@JRAF.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.vtail.arguments;
+
+import org.jraf.vtail.parser.LogLevel;
+
+import com.beust.jcommander.ParameterException;
+import com.beust.jcommander.converters.BaseConverter;
+
+
+public class LevelHighlightConverter extends BaseConverter<LevelHighlight> {
+    public LevelHighlightConverter(final String optionName) {
+        super(optionName);
+    }
+
+    @Override
+    public LevelHighlight convert(final String value) {
+        final int colonIndex = value.indexOf(':');
+        if (colonIndex == -1 || colonIndex == value.length() - 1) {
+            throw new ParameterException(getOptionName() + ": cannot parse '" + value
+                    + "'. Value must be of the form <level>:<highlight expression>, eg: -hlv W:red,bold or -hlv error:#ff0000");
+        }
+
+        final LevelHighlight res = new LevelHighlight();
+        res.order = HighlightConverter.nextOrder();
+        res.level = LogLevel.fromName(value.substring(0, colonIndex));
+        if (res.level == LogLevel.UNKNOWN) {
+            throw new ParameterException(getOptionName() + ": cannot parse '" + value
+                    + "'. The level must be a logcat letter (V, D, I, W, E, F) or a name (trace, debug, info, warn, error, fatal)");
+        }
+        HighlightConverter.parseStyle(getOptionName(), value.substring(colonIndex + 1), res.style);
+        return res;
+    }
+}
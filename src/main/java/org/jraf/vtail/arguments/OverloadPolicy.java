@@ -0,0 +1,50 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright (C) 2010 Benoit 'BoD' Lubek (BoD@JRAF.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.vtail.arguments;
+
+/**
+ * What to do when lines are read faster than they can be displayed.
+ */
+public enum OverloadPolicy {
+    /**
+     * Make the reader wait until the display catches up.
+     */
+    BLOCK,
+
+    /**
+     * Throw away the oldest lines that are not displayed yet.
+     */
+    DROP,
+
+    /**
+     * Once overloaded, keep only 1 line out of N.
+     */
+    SAMPLE,
+
+    /**
+     * Keep all the lines, but display only the latest ones of each batch. The others can still be seen by filtering.
+     */
+    LATEST
+}
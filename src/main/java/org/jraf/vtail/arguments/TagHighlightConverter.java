@@ -0,0 +1,50 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright (C) 2010 Benoit 'BoD' Lubek (BoD@JRAF.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.vtail.arguments;
+
+import com.beust.jcommander.ParameterException;
+import com.beust.jcommander.converters.BaseConverter;
+
+
+public class TagHighlightConverter extends BaseConverter<TagHighlight> {
+    public TagHighlightConverter(final String optionName) {
+        super(optionName);
+    }
+
+    @Override
+    public TagHighlight convert(final String value) {
+        final int colonIndex = value.lastIndexOf(':');
+        if (colonIndex <= 0 || colonIndex == value.length() - 1) {
+            throw new ParameterException(getOptionName() + ": cannot parse '" + value
+                    + "'. Value must be of the form <tag>:<highlight expression>, eg: -hlt dalvikvm:#a0a0a0 or -hlt ActivityManager:white,bold");
+        }
+
+        final TagHighlight res = new TagHighlight();
+        res.order = HighlightConverter.nextOrder();
+        res.tag = value.substring(0, colonIndex);
+        HighlightConverter.parseStyle(getOptionName(), value.substring(colonIndex + 1), res.style);
+        return res;
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright (C) 2010 Benoit 'BoD' Lubek (BoD@JRAF.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.vtail.core;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.zip.GZIPInputStream;
+
+import org.jraf.vtail.misc.Config;
+import org.jraf.vtail.misc.Log;
+
+/**
+ * Reads a gzip compressed file.<br/>
+ * The decompression is done by its own thread, which feeds the decompressed bytes through a pipe, so that it runs in parallel with the
+ * splitting of the lines.
+ */
+public class CompressedFileInputStream extends PipedInputStream {
+    private static final String TAG = CompressedFileInputStream.class.getName();
+
+    private static final int PIPE_SIZE = 256 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    public enum Compression {
+        NONE, GZIP, ZSTD
+    }
+
+    private final PipedOutputStream mPipedOutputStream;
+
+    public CompressedFileInputStream(final File file) throws IOException {
+        super(PIPE_SIZE);
+        mPipedOutputStream = new PipedOutputStream(this);
+        // open it now so that errors are reported to the caller
+        final InputStream compressedInputStream = new GZIPInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE), BUFFER_SIZE);
+        final Thread decompressorThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                decompress(compressedInputStream);
+            }
+        }, "vtail-decompressor");
+        decompressorThread.setDaemon(true);
+        decompressorThread.start();
+    }
+
+    private void decompress(final InputStream compressedInputStream) {
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        try {
+            // concatenated members (e.g. from parallel compressors) are read one after the other by GZIPInputStream
+            int read;
+            while ((read = compressedInputStream.read(buffer)) != -1) {
+                mPipedOutputStream.write(buffer, 0, read);
+            }
+            if (Config.LOGD) Log.d(TAG, "End of compressed file");
+        } catch (final IOException e) {
+            Log.e(TAG, "Cannot decompress file", e);
+        } finally {
+            try {
+                compressedInputStream.close();
+            } catch (final IOException e) {
+                // what can you do
+            }
+            try {
+                // the reader will get the end of stream
+                mPipedOutputStream.close();
+            } catch (final IOException e) {
+                // what can you do
+            }
+        }
+    }
+
+    /**
+     * @return the compression of the given file, detected from its first bytes.
+     */
+    public static Compression getCompression(final File file) throws IOException {
+        final byte[] magic = new byte[4];
+        final FileInputStream fileInputStream = new FileInputStream(file);
+        int len = 0;
+        try {
+            int read;
+            while (len < magic.length && (read = fileInputStream.read(magic, len, magic.length - len)) != -1) {
+                len += read;
+            }
+        } finally {
+            fileInputStream.close();
+        }
+        if (len >= 2 && (magic[0] & 0xFF) == 0x1F && (magic[1] & 0xFF) == 0x8B) {
+            return Compression.GZIP;
+        }
+        if (len == 4 && (magic[0] & 0xFF) == 0x28 && (magic[1] & 0xFF) == 0xB5 && (magic[2] & 0xFF) == 0x2F && (magic[3] & 0xFF) == 0xFD) {
+            return Compression.ZSTD;
+        }
+        return Compression.NONE;
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright (C) 2010 Benoit 'BoD' Lubek (BoD@JRAF.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.vtail.core;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.jraf.vtail.arguments.Arguments;
+import org.jraf.vtail.misc.MiscUtil;
+import org.jraf.vtail.source.Source;
+import org.jraf.vtail.source.SourceScheduler;
+import org.jraf.vtail.store.LineStore;
+
+/**
+ * The way of the lines, from the sources to the line store: the sources put the lines which are not ignored into the line queue, which the
+ * window drains into the line store.<br/>
+ * It is created before the window, so that reading starts right away while the window is being built: until then, the lines wait in the
+ * queue.
+ */
+public class LinePipeline {
+    private final Arguments mArguments;
+    private final LineQueue mLineQueue;
+    private final LineStore mLineStore;
+    private final SourceScheduler mSourceScheduler;
+    private final PipelineMetrics mMetrics;
+    private final RuleProfiler mRuleProfiler;
+
+    public LinePipeline(final Arguments arguments) {
+        mArguments = arguments;
+        mLineQueue = new LineQueue(arguments.overloadPolicy, arguments.overloadCapacity, arguments.sampleRate);
+        mLineStore = new LineStore(!arguments.nocollapse, arguments.collapseSimilar, arguments.format.newParser(), arguments.maxLines,
+                !arguments.nocompress);
+        if (arguments.statusBar || arguments.jmx) {
+            mMetrics = new PipelineMetrics(mLineQueue, mLineStore);
+            mMetrics.start();
+            if (arguments.jmx) {
+                mMetrics.registerMBean();
+            }
+        } else {
+            mMetrics = null;
+        }
+        if (arguments.profileRules) {
+            mRuleProfiler = new RuleProfiler(arguments);
+            mRuleProfiler.printReportOnExit(System.out);
+        } else {
+            mRuleProfiler = null;
+        }
+        mSourceScheduler = new SourceScheduler(new Source.LineSink() {
+            @Override
+            public void onLine(final Source source, final String line) {
+                if (line.length() == 0) {
+                    return;
+                }
+                if (mMetrics != null) {
+                    mMetrics.onLineRead();
+                }
+
+                if (!isIgnored(line)) {
+                    mLineQueue.put(line);
+                } else if (mMetrics != null) {
+                    mMetrics.onLineIgnored();
+                }
+            }
+        });
+    }
+
+    public boolean isIgnored(final String line) {
+        if (mRuleProfiler != null) {
+            return mRuleProfiler.isIgnored(line);
+        }
+        return MiscUtil.isIgnored(mArguments.ignoreList, line);
+    }
+
+    /**
+     * Starts reading the given source.
+     */
+    public void start(final Source source) {
+        mSourceScheduler.start(source);
+    }
+
+    /**
+     * Loads the existing content of the file directly into the line store.
+     * 
+     * @return the offset in the file where following it should start.
+     */
+    public long load(final File file, final String charset) throws IOException {
+        final ParallelFileLoader parallelFileLoader = new ParallelFileLoader(file, charset, mArguments.format, new ParallelFileLoader.LineFilter() {
+            @Override
+            public boolean isIgnored(final String line) {
+                return LinePipeline.this.isIgnored(line);
+            }
+        }, mArguments.loadThreads);
+        if (mMetrics == null) {
+            return parallelFileLoader.load(mLineStore);
+        }
+        // counted by chunk, rather than by line from all the loading threads
+        return parallelFileLoader.load(mLineStore, new ParallelFileLoader.ChunkListener() {
+            @Override
+            public void onChunkLoaded(final int readCount, final int ignoredCount) {
+                mMetrics.onLinesLoaded(readCount, ignoredCount);
+            }
+        });
+    }
+
+    public LineQueue getLineQueue() {
+        return mLineQueue;
+    }
+
+    public LineStore getLineStore() {
+        return mLineStore;
+    }
+
+    public SourceScheduler getSourceScheduler() {
+        return mSourceScheduler;
+    }
+
+    /**
+     * @return the rule profiler, or {@code null} if the rules are not profiled.
+     */
+    public RuleProfiler getRuleProfiler() {
+        return mRuleProfiler;
+    }
+
+    /**
+     * @return the metrics, or {@code null} if they are not enabled.
+     */
+    public PipelineMetrics getMetrics() {
+        return mMetrics;
+    }
+}
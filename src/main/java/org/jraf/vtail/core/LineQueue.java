@@ -0,0 +1,140 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright (C) 2010 Benoit 'BoD' Lubek (BoD@JRAF.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.vtail.core;
+
+import java.util.ArrayDeque;
+import java.util.List;
+
+import org.jraf.vtail.arguments.OverloadPolicy;
+
+/**
+ * Bounded hand-off between the thread reading the lines and the thread displaying them.<br/>
+ * What happens when the display can't keep up is decided by an {@link OverloadPolicy}. Lines lost because of it are counted.
+ */
+public class LineQueue {
+    private final OverloadPolicy mPolicy;
+    private final int mCapacity;
+    private final int mSampleRate;
+    private final ArrayDeque<String> mQueue;
+    private int mSampleCounter;
+    private long mDroppedCount;
+    private long mSampledOutCount;
+    private boolean mClosed;
+
+    public LineQueue(final OverloadPolicy policy, final int capacity, final int sampleRate) {
+        mPolicy = policy;
+        mCapacity = Math.max(1, capacity);
+        mSampleRate = Math.max(1, sampleRate);
+        mQueue = new ArrayDeque<String>(Math.min(mCapacity, 1024));
+    }
+
+    /**
+     * Adds a line, applying the overload policy if needed. With {@link OverloadPolicy#BLOCK} (and {@link OverloadPolicy#LATEST}, for which
+     * the display is cheap) this waits until there is room.<br/>
+     * Does nothing once the queue is closed, or if the calling thread is interrupted while waiting (its interrupt flag is then set again,
+     * so that the source can end).
+     */
+    public synchronized void put(final String line) {
+        if (mClosed) {
+            return;
+        }
+        switch (mPolicy) {
+            case BLOCK:
+            case LATEST:
+                while (mQueue.size() >= mCapacity) {
+                    try {
+                        wait();
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    if (mClosed) {
+                        return;
+                    }
+                }
+                break;
+
+            case DROP:
+                if (mQueue.size() >= mCapacity) {
+                    mQueue.removeFirst();
+                    mDroppedCount++;
+                }
+                break;
+
+            case SAMPLE:
+                if (mQueue.size() >= mCapacity / 2) {
+                    // overloaded: keep only 1 line out of mSampleRate
+                    if (mSampleCounter++ % mSampleRate != 0) {
+                        mSampledOutCount++;
+                        return;
+                    }
+                    if (mQueue.size() >= mCapacity) {
+                        mQueue.removeFirst();
+                        mDroppedCount++;
+                    }
+                } else {
+                    mSampleCounter = 0;
+                }
+                break;
+        }
+        mQueue.addLast(line);
+    }
+
+    /**
+     * Moves all the pending lines to the given list, in order.
+     */
+    public synchronized void drainTo(final List<String> lines) {
+        lines.addAll(mQueue);
+        mQueue.clear();
+        notifyAll();
+    }
+
+    /**
+     * Closes the queue, when nothing will drain it anymore: the pending lines are forgotten, the sources waiting for room are woken up, and
+     * the lines put afterwards are ignored.
+     */
+    public synchronized void close() {
+        mClosed = true;
+        mQueue.clear();
+        notifyAll();
+    }
+
+    public synchronized int size() {
+        return mQueue.size();
+    }
+
+    public synchronized long getDroppedCount() {
+        return mDroppedCount;
+    }
+
+    public synchronized long getSampledOutCount() {
+        return mSampledOutCount;
+    }
+
+    public synchronized void resetCounters() {
+        mDroppedCount = 0;
+        mSampledOutCount = 0;
+    }
+}
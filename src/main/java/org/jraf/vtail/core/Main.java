@@ -25,16 +25,35 @@
 package org.jraf.vtail.core;
 
 import java.io.File;
+import java.io.FileDescriptor;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
-import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
 import java.nio.charset.Charset;
 
+import org.jraf.vtail.agent.Agent;
 import org.jraf.vtail.arguments.Arguments;
+import org.jraf.vtail.instance.InstanceClient;
+import org.jraf.vtail.instance.InstanceServer;
+import org.jraf.vtail.misc.Log;
+import org.jraf.vtail.source.AgentSource;
+import org.jraf.vtail.source.NetworkSource;
+import org.jraf.vtail.source.ProcessSource;
+import org.jraf.vtail.source.Source;
+import org.jraf.vtail.source.StreamSource;
 
 import com.beust.jcommander.JCommander;
+import com.beust.jcommander.ParameterException;
 
 public class Main {
+    private static final String TAG = Main.class.getName();
+
+    /**
+     * In browse mode, how much of the end of the file is loaded.
+     */
+    private static final long BROWSE_TAIL_LENGTH = 256 * 1024;
 
     public static void main(final String[] args) {
         final Arguments arguments = new Arguments();
@@ -46,28 +65,225 @@ public class Main {
             return;
         }
 
-        InputStream inputStream = System.in;
+        if (arguments.singleInstance && arguments.agentPort == NetworkSource.DISABLED && !arguments.tty) {
+            if (InstanceClient.handOver(args, arguments)) {
+                // the running instance opened the window
+                return;
+            }
+            InstanceServer.start();
+        }
+
+        try {
+            run(arguments, System.in);
+        } catch (final ParameterException e) {
+            System.err.println(e.getMessage());
+            System.exit(-1);
+        } catch (final IOException e) {
+            System.err.println(e.getMessage());
+            System.exit(-1);
+        }
+    }
+
+    /**
+     * Opens a window, or runs headless, for the given arguments.
+     * 
+     * @param stdin The standard input, read when no file, command, port or agent is given.
+     */
+    public static void run(final Arguments arguments, final InputStream stdin) throws IOException {
+        final String charset = Charset.defaultCharset().name();
+        File file = null;
+        CompressedFileInputStream.Compression compression = CompressedFileInputStream.Compression.NONE;
         if (arguments.fileList != null) {
-            final File file = arguments.fileList.get(0);
-            try {
-                inputStream = new NeverEndingFileInputStream(file);
-            } catch (final FileNotFoundException e) {
-                System.err.println("Cannot find file " + e.getMessage());
-                System.exit(-1);
+            file = arguments.fileList.get(0);
+            if (!file.isFile()) {
+                throw new FileNotFoundException("Cannot find file " + file);
+            }
+            compression = CompressedFileInputStream.getCompression(file);
+            if (compression == CompressedFileInputStream.Compression.ZSTD) {
+                throw new IOException("Cannot read file " + file + ": zstd compression is not supported");
             }
             if (Arguments.DEFAULT_TITLE.equals(arguments.title)) {
                 arguments.title = file.toString();
             }
         }
 
-        final VtailWindow vtailWindow = new VtailWindow(arguments);
+        NetworkSource networkSource = null;
+        if (arguments.listenTcpPort != NetworkSource.DISABLED || arguments.listenUdpPort != NetworkSource.DISABLED) {
+            try {
+                networkSource = new NetworkSource(arguments.listenTcpPort, arguments.listenUdpPort, charset);
+            } catch (final IOException e) {
+                throw new IOException("Cannot listen: " + e.getMessage());
+            }
+            if (file == null && arguments.exec == null && Arguments.DEFAULT_TITLE.equals(arguments.title)) {
+                arguments.title = networkSource.getName();
+            }
+        }
+
+        if (arguments.exec != null) {
+            if (file != null) {
+                throw new ParameterException("A file and a command can't be given at the same time");
+            }
+            try {
+                if (ProcessSource.splitCommand(arguments.exec).isEmpty()) {
+                    throw new ParameterException("--exec needs a command");
+                }
+            } catch (final IllegalArgumentException e) {
+                throw new ParameterException(e.getMessage());
+            }
+            if (Arguments.DEFAULT_TITLE.equals(arguments.title)) {
+                arguments.title = arguments.exec;
+            }
+        }
+
+        if (arguments.agentPort != NetworkSource.DISABLED) {
+            // headless
+            runAgent(arguments, file, compression, networkSource, stdin, charset);
+            return;
+        }
+
+        if (arguments.tty) {
+            // the lines are rendered on stdout
+            Log.toStderr();
+            runTty(arguments, file, compression, networkSource, stdin, charset);
+            return;
+        }
+
+        AgentSource agentSource = null;
+        if (arguments.connect != null) {
+            final int colonIndex = arguments.connect.lastIndexOf(':');
+            int port = -1;
+            try {
+                port = Integer.parseInt(arguments.connect.substring(colonIndex + 1));
+            } catch (final NumberFormatException e) {
+                // handled below
+            }
+            if (colonIndex <= 0 || port <= 0) {
+                throw new ParameterException("Cannot parse '" + arguments.connect + "': it must be host:port");
+            }
+            if (arguments.token == null) {
+                throw new ParameterException("--connect needs the --token of the agent");
+            }
+            agentSource = new AgentSource(arguments.connect.substring(0, colonIndex), port, arguments.token);
+            if (networkSource == null && file == null && arguments.exec == null && Arguments.DEFAULT_TITLE.equals(arguments.title)) {
+                arguments.title = arguments.connect;
+            }
+        }
+
+        // start reading right away, while the window is being built: until then the lines wait in the queue
+        final LinePipeline linePipeline = new LinePipeline(arguments);
+        if (agentSource != null) {
+            linePipeline.start(agentSource);
+        }
+        if (networkSource != null) {
+            linePipeline.start(networkSource);
+        }
+        Thread loaderThread = null;
+        try {
+            if (arguments.exec != null) {
+                linePipeline.start(new ProcessSource(arguments.exec, charset));
+            } else if (file != null) {
+                if (compression == CompressedFileInputStream.Compression.GZIP) {
+                    // compressed files can't be followed or seeked: read them entirely
+                    linePipeline.start(new StreamSource(file.getName(), new CompressedFileInputStream(file), charset));
+                } else if (arguments.browse) {
+                    linePipeline.start(new StreamSource(file.getName(), new NeverEndingFileInputStream(file, Math.max(0, file.length()
+                            - BROWSE_TAIL_LENGTH)), charset));
+                } else {
+                    loaderThread = startLoader(linePipeline, file, charset);
+                }
+            } else if (agentSource == null && networkSource == null) {
+                linePipeline.start(new StreamSource("stdin", stdin, charset));
+            }
+        } catch (final FileNotFoundException e) {
+            throw new FileNotFoundException("Cannot find file " + e.getMessage());
+        } catch (final IOException e) {
+            throw new IOException("Cannot read file " + e.getMessage());
+        }
+
+        final VtailWindow vtailWindow = new VtailWindow(arguments, linePipeline);
+        if (agentSource != null) {
+            vtailWindow.addAgentSource(agentSource);
+        }
         vtailWindow.show();
 
+        if (loaderThread != null) {
+            // the loaded lines are displayed all at once
+            try {
+                loaderThread.join();
+            } catch (final InterruptedException e) {
+                // what can you do
+            }
+        }
+        vtailWindow.start(charset);
+    }
+
+    /**
+     * Loads what is already in the file in parallel, then follows it from there.
+     */
+    private static Thread startLoader(final LinePipeline linePipeline, final File file, final String charset) {
+        final Thread res = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    final long loadedLength = linePipeline.load(file, charset);
+                    linePipeline.start(new StreamSource(file.getName(), new NeverEndingFileInputStream(file, loadedLength), charset));
+                } catch (final IOException e) {
+                    Log.e(TAG, "Cannot read file " + file, e);
+                }
+            }
+        }, "vtail-loader");
+        res.start();
+        return res;
+    }
+
+    private static void runAgent(final Arguments arguments, final File file, final CompressedFileInputStream.Compression compression,
+            final NetworkSource networkSource, final InputStream stdin, final String charset) throws IOException {
+        final Agent agent;
+        try {
+            agent = new Agent(InetAddress.getByName(arguments.agentBindAddress), arguments.agentPort, arguments.token, arguments.ignoreList);
+        } catch (final IOException e) {
+            throw new IOException("Cannot listen: " + e.getMessage());
+        }
+
+        // the GUIs only get the new lines
+        final Source source = createHeadlessSource(arguments, file, compression, networkSource, stdin, charset, true);
+        System.out.println("vtail agent listening on " + arguments.agentBindAddress + " port " + agent.getPort() + ", token " + agent.getToken());
+        agent.run(source);
+    }
+
+    private static void runTty(final Arguments arguments, final File file, final CompressedFileInputStream.Compression compression,
+            final NetworkSource networkSource, final InputStream stdin, final String charset) throws IOException {
+        final Source source = createHeadlessSource(arguments, file, compression, networkSource, stdin, charset, false);
+        final TtyRenderer ttyRenderer = new TtyRenderer(arguments, new FileOutputStream(FileDescriptor.out), charset);
+        // throws when the terminal is gone
+        ttyRenderer.run(source);
+    }
+
+    /**
+     * @param fromEnd Whether to only read the new lines of the file.
+     */
+    private static Source createHeadlessSource(final Arguments arguments, final File file, final CompressedFileInputStream.Compression compression,
+            final NetworkSource networkSource, final InputStream stdin, final String charset, final boolean fromEnd) throws IOException {
+        final Source res;
         try {
-            vtailWindow.startReadWriteLoop(inputStream, Charset.defaultCharset().name());
-        } catch (final UnsupportedEncodingException e) {
-            // can never happen
-            throw new AssertionError(e);
+            if (arguments.exec != null) {
+                res = new ProcessSource(arguments.exec, charset);
+            } else if (file != null) {
+                final InputStream inputStream;
+                if (compression == CompressedFileInputStream.Compression.GZIP) {
+                    inputStream = new CompressedFileInputStream(file);
+                } else {
+                    inputStream = new NeverEndingFileInputStream(file, fromEnd ? file.length() : 0);
+                }
+                res = new StreamSource(file.getName(), inputStream, charset);
+            } else if (networkSource != null) {
+                res = networkSource;
+            } else {
+                res = new StreamSource("stdin", stdin, charset);
+            }
+        } catch (final IOException e) {
+            throw new IOException("Cannot read file " + e.getMessage());
         }
+        return res;
     }
 }
@@ -42,6 +42,18 @@ public class NeverEndingFileInputStream extends InputStream {
         mRandomAccessFile = new RandomAccessFile(file, "r");
     }
 
+    /**
+     * Starts reading at the first line beginning at or after the given offset.
+     */
+    public NeverEndingFileInputStream(final File file, final long offset) throws IOException {
+        this(file);
+        if (offset > 0) {
+            mRandomAccessFile.seek(offset - 1);
+            // skip the end of the line
+            mRandomAccessFile.readLine();
+        }
+    }
+
     @Override
     public int read() throws IOException {
         // this one should never be called
@@ -64,4 +76,9 @@ public class NeverEndingFileInputStream extends InputStream {
         mSleep = 250;
         return res;
     }
+
+    @Override
+    public void close() throws IOException {
+        mRandomAccessFile.close();
+    }
 }
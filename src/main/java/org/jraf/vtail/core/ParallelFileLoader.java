@@ -0,0 +1,303 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright (C) 2010 Benoit 'BoD' Lubek (BoD@JRAF.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.vtail.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.jraf.vtail.misc.Config;
+import org.jraf.vtail.misc.Log;
+import org.jraf.vtail.parser.LineFields;
+import org.jraf.vtail.parser.LineFormat;
+import org.jraf.vtail.parser.LineParser;
+import org.jraf.vtail.store.LineStore;
+
+/**
+ * Loads the existing content of a file into a {@link LineStore} using several threads.<br/>
+ * The file is split in chunks at line boundaries. Each chunk is decoded, filtered and parsed by a thread of a pool, and the chunks are then
+ * added to the store in order. Only a few chunks are decoded ahead of the one being added, so that the memory used doesn't depend on the
+ * size of the file.<br/>
+ * If the store keeps a maximum number of lines, only the lines at the end of the file that fit are read (the lines which will be ignored
+ * or collapsed are counted too, so the store may end up with fewer lines).
+ */
+public class ParallelFileLoader {
+    private static final String TAG = ParallelFileLoader.class.getName();
+
+    private static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+
+    /**
+     * How many chunks can be decoded ahead of the one being added to the store, for each thread.
+     */
+    private static final int CHUNKS_PER_THREAD = 2;
+
+    public interface LineFilter {
+        boolean isIgnored(String line);
+    }
+
+    /**
+     * Told about each chunk, once it has been added to the store.
+     */
+    public interface ChunkListener {
+        /**
+         * @param ignoredCount How many of the {@code readCount} lines were ignored.
+         */
+        void onChunkLoaded(int readCount, int ignoredCount);
+    }
+
+    private final File mFile;
+    private final String mCharset;
+    private final LineFormat mLineFormat;
+    private final LineFilter mLineFilter;
+    private final int mThreadCount;
+    private final int mChunkSize;
+
+    public ParallelFileLoader(final File file, final String charset, final LineFormat lineFormat, final LineFilter lineFilter, final int threadCount) {
+        this(file, charset, lineFormat, lineFilter, threadCount, DEFAULT_CHUNK_SIZE);
+    }
+
+    ParallelFileLoader(final File file, final String charset, final LineFormat lineFormat, final LineFilter lineFilter, final int threadCount,
+            final int chunkSize) {
+        mFile = file;
+        mCharset = charset;
+        mLineFormat = lineFormat;
+        mLineFilter = lineFilter;
+        mThreadCount = Math.max(1, threadCount);
+        mChunkSize = chunkSize;
+    }
+
+    /**
+     * A decoded and parsed chunk.
+     */
+    private static class Chunk {
+        final ArrayList<String> lines = new ArrayList<String>();
+        final ArrayList<LineFields> fields = new ArrayList<LineFields>();
+        int readCount;
+    }
+
+    /**
+     * Loads all the complete lines currently in the file.
+     * 
+     * @return the offset of the end of the last complete line, where following the file should start.
+     */
+    public long load(final LineStore lineStore) throws IOException {
+        return load(lineStore, null);
+    }
+
+    /**
+     * Loads all the complete lines currently in the file.
+     * 
+     * @param chunkListener Told about each chunk loaded, or {@code null}.
+     * @return the offset of the end of the last complete line, where following the file should start.
+     */
+    public long load(final LineStore lineStore, final ChunkListener chunkListener) throws IOException {
+        final long startTime = System.currentTimeMillis();
+        final List<long[]> bounds = split(lineStore.getMaxLines());
+        final ExecutorService executorService = Executors.newFixedThreadPool(mThreadCount, new ThreadFactory() {
+            private int mCount;
+
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, "vtail-loader-" + mCount++);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        try {
+            final LinkedList<Future<Chunk>> futures = new LinkedList<Future<Chunk>>();
+            int nextChunk = 0;
+            // concatenate in order, as soon as each chunk is ready
+            while (nextChunk < bounds.size() || !futures.isEmpty()) {
+                while (nextChunk < bounds.size() && futures.size() < mThreadCount * CHUNKS_PER_THREAD) {
+                    final long[] bound = bounds.get(nextChunk++);
+                    futures.add(executorService.submit(new Callable<Chunk>() {
+                        @Override
+                        public Chunk call() throws IOException {
+                            return loadChunk(bound[0], bound[1]);
+                        }
+                    }));
+                }
+                final Chunk chunk = getChunk(futures.removeFirst());
+                synchronized (lineStore) {
+                    for (int i = 0, len = chunk.lines.size(); i < len; i++) {
+                        lineStore.add(chunk.lines.get(i), chunk.fields.get(i));
+                    }
+                }
+                if (chunkListener != null) {
+                    chunkListener.onChunkLoaded(chunk.readCount, chunk.readCount - chunk.lines.size());
+                }
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+        if (Config.LOGD) Log.d(TAG, "Loaded " + bounds.size() + " chunks in " + (System.currentTimeMillis() - startTime) + "ms");
+        return bounds.isEmpty() ? 0 : bounds.get(bounds.size() - 1)[1];
+    }
+
+    private static Chunk getChunk(final Future<Chunk> future) throws IOException {
+        try {
+            return future.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while loading");
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * @param maxLines How many lines to read at most, from the end, or 0 to read them all.
+     * @return the start (inclusive) and end (exclusive) offsets of each chunk. Each chunk ends after a newline.
+     */
+    private List<long[]> split(final int maxLines) throws IOException {
+        final ArrayList<long[]> res = new ArrayList<long[]>();
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(mFile, "r");
+        try {
+            // the last line may be incomplete: it will be read when following the file
+            final long length = lastLineEnd(randomAccessFile);
+            long start = maxLines > 0 ? tailStart(randomAccessFile, length, maxLines) : 0;
+            while (start < length) {
+                final long end = Math.min(nextLineStart(randomAccessFile, Math.min(start + mChunkSize, length) - 1), length);
+                res.add(new long[] { start, end });
+                start = end;
+            }
+        } finally {
+            randomAccessFile.close();
+        }
+        return res;
+    }
+
+    /**
+     * @return the offset after the last newline of the file, or 0 if there is none.
+     */
+    private static long lastLineEnd(final RandomAccessFile randomAccessFile) throws IOException {
+        final byte[] buffer = new byte[8192];
+        long position = randomAccessFile.length();
+        while (position > 0) {
+            final int len = (int) Math.min(buffer.length, position);
+            position -= len;
+            randomAccessFile.seek(position);
+            randomAccessFile.readFully(buffer, 0, len);
+            for (int i = len - 1; i >= 0; i--) {
+                if (buffer[i] == '\n') {
+                    return position + i + 1;
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return the offset of the start of the {@code lineCount}th line before {@code end}, or 0 if there are not that many lines.
+     */
+    private static long tailStart(final RandomAccessFile randomAccessFile, final long end, final int lineCount) throws IOException {
+        final byte[] buffer = new byte[8192];
+        long position = end;
+        // the newline ending the last line doesn't count
+        int newlineCount = -1;
+        while (position > 0) {
+            final int len = (int) Math.min(buffer.length, position);
+            position -= len;
+            randomAccessFile.seek(position);
+            randomAccessFile.readFully(buffer, 0, len);
+            for (int i = len - 1; i >= 0; i--) {
+                if (buffer[i] == '\n' && ++newlineCount == lineCount) {
+                    return position + i + 1;
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return the offset after the first newline at or after {@code offset}, or -1 if there is none.
+     */
+    private static long nextLineStart(final RandomAccessFile randomAccessFile, final long offset) throws IOException {
+        randomAccessFile.seek(offset);
+        final byte[] buffer = new byte[8192];
+        long position = offset;
+        int read;
+        while ((read = randomAccessFile.read(buffer)) != -1) {
+            for (int i = 0; i < read; i++) {
+                if (buffer[i] == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return -1;
+    }
+
+    private Chunk loadChunk(final long start, final long end) throws IOException {
+        final byte[] bytes = new byte[(int) (end - start)];
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(mFile, "r");
+        try {
+            randomAccessFile.seek(start);
+            randomAccessFile.readFully(bytes);
+        } finally {
+            randomAccessFile.close();
+        }
+
+        final Chunk res = new Chunk();
+        final LineParser lineParser = mLineFormat.newParser();
+        int lineStart = 0;
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] != '\n') {
+                continue;
+            }
+            int lineEnd = i;
+            if (lineEnd > lineStart && bytes[lineEnd - 1] == '\r') {
+                lineEnd--;
+            }
+            if (lineEnd > lineStart) {
+                final String line = new String(bytes, lineStart, lineEnd - lineStart, mCharset);
+                res.readCount++;
+                if (!mLineFilter.isIgnored(line)) {
+                    final LineFields fields = new LineFields();
+                    if (lineParser != null) {
+                        lineParser.parse(line, fields);
+                    }
+                    res.lines.add(line);
+                    res.fields.add(fields);
+                }
+            }
+            lineStart = i + 1;
+        }
+        return res;
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright (C) 2010 Benoit 'BoD' Lubek (BoD@JRAF.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.vtail.core;
+
+import java.lang.management.ManagementFactory;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.ObjectName;
+
+import org.jraf.vtail.misc.Histogram;
+import org.jraf.vtail.misc.Log;
+import org.jraf.vtail.store.LineStore;
+
+/**
+ * Counters and distributions of what happens in the pipeline: lines read, ignored and rendered, size of the batches drained from the line
+ * queue, time spent printing each line.<br/>
+ * Only created with --statusbar or --jmx: otherwise the pipeline and the window don't measure anything.
+ */
+public class PipelineMetrics implements PipelineMetricsMBean {
+    private static final String TAG = PipelineMetrics.class.getName();
+
+    private static final long SAMPLE_PERIOD_MS = 1000;
+    private static final AtomicInteger sId = new AtomicInteger();
+
+    private final LineQueue mLineQueue;
+    private final LineStore mLineStore;
+    private final AtomicLong mReadCount = new AtomicLong();
+    private final AtomicLong mIgnoredCount = new AtomicLong();
+    private final AtomicLong mRenderedCount = new AtomicLong();
+    private final Histogram mBatchSizes = new Histogram();
+    private final Histogram mPrintLineNanos = new Histogram();
+
+    // per second, updated by sample()
+    private volatile long mReadRate;
+    private volatile long mIgnoredRate;
+    private volatile long mRenderedRate;
+    // also updated by sample(), so that the status bar never waits on the line store lock from the EDT
+    private volatile int mLineStoreSize;
+    private volatile long mLineStoreBytes;
+    private long mLastSampleTime;
+    private long mLastReadCount;
+    private long mLastIgnoredCount;
+    private long mLastRenderedCount;
+    private Timer mTimer;
+    private ObjectName mObjectName;
+
+    public PipelineMetrics(final LineQueue lineQueue, final LineStore lineStore) {
+        mLineQueue = lineQueue;
+        mLineStore = lineStore;
+    }
+
+    /**
+     * Starts computing the rates, every second.
+     */
+    public synchronized void start() {
+        mLastSampleTime = System.nanoTime();
+        mTimer = new Timer("vtail-metrics", true);
+        mTimer.scheduleAtFixedRate(new TimerTask() {
+            @Override
+            public void run() {
+                sample();
+            }
+        }, SAMPLE_PERIOD_MS, SAMPLE_PERIOD_MS);
+    }
+
+    /**
+     * Makes the metrics visible in jconsole.
+     */
+    public synchronized void registerMBean() {
+        try {
+            final ObjectName objectName = new ObjectName("org.jraf.vtail:type=Pipeline,id=" + sId.incrementAndGet());
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            mObjectName = objectName;
+        } catch (final Exception e) {
+            Log.w(TAG, "Could not register the metrics MBean", e);
+        }
+    }
+
+    /**
+     * Stops computing the rates, and unregisters the MBean, so that nothing keeps the pipeline once its window is closed.
+     */
+    public synchronized void stop() {
+        if (mTimer != null) {
+            mTimer.cancel();
+            mTimer = null;
+        }
+        if (mObjectName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(mObjectName);
+            } catch (final Exception e) {
+                Log.w(TAG, "Could not unregister the metrics MBean", e);
+            }
+            mObjectName = null;
+        }
+    }
+
+    synchronized void sample() {
+        final long now = System.nanoTime();
+        final double seconds = (now - mLastSampleTime) / (double) TimeUnit.SECONDS.toNanos(1);
+        final long readCount = mReadCount.get();
+        final long ignoredCount = mIgnoredCount.get();
+        final long renderedCount = mRenderedCount.get();
+        mReadRate = Math.round((readCount - mLastReadCount) / seconds);
+        mIgnoredRate = Math.round((ignoredCount - mLastIgnoredCount) / seconds);
+        mRenderedRate = Math.round((renderedCount - mLastRenderedCount) / seconds);
+        mLastSampleTime = now;
+        mLastReadCount = readCount;
+        mLastIgnoredCount = ignoredCount;
+        mLastRenderedCount = renderedCount;
+        mLineStoreSize = mLineStore.getLineCount();
+        mLineStoreBytes = mLineStore.getMemoryEstimate();
+    }
+
+    public void onLineRead() {
+        mReadCount.incrementAndGet();
+    }
+
+    public void onLineIgnored() {
+        mIgnoredCount.incrementAndGet();
+    }
+
+    /**
+     * Lines have been read by the initial load of the file, {@code ignoredCount} of them being ignored.
+     */
+    public void onLinesLoaded(final int readCount, final int ignoredCount) {
+        mReadCount.addAndGet(readCount);
+        mIgnoredCount.addAndGet(ignoredCount);
+    }
+
+    /**
+     * A batch of lines has been drained from the line queue.
+     */
+    public void onBatch(final int size) {
+        mBatchSizes.record(size);
+    }
+
+    public void onLinePrinted(final long nanos) {
+        mRenderedCount.incrementAndGet();
+        mPrintLineNanos.record(nanos);
+    }
+
+    /**
+     * @return a one line summary, for the status bar.
+     */
+    public String getSummary() {
+        return "Read: " + mReadRate + "/s - Ignored: " + mIgnoredRate + "/s - Rendered: " + mRenderedRate + "/s - Queue: " + getQueueDepth()
+                + " - Batch: " + getBatchSizeMedian() + " (p99 " + getBatchSizeP99() + ") - Print: " + getPrintLineMicrosMedian() + "us (p99 "
+                + getPrintLineMicrosP99() + "us) - Store: " + getLineStoreSize() + " lines, " + getLineStoreBytes() / (1024 * 1024) + " MB";
+    }
+
+    @Override
+    public long getLinesRead() {
+        return mReadCount.get();
+    }
+
+    @Override
+    public long getLinesIgnored() {
+        return mIgnoredCount.get();
+    }
+
+    @Override
+    public long getLinesRendered() {
+        return mRenderedCount.get();
+    }
+
+    @Override
+    public long getLinesReadPerSecond() {
+        return mReadRate;
+    }
+
+    @Override
+    public long getLinesIgnoredPerSecond() {
+        return mIgnoredRate;
+    }
+
+    @Override
+    public long getLinesRenderedPerSecond() {
+        return mRenderedRate;
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return mLineQueue.size();
+    }
+
+    @Override
+    public long getBatchSizeMedian() {
+        return mBatchSizes.getPercentile(50);
+    }
+
+    @Override
+    public long getBatchSizeP99() {
+        return mBatchSizes.getPercentile(99);
+    }
+
+    @Override
+    public long getPrintLineMicrosMedian() {
+        return TimeUnit.NANOSECONDS.toMicros(mPrintLineNanos.getPercentile(50));
+    }
+
+    @Override
+    public long getPrintLineMicrosP99() {
+        return TimeUnit.NANOSECONDS.toMicros(mPrintLineNanos.getPercentile(99));
+    }
+
+    @Override
+    public int getLineStoreSize() {
+        return mLineStoreSize;
+    }
+
+    @Override
+    public long getLineStoreBytes() {
+        return mLineStoreBytes;
+    }
+
+    @Override
+    public void resetHistograms() {
+        mBatchSizes.reset();
+        mPrintLineNanos.reset();
+    }
+}
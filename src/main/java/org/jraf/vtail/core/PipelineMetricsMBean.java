@@ -0,0 +1,61 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright (C) 2010 Benoit 'BoD' Lubek (BoD@JRAF.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.vtail.core;
+
+/**
+ * The pipeline metrics, as seen in jconsole (see --jmx).
+ */
+public interface PipelineMetricsMBean {
+    long getLinesRead();
+
+    long getLinesIgnored();
+
+    long getLinesRendered();
+
+    long getLinesReadPerSecond();
+
+    long getLinesIgnoredPerSecond();
+
+    long getLinesRenderedPerSecond();
+
+    int getQueueDepth();
+
+    long getBatchSizeMedian();
+
+    long getBatchSizeP99();
+
+    long getPrintLineMicrosMedian();
+
+    long getPrintLineMicrosP99();
+
+    int getLineStoreSize();
+
+    long getLineStoreBytes();
+
+    /**
+     * Forgets the batch size and print time distributions.
+     */
+    void resetHistograms();
+}
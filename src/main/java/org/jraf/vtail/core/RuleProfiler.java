@@ -0,0 +1,148 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright (C) 2010 Benoit 'BoD' Lubek (BoD@JRAF.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.vtail.core;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import org.jraf.vtail.arguments.Arguments;
+import org.jraf.vtail.arguments.Highlight;
+
+/**
+ * How many lines each --ignore and --highlight rule was evaluated against, how many it matched, and how much time it took (see
+ * --profile-rules).<br/>
+ * Lines are checked against the ignore rules in order, until one matches: putting the rules which match most first saves time.
+ */
+public class RuleProfiler {
+    private static class RuleStats {
+        private final String mDescription;
+        private final AtomicLong mEvaluatedCount = new AtomicLong();
+        private final AtomicLong mHitCount = new AtomicLong();
+        private final AtomicLong mNanos = new AtomicLong();
+
+        private RuleStats(final String description) {
+            mDescription = description;
+        }
+
+        private void record(final boolean hit, final long nanos) {
+            mEvaluatedCount.incrementAndGet();
+            if (hit) {
+                mHitCount.incrementAndGet();
+            }
+            mNanos.addAndGet(nanos);
+        }
+    }
+
+    private final List<Pattern> mIgnoreList;
+    private final RuleStats[] mIgnoreStats;
+    private final RuleStats[] mHighlightStats;
+
+    public RuleProfiler(final Arguments arguments) {
+        mIgnoreList = arguments.ignoreList == null ? Collections.<Pattern> emptyList() : arguments.ignoreList;
+        mIgnoreStats = new RuleStats[mIgnoreList.size()];
+        for (int i = 0; i < mIgnoreStats.length; i++) {
+            mIgnoreStats[i] = new RuleStats("-i " + mIgnoreList.get(i).pattern());
+        }
+        final List<Highlight> highlightList = arguments.highlightList == null ? Collections.<Highlight> emptyList() : arguments.highlightList;
+        mHighlightStats = new RuleStats[highlightList.size()];
+        for (int i = 0; i < mHighlightStats.length; i++) {
+            mHighlightStats[i] = new RuleStats("-hl " + highlightList.get(i).pattern.pattern());
+        }
+    }
+
+    /**
+     * Same as {@link org.jraf.vtail.misc.MiscUtil#isIgnored(List, String)}, measuring each rule.
+     */
+    public boolean isIgnored(final String line) {
+        for (int i = 0; i < mIgnoreStats.length; i++) {
+            final long startTime = System.nanoTime();
+            final boolean matches = mIgnoreList.get(i).matcher(line).matches();
+            mIgnoreStats[i].record(matches, System.nanoTime() - startTime);
+            if (matches) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param index The index of the rule in the --highlight list.
+     * @param nanos The time spent matching the rule, and applying its style if it matched.
+     */
+    public void onHighlightEvaluated(final int index, final boolean hit, final long nanos) {
+        mHighlightStats[index].record(hit, nanos);
+    }
+
+    /**
+     * @return a table of the rules, the most expensive first.
+     */
+    public String getReport() {
+        final List<RuleStats> allStats = new ArrayList<RuleStats>(mIgnoreStats.length + mHighlightStats.length);
+        allStats.addAll(Arrays.asList(mIgnoreStats));
+        allStats.addAll(Arrays.asList(mHighlightStats));
+        Collections.sort(allStats, new Comparator<RuleStats>() {
+            @Override
+            public int compare(final RuleStats lhs, final RuleStats rhs) {
+                final long lhsNanos = lhs.mNanos.get();
+                final long rhsNanos = rhs.mNanos.get();
+                return lhsNanos < rhsNanos ? 1 : lhsNanos == rhsNanos ? 0 : -1;
+            }
+        });
+        long totalNanos = 0;
+        for (final RuleStats stats : allStats) {
+            totalNanos += stats.mNanos.get();
+        }
+
+        final StringBuilder res = new StringBuilder();
+        res.append(String.format("%10s %6s %12s %12s %8s  %s%n", "time (ms)", "share", "evaluated", "hits", "ns/line", "rule"));
+        for (final RuleStats stats : allStats) {
+            final long nanos = stats.mNanos.get();
+            final long evaluatedCount = stats.mEvaluatedCount.get();
+            res.append(String.format("%10d %5.1f%% %12d %12d %8d  %s%n", TimeUnit.NANOSECONDS.toMillis(nanos), totalNanos == 0 ? 0d : 100d * nanos
+                    / totalNanos, evaluatedCount, stats.mHitCount.get(), evaluatedCount == 0 ? 0 : nanos / evaluatedCount, stats.mDescription));
+        }
+        return res.toString();
+    }
+
+    /**
+     * Prints the report on the given stream when the VM exits.
+     */
+    public void printReportOnExit(final PrintStream out) {
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+            @Override
+            public void run() {
+                out.println("Rule profile:");
+                out.print(getReport());
+            }
+        }));
+    }
+}
@@ -0,0 +1,334 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright (C) 2010 Benoit 'BoD' Lubek (BoD@JRAF.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.vtail.core;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+
+import javax.swing.text.AttributeSet;
+import javax.swing.text.StyleConstants;
+
+import org.jraf.vtail.arguments.Arguments;
+import org.jraf.vtail.arguments.Highlight;
+import org.jraf.vtail.arguments.LevelHighlight;
+import org.jraf.vtail.arguments.OverloadPolicy;
+import org.jraf.vtail.arguments.TagHighlight;
+import org.jraf.vtail.misc.Config;
+import org.jraf.vtail.misc.Log;
+import org.jraf.vtail.misc.MiscUtil;
+import org.jraf.vtail.parser.LineFields;
+import org.jraf.vtail.parser.LineParser;
+import org.jraf.vtail.parser.LogLevel;
+import org.jraf.vtail.source.Source;
+import org.jraf.vtail.source.SourceScheduler;
+import org.jraf.vtail.store.Dictionary;
+
+/**
+ * Displays the lines in a terminal instead of a window: no window, toolkit or event dispatch thread is ever created.<br/>
+ * The highlights are the same as in the window: their styles are translated into ANSI escape sequences. The styles are parsed into Swing
+ * attribute sets with AWT colors by the argument converters, so those few classes are still loaded, but they are only read once, in the
+ * constructor. The lines of each tick are written with a single write.<br/>
+ * With the {@link OverloadPolicy#LATEST latest} overload policy, only the --latest last lines of each tick are written, after a line
+ * telling how many were not.<br/>
+ * Since the lines go to stdout, the logs and the rule profile go to stderr.
+ */
+public class TtyRenderer {
+    private static final String TAG = TtyRenderer.class.getName();
+
+    private static final long TICK_MS = 100;
+
+    private static final String CSI = "\033[";
+
+    private static final byte BOLD = 1;
+    private static final byte ITALIC = 2;
+    private static final byte UNDERLINE = 4;
+
+    private static final int NO_COLOR = -1;
+
+    /**
+     * A highlight style, as what the terminal needs.
+     */
+    private static class TtyStyle {
+        /**
+         * RGB, or {@link #NO_COLOR}.
+         */
+        final int foreground;
+        final int background;
+        final byte attributes;
+
+        TtyStyle(final AttributeSet style) {
+            foreground = toRgb((Color) style.getAttribute(StyleConstants.Foreground));
+            background = toRgb((Color) style.getAttribute(StyleConstants.Background));
+            byte attributes = 0;
+            if (Boolean.TRUE.equals(style.getAttribute(StyleConstants.Bold))) {
+                attributes |= BOLD;
+            }
+            if (Boolean.TRUE.equals(style.getAttribute(StyleConstants.Italic))) {
+                attributes |= ITALIC;
+            }
+            if (Boolean.TRUE.equals(style.getAttribute(StyleConstants.Underline))) {
+                attributes |= UNDERLINE;
+            }
+            this.attributes = attributes;
+        }
+
+        private static int toRgb(final Color color) {
+            return color == null ? NO_COLOR : color.getRGB() & 0xFFFFFF;
+        }
+    }
+
+    private final Arguments mArguments;
+    private final OutputStream mOut;
+    private final String mCharset;
+    private final LineQueue mLineQueue;
+    private final SourceScheduler mSourceScheduler;
+    private final LineParser mLineParser;
+    private final LineFields mLineFields = new LineFields();
+    // only holds the highlighted tags
+    private final Dictionary mTagDictionary = new Dictionary();
+    private final int[] mTagHighlightIds;
+    private final RuleProfiler mRuleProfiler;
+
+    // same order as the highlights in the arguments
+    private final TtyStyle[] mLevelStyles;
+    private final TtyStyle[] mTagStyles;
+    private final TtyStyle[] mHighlightStyles;
+
+    // style of each character of the line being rendered
+    private int[] mForegrounds = new int[256];
+    private int[] mBackgrounds = new int[256];
+    private byte[] mAttributes = new byte[256];
+
+    public TtyRenderer(final Arguments arguments, final OutputStream out, final String charset) {
+        mArguments = arguments;
+        mOut = out;
+        mCharset = charset;
+        mLineQueue = new LineQueue(arguments.overloadPolicy, arguments.overloadCapacity, arguments.sampleRate);
+        // parsing is only needed for the level and tag highlights
+        mLineParser = arguments.levelHighlightList == null && arguments.tagHighlightList == null ? null : arguments.format.newParser();
+        mTagHighlightIds = new int[arguments.tagHighlightList == null ? 0 : arguments.tagHighlightList.size()];
+        for (int i = 0; i < mTagHighlightIds.length; i++) {
+            mTagHighlightIds[i] = mTagDictionary.getOrCreateId(arguments.tagHighlightList.get(i).tag);
+        }
+        mLevelStyles = new TtyStyle[arguments.levelHighlightList == null ? 0 : arguments.levelHighlightList.size()];
+        for (int i = 0; i < mLevelStyles.length; i++) {
+            mLevelStyles[i] = new TtyStyle(arguments.levelHighlightList.get(i).style);
+        }
+        mTagStyles = new TtyStyle[arguments.tagHighlightList == null ? 0 : arguments.tagHighlightList.size()];
+        for (int i = 0; i < mTagStyles.length; i++) {
+            mTagStyles[i] = new TtyStyle(arguments.tagHighlightList.get(i).style);
+        }
+        mHighlightStyles = new TtyStyle[arguments.highlightList == null ? 0 : arguments.highlightList.size()];
+        for (int i = 0; i < mHighlightStyles.length; i++) {
+            mHighlightStyles[i] = new TtyStyle(arguments.highlightList.get(i).style);
+        }
+        if (arguments.profileRules) {
+            mRuleProfiler = new RuleProfiler(arguments);
+            mRuleProfiler.printReportOnExit(System.err);
+        } else {
+            mRuleProfiler = null;
+        }
+        mSourceScheduler = new SourceScheduler(new Source.LineSink() {
+            @Override
+            public void onLine(final Source source, final String line) {
+                if (line.length() == 0 || isIgnored(line)) {
+                    return;
+                }
+                mLineQueue.put(line);
+            }
+        });
+    }
+
+    private boolean isIgnored(final String line) {
+        if (mRuleProfiler != null) {
+            return mRuleProfiler.isIgnored(line);
+        }
+        return MiscUtil.isIgnored(mArguments.ignoreList, line);
+    }
+
+    /**
+     * Reads the given source and displays its lines, until the end of all the sources.
+     */
+    public void run(final Source source) throws IOException {
+        mSourceScheduler.start(source);
+        final List<String> lines = new ArrayList<String>(1000);
+        final StringBuilder output = new StringBuilder(64 * 1024);
+        while (true) {
+            // check before draining, so that no line is lost
+            final boolean ended = mSourceScheduler.getSourceCount() == 0;
+            lines.clear();
+            mLineQueue.drainTo(lines);
+            if (!lines.isEmpty()) {
+                output.setLength(0);
+                appendLines(output, lines);
+                mOut.write(output.toString().getBytes(mCharset));
+                mOut.flush();
+            }
+            if (ended) {
+                if (Config.LOGD) Log.d(TAG, "End of all sources");
+                return;
+            }
+            MiscUtil.sleep(TICK_MS);
+        }
+    }
+
+    /**
+     * Appends the lines of a tick, applying the {@link OverloadPolicy#LATEST latest} overload policy.
+     */
+    void appendLines(final StringBuilder output, final List<String> lines) {
+        int from = 0;
+        if (mArguments.overloadPolicy == OverloadPolicy.LATEST && lines.size() > mArguments.latest) {
+            from = lines.size() - mArguments.latest;
+            output.append("[not displayed: ").append(from).append("]\n");
+        }
+        for (int i = from, size = lines.size(); i < size; i++) {
+            appendLine(output, lines.get(i));
+        }
+    }
+
+    /**
+     * Appends the given line, with its highlights as ANSI escape sequences, and a newline.
+     */
+    void appendLine(final StringBuilder output, final String line) {
+        final int len = line.length();
+        if (mAttributes.length < len) {
+            final int capacity = Math.max(len, mAttributes.length * 2);
+            mForegrounds = new int[capacity];
+            mBackgrounds = new int[capacity];
+            mAttributes = new byte[capacity];
+        }
+        Arrays.fill(mForegrounds, 0, len, NO_COLOR);
+        Arrays.fill(mBackgrounds, 0, len, NO_COLOR);
+        Arrays.fill(mAttributes, 0, len, (byte) 0);
+
+        // same order as in the window: the order of the command line
+        boolean styled = false;
+        byte level = LogLevel.UNKNOWN;
+        int tagId = Dictionary.NO_ID;
+        if (mLineParser != null) {
+            mLineFields.reset();
+            mLineParser.parse(line, mLineFields);
+            level = mLineFields.level;
+            // only the tags to highlight are in the dictionary
+            tagId = mTagDictionary.getId(mLineFields.tag);
+        }
+        int order = Integer.MIN_VALUE;
+        for (int i = 0; i < mHighlightStyles.length; i++) {
+            final long startTime = mRuleProfiler == null ? 0 : System.nanoTime();
+            final Highlight highlight = mArguments.highlightList.get(i);
+            styled |= applyLineStyles(len, level, tagId, order, highlight.order);
+            order = highlight.order;
+            final Matcher matcher = highlight.pattern.matcher(line);
+            boolean hit = false;
+            while (matcher.find()) {
+                applyStyle(mHighlightStyles[i], matcher.start(), matcher.end());
+                hit = true;
+            }
+            styled |= hit;
+            if (mRuleProfiler != null) {
+                mRuleProfiler.onHighlightEvaluated(i, hit, System.nanoTime() - startTime);
+            }
+        }
+        styled |= applyLineStyles(len, level, tagId, order, Integer.MAX_VALUE);
+
+        if (!styled) {
+            output.append(line).append('\n');
+            return;
+        }
+        for (int i = 0; i < len; i++) {
+            if (i == 0 || mForegrounds[i] != mForegrounds[i - 1] || mBackgrounds[i] != mBackgrounds[i - 1] || mAttributes[i] != mAttributes[i - 1]) {
+                appendSgr(output, mForegrounds[i], mBackgrounds[i], mAttributes[i]);
+            }
+            output.append(line.charAt(i));
+        }
+        output.append(CSI).append("0m\n");
+    }
+
+    /**
+     * Applies the level and tag highlights whose order is in [{@code fromOrder}, {@code toOrder}[.
+     * 
+     * @return {@code true} if one was applied.
+     */
+    private boolean applyLineStyles(final int len, final byte level, final int tagId, final int fromOrder, final int toOrder) {
+        boolean res = false;
+        for (int i = 0; i < mLevelStyles.length; i++) {
+            final LevelHighlight levelHighlight = mArguments.levelHighlightList.get(i);
+            if (levelHighlight.level == level && levelHighlight.order >= fromOrder && levelHighlight.order < toOrder) {
+                applyStyle(mLevelStyles[i], 0, len);
+                res = true;
+            }
+        }
+        if (tagId != Dictionary.NO_ID) {
+            for (int i = 0; i < mTagStyles.length; i++) {
+                final TagHighlight tagHighlight = mArguments.tagHighlightList.get(i);
+                if (mTagHighlightIds[i] == tagId && tagHighlight.order >= fromOrder && tagHighlight.order < toOrder) {
+                    applyStyle(mTagStyles[i], 0, len);
+                    res = true;
+                }
+            }
+        }
+        return res;
+    }
+
+    private void applyStyle(final TtyStyle style, final int start, final int end) {
+        for (int i = start; i < end; i++) {
+            if (style.foreground != NO_COLOR) {
+                mForegrounds[i] = style.foreground;
+            }
+            if (style.background != NO_COLOR) {
+                mBackgrounds[i] = style.background;
+            }
+            mAttributes[i] |= style.attributes;
+        }
+    }
+
+    /**
+     * Appends a "Select Graphic Rendition" sequence, with 24 bit colors.
+     */
+    private static void appendSgr(final StringBuilder output, final int foreground, final int background, final byte attributes) {
+        output.append(CSI).append('0');
+        if ((attributes & BOLD) != 0) {
+            output.append(";1");
+        }
+        if ((attributes & ITALIC) != 0) {
+            output.append(";3");
+        }
+        if ((attributes & UNDERLINE) != 0) {
+            output.append(";4");
+        }
+        if (foreground != NO_COLOR) {
+            output.append(";38;2;").append(foreground >> 16).append(';').append(foreground >> 8 & 0xFF).append(';').append(foreground & 0xFF);
+        }
+        if (background != NO_COLOR) {
+            output.append(";48;2;").append(background >> 16).append(';').append(background >> 8 & 0xFF).append(';').append(background & 0xFF);
+        }
+        output.append('m');
+    }
+}
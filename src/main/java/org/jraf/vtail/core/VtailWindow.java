@@ -26,23 +26,27 @@ package org.jraf.vtail.core;
 
 import java.awt.BorderLayout;
 import java.awt.Color;
+import java.awt.Component;
 import java.awt.Font;
 import java.awt.GridLayout;
+import java.awt.Toolkit;
 import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.awt.event.AdjustmentEvent;
 import java.awt.event.AdjustmentListener;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.io.BufferedReader;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.UnsupportedEncodingException;
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import javax.swing.AbstractAction;
 import javax.swing.Action;
@@ -50,70 +54,193 @@ import javax.swing.ImageIcon;
 import javax.swing.JButton;
 import javax.swing.JCheckBoxMenuItem;
 import javax.swing.JFrame;
+import javax.swing.JLabel;
+import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JPopupMenu;
 import javax.swing.JScrollBar;
 import javax.swing.JScrollPane;
+import javax.swing.JTabbedPane;
+import javax.swing.JTextArea;
 import javax.swing.JTextField;
 import javax.swing.JToggleButton;
 import javax.swing.JToolBar;
 import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 import javax.swing.UIManager;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
 import javax.swing.text.BadLocationException;
+import javax.swing.text.Element;
 import javax.swing.text.SimpleAttributeSet;
 import javax.swing.text.StyleConstants;
 import javax.swing.text.StyledDocument;
 
 import org.jraf.vtail.arguments.Arguments;
 import org.jraf.vtail.arguments.Highlight;
+import org.jraf.vtail.arguments.LevelHighlight;
+import org.jraf.vtail.arguments.OverloadPolicy;
+import org.jraf.vtail.arguments.TagHighlight;
+import org.jraf.vtail.index.IndexCache;
+import org.jraf.vtail.index.LineOffsetIndex;
+import org.jraf.vtail.index.LineOffsetIndexer;
+import org.jraf.vtail.index.PageReader;
+import org.jraf.vtail.index.TimeWindowReader;
+import org.jraf.vtail.index.TimestampIndex;
+import org.jraf.vtail.index.TimestampIndexer;
 import org.jraf.vtail.misc.Config;
 import org.jraf.vtail.misc.Log;
 import org.jraf.vtail.misc.MiscUtil;
+import org.jraf.vtail.parser.LineFields;
+import org.jraf.vtail.parser.LineFormat;
+import org.jraf.vtail.parser.LineParser;
+import org.jraf.vtail.source.AgentSource;
+import org.jraf.vtail.source.SourceScheduler;
+import org.jraf.vtail.store.ChunkedBitmap;
+import org.jraf.vtail.store.Dictionary;
+import org.jraf.vtail.store.LineStore;
+import org.jraf.vtail.ui.EdtWatchdog;
+import org.jraf.vtail.ui.FacetPanel;
+import org.jraf.vtail.ui.PagedFileView;
 import org.jraf.vtail.ui.RememberingFrame;
 import org.jraf.vtail.ui.WrapTextPane;
 
+/**
+ * A view of the lines: the text pane with its own filter, highlight and scroll state.<br/>
+ * Several views can be opened in the same frame (as tabs), over the same line store: the first one (the main view) feeds the store from the
+ * line queue, and each view only keeps the indexes of the lines matching its filter.
+ */
 public class VtailWindow {
     private static final String TAG = VtailWindow.class.getName();
 
     private static final SimpleAttributeSet DEFAULT_STYLE = new SimpleAttributeSet();
+    private static final int JUMP_LINES_BEFORE = 200;
+    private static final int JUMP_LINES_AFTER = 800;
+
+    private static final SimpleAttributeSet REPEAT_STYLE = new SimpleAttributeSet();
+    static {
+        REPEAT_STYLE.addAttribute(StyleConstants.Italic, true);
+    }
+
+    private static final AtomicInteger sOpenWindowCount = new AtomicInteger();
 
+    private final VtailWindow mMainView;
+    private final List<VtailWindow> mViews;
     private final RememberingFrame mFrame;
-    private BufferedReader mBufferedReader;
+    /**
+     * Only used by the main view, and only when there is more than one view.
+     */
+    private JTabbedPane mTabbedPane;
+    private final JPanel mContentPanel;
     private final WrapTextPane mTextPane;
     private final Arguments mArguments;
     private final JScrollPane mScrollPane;
     private final JTextField mFilterTextField;
     private final JTextField mHighlightTextField;
+    private final FacetPanel mFacetPanel;
+    private final JTextField mJumpTextField;
     private final JPanel mBottomPanel;
     private boolean mScrollingMode;
     private boolean mFilteringMode;
     private boolean mHighlightingMode;
+    private boolean mFacetingMode;
     private boolean mShowFiltering;
     private boolean mShowHighlighting;
+    private boolean mShowFacets;
+    private volatile String mJumpTime;
     private final String mTitle;
     private boolean mFirstLine = true;
+    private boolean mStartupBenchmarkDone;
+    private volatile boolean mClosed;
     private int mOldScrollbarMax;
+    private boolean mMoved;
+
+    private final LineStore mLineStore;
+    private int mLastPrintedIndex = -1;
+    private int mRepeatSuffixStart;
+    private int[] mMatchingIndexes = new int[1000];
+    private int mMatchingCount;
+    private final LinePipeline mLinePipeline;
+    private final PipelineMetrics mMetrics;
+    private Timer mStatusBarTimer;
+    private final RuleProfiler mRuleProfiler;
+    // ids of the highlighted tags in the tag dictionary of the line store (see getTagHighlightIds())
+    private int[] mTagHighlightIds;
+    private int mResolvedTagCount = -1;
+    // the lines which are not in the line store (browsed pages, time jumps) only look their tag up among the highlighted ones
+    private final Dictionary mHighlightedTagDictionary = new Dictionary();
+    private final int[] mHighlightedTagIds;
+    private final EdtWatchdog mEdtWatchdog;
+    private final LineQueue mLineQueue;
+    private final SourceScheduler mSourceScheduler;
+    private final List<AgentSource> mAgentSources;
+    private final List<String> mPendingLines = new ArrayList<String>(1000);
+    // updated by the print thread, read and reset on the EDT
+    private final AtomicLong mSkippedCount = new AtomicLong();
+    private File mFile;
+    private boolean mCompressed;
+    private String mCharset;
+    private TimestampIndex mTimestampIndex;
+    private LineOffsetIndex mLineOffsetIndex;
+    private PagedFileView mPagedFileView;
+
+    public VtailWindow(final Arguments arguments, final LinePipeline linePipeline) {
+        this(arguments, linePipeline, null);
+    }
 
-    private final List<String> mLines = Collections.synchronizedList(new ArrayList<String>(1000));
-    private int mLineCursor;
-
-    public VtailWindow(final Arguments arguments) {
+    /**
+     * @param mainView The view this one will be added next to, or {@code null} to create the main view (and its frame).
+     */
+    private VtailWindow(final Arguments arguments, final LinePipeline linePipeline, final VtailWindow mainView) {
         mArguments = arguments;
+        mLinePipeline = linePipeline;
 
-        // Set System L&F
-        try {
-            UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
-        } catch (final Exception e) {
-            Log.w(TAG, "Could not set system plaf", e);
+        if (mainView == null) {
+            // Set System L&F
+            try {
+                UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
+            } catch (final Exception e) {
+                Log.w(TAG, "Could not set system plaf", e);
+            }
         }
 
         mTitle = arguments.title;
+        if (arguments.fileList != null) {
+            mFile = arguments.fileList.get(0);
+            try {
+                mCompressed = CompressedFileInputStream.getCompression(mFile) != CompressedFileInputStream.Compression.NONE;
+            } catch (final IOException e) {
+                Log.w(TAG, "Could not read " + mFile, e);
+            }
+        }
+        mLineStore = linePipeline.getLineStore();
+        mLineQueue = linePipeline.getLineQueue();
+        mSourceScheduler = linePipeline.getSourceScheduler();
+        mMetrics = linePipeline.getMetrics();
+        mRuleProfiler = linePipeline.getRuleProfiler();
+        mHighlightedTagIds = new int[mArguments.tagHighlightList == null ? 0 : mArguments.tagHighlightList.size()];
+        for (int i = 0; i < mHighlightedTagIds.length; i++) {
+            mHighlightedTagIds[i] = mHighlightedTagDictionary.getOrCreateId(mArguments.tagHighlightList.get(i).tag);
+        }
+        mEdtWatchdog = arguments.edtWatchdog > 0 ? EdtWatchdog.start(arguments.edtWatchdog) : null;
 
-        mFrame = new RememberingFrame(VtailWindow.class);
+        if (mainView == null) {
+            mMainView = this;
+            mViews = new ArrayList<VtailWindow>();
+            mAgentSources = new ArrayList<AgentSource>();
+            mFrame = createFrame();
+        } else {
+            mMainView = mainView;
+            mViews = mainView.mViews;
+            mAgentSources = mainView.mAgentSources;
+            mFrame = mainView.mFrame;
+            mCharset = mainView.mCharset;
+            mTimestampIndex = mainView.mTimestampIndex;
+            mLineOffsetIndex = mainView.mLineOffsetIndex;
+        }
+        mContentPanel = new JPanel(new BorderLayout());
 
         mTextPane = new WrapTextPane();
         mTextPane.setFont(new Font(mArguments.fontName, Font.PLAIN, mArguments.fontSize));
@@ -121,93 +248,476 @@ public class VtailWindow {
         mTextPane.setBackground(arguments.background.color);
         mTextPane.setForeground(arguments.foreground.color);
 
-        mFrame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         mScrollPane = new JScrollPane(mTextPane);
-        mFrame.getContentPane().add(mScrollPane);
-        updateTitle();
-        mFrame.setIconImage(new ImageIcon(getClass().getResource("/icon.png")).getImage());
+        mContentPanel.add(mScrollPane);
 
         mBottomPanel = new JPanel(new GridLayout(0, 1));
-        mFrame.getContentPane().add(mBottomPanel, BorderLayout.PAGE_END);
+        mContentPanel.add(mBottomPanel, BorderLayout.PAGE_END);
 
         mFilterTextField = new JTextField();
         mHighlightTextField = new JTextField();
+        mJumpTextField = new JTextField();
+        mJumpTextField.setToolTipText("Time to jump to, e.g. 14:32:05 or 10-12 14:32 - press enter to jump");
+        mFacetPanel = new FacetPanel(mLineStore.getTagDictionary(), new FacetPanel.Listener() {
+            @Override
+            public void onFacetsChanged() {
+                filter();
+            }
+        });
 
         initScrollPaneChangeListener();
         initPopupMenu();
         initFilterListener();
         initHighlightListener();
+        initJumpListener();
         initToolBar();
+
+        addView();
+        updateTitle();
+    }
+
+    private RememberingFrame createFrame() {
+        final RememberingFrame frame = new RememberingFrame(VtailWindow.class);
+
+        // several windows can be open in the same VM (see --singleinstance): exit when the last one is closed
+        sOpenWindowCount.incrementAndGet();
+        frame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+        frame.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(final WindowEvent e) {
+                mClosed = true;
+                // the print loop doesn't drain the queue anymore: the sources waiting for room must not wait forever
+                mLineQueue.close();
+                mSourceScheduler.shutdown(1000);
+                if (mStatusBarTimer != null) {
+                    mStatusBarTimer.stop();
+                }
+                if (mMetrics != null) {
+                    mMetrics.stop();
+                }
+                if (sOpenWindowCount.decrementAndGet() == 0) {
+                    System.exit(0);
+                }
+            }
+        });
+        frame.setIconImage(new ImageIcon(getClass().getResource("/icon.png")).getImage());
+
+        if (mArguments.statusBar) {
+            final JLabel statusBar = new JLabel(" ");
+            frame.getContentPane().add(statusBar, BorderLayout.PAGE_END);
+            mStatusBarTimer = new Timer(1000, new ActionListener() {
+                @Override
+                public void actionPerformed(ActionEvent e) {
+                    statusBar.setText(mMetrics.getSummary());
+                }
+            });
+            mStatusBarTimer.start();
+        }
+        return frame;
     }
 
-    public void startReadWriteLoop(final InputStream inputStream, final String charset) throws UnsupportedEncodingException {
-        // wait a bit for the window to be shown
-        MiscUtil.sleep(500);
+    /**
+     * @return what is in the center of the frame: the only view, or the tabs.
+     */
+    private Component getFrameCenter() {
+        return ((BorderLayout) mFrame.getContentPane().getLayout()).getLayoutComponent(BorderLayout.CENTER);
+    }
 
-        mBufferedReader = new BufferedReader(new InputStreamReader(inputStream, charset));
+    /**
+     * Adds this view to the frame: directly if it is the only one, otherwise as a tab.
+     */
+    private void addView() {
+        synchronized (mViews) {
+            mViews.add(this);
+        }
+        if (mMainView == this) {
+            mFrame.getContentPane().add(mContentPanel);
+            return;
+        }
+        if (mMainView.mTabbedPane == null) {
+            // second view: put both in tabs
+            final Component current = getFrameCenter();
+            mFrame.getContentPane().remove(current);
+            final JTabbedPane tabbedPane = new JTabbedPane();
+            tabbedPane.addChangeListener(new ChangeListener() {
+                @Override
+                public void stateChanged(ChangeEvent e) {
+                    final VtailWindow selectedView = getSelectedView();
+                    if (selectedView != null) {
+                        selectedView.updateTitle();
+                    }
+                }
+            });
+            mMainView.mTabbedPane = tabbedPane;
+            tabbedPane.addTab("", current);
+            mFrame.getContentPane().add(tabbedPane);
+            getView(current).updateTitle();
+        }
+        mMainView.mTabbedPane.addTab("", mContentPanel);
+        mMainView.mTabbedPane.setSelectedComponent(mContentPanel);
+        mFrame.getContentPane().validate();
+        updateAgentFilters();
+    }
 
-        new Thread(new Runnable() {
+    /**
+     * Removes this view from the frame. The last view can't be removed.
+     */
+    private void removeView() {
+        synchronized (mViews) {
+            if (mViews.size() == 1) {
+                Toolkit.getDefaultToolkit().beep();
+                return;
+            }
+            mViews.remove(this);
+        }
+        if (mPagedFileView != null) {
+            mPagedFileView.stop();
+        }
+        final JTabbedPane tabbedPane = mMainView.mTabbedPane;
+        tabbedPane.remove(mContentPanel);
+        if (tabbedPane.getTabCount() == 1) {
+            // only one view left: no need for tabs anymore
+            final Component remaining = tabbedPane.getComponentAt(0);
+            tabbedPane.removeAll();
+            mMainView.mTabbedPane = null;
+            mFrame.getContentPane().remove(tabbedPane);
+            mFrame.getContentPane().add(remaining);
+        }
+        mFrame.getContentPane().validate();
+        final VtailWindow selectedView = getSelectedView();
+        if (selectedView != null) {
+            selectedView.updateTitle();
+        }
+        updateAgentFilters();
+    }
+
+    private VtailWindow getView(final Component contentPanel) {
+        synchronized (mViews) {
+            for (final VtailWindow view : mViews) {
+                if (view.mContentPanel == contentPanel) {
+                    return view;
+                }
+            }
+        }
+        return null;
+    }
+
+    private VtailWindow getSelectedView() {
+        final JTabbedPane tabbedPane = mMainView.mTabbedPane;
+        if (tabbedPane == null) {
+            return getView(getFrameCenter());
+        }
+        return getView(tabbedPane.getSelectedComponent());
+    }
+
+    private VtailWindow[] getViews() {
+        synchronized (mViews) {
+            return mViews.toArray(new VtailWindow[mViews.size()]);
+        }
+    }
+
+    /**
+     * Starts displaying the lines: the ones already in the line store (e.g. loaded from the file), then the ones arriving in the line queue.
+     */
+    public void start(final String charset) {
+        SwingUtilities.invokeLater(new Runnable() {
             @Override
             public void run() {
-                readLoop();
+                filter();
             }
-        }).start();
+        });
 
         new Thread(new Runnable() {
             @Override
             public void run() {
                 printLoop();
             }
-        }).start();
+        }, "vtail-print").start();
+
+        mCharset = charset;
+        if (mFile != null && !mCompressed) {
+            startIndexers();
+        }
     }
 
-    private void readLoop() {
-        while (true) {
-            String line = null;
-            try {
-                line = mBufferedReader.readLine();
-            } catch (final IOException e) {
-                // should never happen since ready == true
-                Log.e(TAG, "Cannot read next line: giving up", e);
-                // give up
-                return;
-            }
+    /**
+     * The filter will be pushed to the given agent source.
+     */
+    public void addAgentSource(final AgentSource agentSource) {
+        synchronized (mAgentSources) {
+            mAgentSources.add(agentSource);
+        }
+        agentSource.setFilter(getAgentFilterText());
+    }
 
-            if (line == null) {
-                // end of stream
-                if (Config.LOGD) Log.d(TAG, "End of stream");
-                break;
+    /**
+     * Pushes the filter to the agents, so that they only send the matching lines.
+     */
+    private void updateAgentFilters() {
+        final String filterText = getAgentFilterText();
+        synchronized (mAgentSources) {
+            for (final AgentSource agentSource : mAgentSources) {
+                agentSource.setFilter(filterText);
             }
+        }
+    }
 
-            if (line.length() == 0) {
-                continue;
-            }
+    /**
+     * @return the filter of the only view, or an empty string if there are several views (each one has its own filter so the agents must
+     *         send all the lines).
+     */
+    private String getAgentFilterText() {
+        synchronized (mViews) {
+            return mViews.size() == 1 ? mViews.get(0).getFilterText() : "";
+        }
+    }
 
-            if (!isIgnored(line)) {
-                mLines.add(line);
-            }
+    /**
+     * Lets the soak test act like a user: shows the filter with the given text, or hides it if {@code null}. Must be called from the event
+     * dispatch thread.
+     */
+    void setFilter(final String text) {
+        if (text != null) {
+            mFilterTextField.setText(text);
+        }
+        if ((text != null) != mShowFiltering) {
+            mFilterAction.putValue(Action.SELECTED_KEY, text != null);
+            mFilterAction.actionPerformed(null);
+        }
+    }
+
+    /**
+     * Same as {@link #setFilter(String)}, for the highlight.
+     */
+    void setHighlight(final String text) {
+        if (text != null) {
+            mHighlightTextField.setText(text);
+        }
+        if ((text != null) != mShowHighlighting) {
+            mHighlightAction.putValue(Action.SELECTED_KEY, text != null);
+            mHighlightAction.actionPerformed(null);
         }
     }
 
+    /**
+     * Same as the Clear button. Must be called from the event dispatch thread.
+     */
+    void clickClear() {
+        mClearAction.actionPerformed(null);
+    }
+
+    /**
+     * Lets the load harness know when the lines are printed.
+     */
+    void addDocumentListener(final DocumentListener listener) {
+        mTextPane.getDocument().addDocumentListener(listener);
+    }
+
+    /**
+     * @return the text of the filter if filtering, or an empty string.
+     */
+    private String getFilterText() {
+        return mFilteringMode ? mFilterTextField.getText() : "";
+    }
+
+    private void startIndexers() {
+        if (mArguments.format != LineFormat.NONE) {
+            mTimestampIndex = new TimestampIndex();
+        }
+        if (mArguments.browse) {
+            mLineOffsetIndex = new LineOffsetIndex();
+        }
+        if (mTimestampIndex == null && mLineOffsetIndex == null) {
+            return;
+        }
+
+        if (!mArguments.noIndexCache) {
+            // the indexers will only index what is not in the cache
+            final IndexCache indexCache = new IndexCache(mArguments.indexCache, mArguments.format + "," + mCharset);
+            indexCache.load(mFile, mLineOffsetIndex, mTimestampIndex);
+            Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    indexCache.save(mFile, mLineOffsetIndex, mTimestampIndex);
+                }
+            }));
+        }
+
+        if (mTimestampIndex != null) {
+            startIndexer(new TimestampIndexer(mFile, mCharset, mArguments.format.newParser(), mTimestampIndex));
+        }
+        if (mLineOffsetIndex != null) {
+            startIndexer(new LineOffsetIndexer(mFile, mLineOffsetIndex));
+        }
+    }
+
+    private static void startIndexer(final Runnable indexer) {
+        final Thread indexerThread = new Thread(indexer);
+        indexerThread.setDaemon(true);
+        indexerThread.setPriority(Thread.MIN_PRIORITY);
+        indexerThread.start();
+    }
+
+
     private void printLoop() {
-        while (true) {
-            boolean moved = false;
-            synchronized (mLines) {
-                for (final int len = mLines.size(); mLineCursor < len; mLineCursor++) {
-                    final String line = mLines.get(mLineCursor);
-                    if (isFilterMatch(line)) {
-                        printLine(line);
-                        moved = true;
+        long droppedCount = 0;
+        long sampledOutCount = 0;
+        while (!mClosed) {
+            mPendingLines.clear();
+            mLineQueue.drainTo(mPendingLines);
+            final int count = mPendingLines.size();
+            if (mMetrics != null && count > 0) {
+                mMetrics.onBatch(count);
+            }
+
+            final VtailWindow[] views = getViews();
+
+            // with the latest policy, only the end of the batch is displayed
+            int printFrom = 0;
+            if (mArguments.overloadPolicy == OverloadPolicy.LATEST && count > mArguments.latest) {
+                printFrom = count - mArguments.latest;
+                for (final VtailWindow view : views) {
+                    view.mSkippedCount.addAndGet(printFrom);
+                }
+            }
+
+            synchronized (mLineStore) {
+                for (int i = 0; i < count; i++) {
+                    final String line = mPendingLines.get(i);
+                    final boolean added = mLineStore.add(line);
+                    final int index = mLineStore.size() - 1;
+                    for (final VtailWindow view : views) {
+                        if (added) {
+                            view.onLineAdded(index, i >= printFrom);
+                        } else {
+                            view.onLineCollapsed(index);
+                        }
                     }
                 }
             }
-            if (moved) {
-                scrollDown();
+            synchronized (mLineStore) {
+                final int firstIndex = mLineStore.getFirstIndex();
+                for (final VtailWindow view : views) {
+                    view.onLinesEvicted(firstIndex);
+                    view.trimDocument();
+                }
+                final int rebaseDelta = mLineStore.rebase();
+                if (rebaseDelta != 0) {
+                    for (final VtailWindow view : views) {
+                        view.onIndexesRebased(rebaseDelta);
+                    }
+                }
+            }
+            for (final VtailWindow view : views) {
+                if (view.mMoved) {
+                    view.mMoved = false;
+                    view.scrollDown();
+                }
+            }
+            if (printFrom > 0 || droppedCount != mLineQueue.getDroppedCount() || sampledOutCount != mLineQueue.getSampledOutCount()) {
+                droppedCount = mLineQueue.getDroppedCount();
+                sampledOutCount = mLineQueue.getSampledOutCount();
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        for (final VtailWindow view : views) {
+                            view.updateTitle();
+                        }
+                    }
+                });
             }
             MiscUtil.sleep(250);
         }
     }
 
+    /**
+     * Must be called while synchronized on the line store.
+     */
+    private void onLineAdded(final int index, final boolean print) {
+        if (mJumpTime != null || !isFilterMatch(index)) {
+            return;
+        }
+        addMatchingIndex(index);
+        if (print) {
+            mLastPrintedIndex = index;
+            printLine(index);
+            mMoved = true;
+        }
+    }
+
+    /**
+     * The line at the given index has been read again: if it is displayed, update its repeat count.<br/>
+     * Must be called while synchronized on the line store.
+     */
+    private void onLineCollapsed(final int index) {
+        if (index == mLastPrintedIndex) {
+            printRepeatCount(mLineStore.getRepeatCount(index));
+        }
+    }
+
+    /**
+     * Forgets the matching lines which have been evicted from the line store.<br/>
+     * Must be called while synchronized on the line store.
+     */
+    private void onLinesEvicted(final int firstIndex) {
+        if (mMatchingCount == 0 || mMatchingIndexes[0] >= firstIndex) {
+            return;
+        }
+        int evictedCount = Arrays.binarySearch(mMatchingIndexes, 0, mMatchingCount, firstIndex);
+        if (evictedCount < 0) {
+            evictedCount = -evictedCount - 1;
+        }
+        mMatchingCount -= evictedCount;
+        System.arraycopy(mMatchingIndexes, evictedCount, mMatchingIndexes, 0, mMatchingCount);
+    }
+
+    /**
+     * The indexes of the lines of the store have decreased by {@code delta} (see {@link LineStore#rebase()}).<br/>
+     * Must be called while synchronized on the line store, after {@link #onLinesEvicted(int)}.
+     */
+    private void onIndexesRebased(final int delta) {
+        for (int i = 0; i < mMatchingCount; i++) {
+            mMatchingIndexes[i] -= delta;
+        }
+        mLastPrintedIndex = mLastPrintedIndex >= delta ? mLastPrintedIndex - delta : -1;
+    }
+
+    /**
+     * Removes the oldest lines of the document, so that it doesn't have more lines than --maxdisplayed.<br/>
+     * Must be called while synchronized on the line store.
+     */
+    private void trimDocument() {
+        if (mArguments.maxDisplayed <= 0) {
+            return;
+        }
+        final StyledDocument document = (StyledDocument) mTextPane.getDocument();
+        final Element root = document.getDefaultRootElement();
+        final int excess = root.getElementCount() - mArguments.maxDisplayed;
+        if (excess <= 0) {
+            return;
+        }
+        final int length = root.getElement(excess).getStartOffset();
+        try {
+            document.remove(0, length);
+            mRepeatSuffixStart -= length;
+        } catch (final BadLocationException e) {
+            // should never happen
+            Log.e(TAG, "trimDocument", e);
+        }
+    }
+
+    /**
+     * Must be called while synchronized on the line store.
+     */
+    private void addMatchingIndex(final int index) {
+        if (mMatchingCount == mMatchingIndexes.length) {
+            final int[] matchingIndexes = new int[mMatchingCount * 2];
+            System.arraycopy(mMatchingIndexes, 0, matchingIndexes, 0, mMatchingCount);
+            mMatchingIndexes = matchingIndexes;
+        }
+        mMatchingIndexes[mMatchingCount++] = index;
+    }
+
     private void scrollDown() {
         if (!mScrollingMode) {
             SwingUtilities.invokeLater(new Runnable() {
@@ -220,19 +730,44 @@ public class VtailWindow {
         }
     }
 
-    private boolean isIgnored(final String line) {
-        if (mArguments.ignoreList == null) {
-            return false;
+
+    /**
+     * Must be called while synchronized on the line store.
+     */
+    private void printLine(final int index) {
+        printLine(mLineStore.get(index), mLineStore.getLevel(index), mLineStore.getTagId(index), getTagHighlightIds(),
+                mLineStore.getRepeatCount(index));
+    }
+
+    /**
+     * @return the ids of the highlighted tags in the tag dictionary of the line store, {@link Dictionary#NO_ID} for the ones which haven't
+     *         appeared yet. They are only looked up, never created, so that tags which never appear don't show in the facets.<br/>
+     *         Must be called while synchronized on the line store.
+     */
+    private int[] getTagHighlightIds() {
+        if (mArguments.tagHighlightList == null) {
+            return null;
         }
-        for (final Pattern pattern : mArguments.ignoreList) {
-            if (pattern.matcher(line).matches()) {
-                return true;
+        final Dictionary tagDictionary = mLineStore.getTagDictionary();
+        final int tagCount = tagDictionary.size();
+        if (tagCount != mResolvedTagCount) {
+            // the dictionary is never cleared: the ids only have to be looked up again when new tags appear
+            if (mTagHighlightIds == null) {
+                mTagHighlightIds = new int[mArguments.tagHighlightList.size()];
+            }
+            for (int i = 0; i < mTagHighlightIds.length; i++) {
+                mTagHighlightIds[i] = tagDictionary.getId(mArguments.tagHighlightList.get(i).tag);
             }
+            mResolvedTagCount = tagCount;
         }
-        return false;
+        return mTagHighlightIds;
     }
 
-    private void printLine(final String line) {
+    /**
+     * @param tagHighlightIds The ids of the highlighted tags, in the dictionary {@code tagId} comes from.
+     */
+    private void printLine(final String line, final byte level, final int tagId, final int[] tagHighlightIds, final int repeatCount) {
+        final long startTime = mMetrics == null ? 0 : System.nanoTime();
         SimpleAttributeSet style = DEFAULT_STYLE;
 
         final StyledDocument document = (StyledDocument) mTextPane.getDocument();
@@ -253,23 +788,110 @@ public class VtailWindow {
                 document.setCharacterAttributes(posStart, line.length() + 1, style, true);
             }
         } else {
-            SimpleAttributeSet s = null;
-            if (mArguments.highlightList != null) {
-                for (final Highlight highlight : mArguments.highlightList) {
-                    final Matcher matcher = highlight.pattern.matcher(line);
-                    s = new SimpleAttributeSet();
-                    s.addAttributes(highlight.style);
-                    while (matcher.find()) {
-                        final int start = matcher.start();
-                        document.setCharacterAttributes(posStart + start, matcher.end() - start + 1, s, false);
-                    }
-                }
-            }
+            applyHighlights(mArguments, mRuleProfiler, document, posStart, line, level, tagId, tagHighlightIds);
+        }
+
+        mRepeatSuffixStart = document.getLength();
+        if (repeatCount > 1) {
+            printRepeatCount(repeatCount);
+        }
+
+        if (mArguments.startupBenchmark && !mStartupBenchmarkDone) {
+            mStartupBenchmarkDone = true;
+            reportStartupTime();
         }
 
         if (mFirstLine) {
             mFirstLine = false;
         }
+
+        if (mMetrics != null) {
+            mMetrics.onLinePrinted(System.nanoTime() - startTime);
+        }
+    }
+
+    private static void reportStartupTime() {
+        SwingUtilities.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                // the first line is now displayed
+                final long startupTime = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+                System.out.println("Time to first line: " + startupTime + "ms");
+                System.exit(0);
+            }
+        });
+    }
+
+    /**
+     * Applies the level, tag and regular expression highlights to a line that has just been inserted at {@code posStart}.
+     * 
+     * @param ruleProfiler Where to record the cost of the rules, or {@code null}.
+     * @param tagId The id of the tag of the line, or {@link Dictionary#NO_ID}.
+     * @param tagHighlightIds The ids of the tags of the tag highlights, in the same dictionary as {@code tagId}, or {@code null} if there
+     *            are none.
+     */
+    static void applyHighlights(final Arguments arguments, final RuleProfiler ruleProfiler, final StyledDocument document, final int posStart,
+            final String line, final byte level, final int tagId, final int[] tagHighlightIds) {
+        // the level and tag highlights are applied between the regular expression ones, in the order of the command line
+        int order = Integer.MIN_VALUE;
+        SimpleAttributeSet s = null;
+        if (arguments.highlightList != null) {
+            for (int i = 0, size = arguments.highlightList.size(); i < size; i++) {
+                final long startTime = ruleProfiler == null ? 0 : System.nanoTime();
+                final Highlight highlight = arguments.highlightList.get(i);
+                applyLineHighlights(arguments, document, posStart, line, level, tagId, tagHighlightIds, order, highlight.order);
+                order = highlight.order;
+                final Matcher matcher = highlight.pattern.matcher(line);
+                s = new SimpleAttributeSet();
+                s.addAttributes(highlight.style);
+                boolean hit = false;
+                while (matcher.find()) {
+                    final int start = matcher.start();
+                    document.setCharacterAttributes(posStart + start, matcher.end() - start + 1, s, false);
+                    hit = true;
+                }
+                if (ruleProfiler != null) {
+                    ruleProfiler.onHighlightEvaluated(i, hit, System.nanoTime() - startTime);
+                }
+            }
+        }
+        applyLineHighlights(arguments, document, posStart, line, level, tagId, tagHighlightIds, order, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Applies the level and tag highlights whose order is in [{@code fromOrder}, {@code toOrder}[.
+     */
+    private static void applyLineHighlights(final Arguments arguments, final StyledDocument document, final int posStart, final String line,
+            final byte level, final int tagId, final int[] tagHighlightIds, final int fromOrder, final int toOrder) {
+        if (arguments.levelHighlightList != null) {
+            for (final LevelHighlight levelHighlight : arguments.levelHighlightList) {
+                if (levelHighlight.level == level && levelHighlight.order >= fromOrder && levelHighlight.order < toOrder) {
+                    document.setCharacterAttributes(posStart, line.length() + 1, levelHighlight.style, false);
+                }
+            }
+        }
+        if (tagHighlightIds != null && tagId != Dictionary.NO_ID) {
+            for (int i = 0; i < tagHighlightIds.length; i++) {
+                final TagHighlight tagHighlight = arguments.tagHighlightList.get(i);
+                if (tagHighlightIds[i] == tagId && tagHighlight.order >= fromOrder && tagHighlight.order < toOrder) {
+                    document.setCharacterAttributes(posStart, line.length() + 1, tagHighlight.style, false);
+                }
+            }
+        }
+    }
+
+    /**
+     * Replaces the repeat count displayed after the last line.
+     */
+    private void printRepeatCount(final int repeatCount) {
+        final StyledDocument document = (StyledDocument) mTextPane.getDocument();
+        try {
+            document.remove(mRepeatSuffixStart, document.getLength() - mRepeatSuffixStart);
+            document.insertString(mRepeatSuffixStart, " (repeated " + repeatCount + " times)", REPEAT_STYLE);
+        } catch (final BadLocationException e) {
+            // should never happen
+            Log.e(TAG, "printRepeatCount", e);
+        }
     }
 
     public void show() {
@@ -325,7 +947,7 @@ public class VtailWindow {
 
     private void updateBackgroundColor() {
         if (Config.LOGD) Log.d(TAG, "updateBackgroundColor");
-        if (mScrollingMode || mFilteringMode) {
+        if (mScrollingMode || mFilteringMode || mFacetingMode || mJumpTime != null) {
             mTextPane.setBackground(mArguments.scrollingBackground.color);
         } else {
             mTextPane.setBackground(mArguments.background.color);
@@ -341,9 +963,48 @@ public class VtailWindow {
         if (mFilteringMode) {
             title.append(" [filtering]");
         }
+        if (mFacetingMode) {
+            title.append(" [facets]");
+        }
+        if (mJumpTime != null) {
+            title.append(" [at " + mJumpTime + "]");
+        }
+        final long droppedCount = mLineQueue.getDroppedCount();
+        if (droppedCount > 0) {
+            title.append(" [dropped: " + droppedCount + "]");
+        }
+        final long sampledOutCount = mLineQueue.getSampledOutCount();
+        if (sampledOutCount > 0) {
+            title.append(" [sampled out: " + sampledOutCount + "]");
+        }
+        final long skippedCount = mSkippedCount.get();
+        if (skippedCount > 0) {
+            title.append(" [not displayed: " + skippedCount + "]");
+        }
+        final JTabbedPane tabbedPane = mMainView.mTabbedPane;
+        if (tabbedPane != null) {
+            final int tabIndex = tabbedPane.indexOfComponent(mContentPanel);
+            if (tabIndex != -1) {
+                tabbedPane.setTitleAt(tabIndex, getViewName());
+            }
+            if (tabbedPane.getSelectedComponent() != mContentPanel) {
+                // the frame shows the title of the selected view
+                return;
+            }
+        }
         mFrame.setTitle(title.toString());
     }
 
+    private String getViewName() {
+        if (mFilteringMode) {
+            return mFilterTextField.getText().trim();
+        }
+        if (mFacetingMode) {
+            return "Facets";
+        }
+        return "All";
+    }
+
     private void initPopupMenu() {
         Action copyAction = null;
         Action selectAllAction = null;
@@ -376,6 +1037,9 @@ public class VtailWindow {
         });
 
         popup.add(wrapMenuItem);
+        if (mEdtWatchdog != null) {
+            popup.add(mEdtWatchdogAction);
+        }
 
         mTextPane.addMouseListener(new MouseAdapter() {
             @Override
@@ -431,7 +1095,7 @@ public class VtailWindow {
 
             @Override
             public void changedUpdate(DocumentEvent e) {
-                filter();
+                render();
             }
         });
     }
@@ -441,33 +1105,235 @@ public class VtailWindow {
 
         mFilteringMode = mShowFiltering && mFilterTextField.getText().trim().length() != 0;
         mHighlightingMode = mShowHighlighting && mHighlightTextField.getText().trim().length() != 0;
+        mFacetingMode = mShowFacets && mFacetPanel.isActive();
+        mJumpTime = null;
         updateBackgroundColor();
         updateTitle();
 
+        // the agents only send the matching lines from now on
+        updateAgentFilters();
+
         mTextPane.setText("");
         mFirstLine = true;
-        synchronized (mLines) {
-            for (final String line : mLines) {
-                if (mFilteringMode && isFilterMatch(line) || !mFilteringMode) {
-                    printLine(line);
+        synchronized (mLineStore) {
+            mLastPrintedIndex = -1;
+            mMatchingCount = 0;
+            final boolean[] tagMatches = getTagFilterMatches();
+            if (mFacetingMode) {
+                // only look at the lines selected by the facets
+                final ChunkedBitmap selection = mLineStore.getFacetIndex().select(mFacetPanel.getSelectedLevels(), mFacetPanel.getSelectedTagIds());
+                for (int i = selection.nextSetBit(0); i != -1; i = selection.nextSetBit(i + 1)) {
+                    if (isTextFilterMatch(i, tagMatches)) {
+                        addMatchingIndex(i);
+                    }
+                }
+            } else {
+                for (int i = mLineStore.getFirstIndex(), len = mLineStore.size(); i < len; i++) {
+                    if (isTextFilterMatch(i, tagMatches)) {
+                        addMatchingIndex(i);
+                    }
                 }
             }
+            for (int i = getFirstDisplayedMatch(); i < mMatchingCount; i++) {
+                printLine(mMatchingIndexes[i]);
+                mLastPrintedIndex = mMatchingIndexes[i];
+            }
+        }
+        scrollDown();
+    }
+
+    /**
+     * Displays the lines matching the filter again, e.g. after the highlight changed. Unlike {@link #filter()}, this doesn't need to match
+     * all the lines of the store again.
+     */
+    protected void render() {
+        if (Config.LOGD) Log.d(TAG, "render");
+        if (mJumpTime != null) {
+            // the matching lines were not tracked during the jump
+            filter();
+            return;
+        }
+        mHighlightingMode = mShowHighlighting && mHighlightTextField.getText().trim().length() != 0;
+
+        mTextPane.setText("");
+        mFirstLine = true;
+        synchronized (mLineStore) {
+            mLastPrintedIndex = -1;
+            for (int i = getFirstDisplayedMatch(); i < mMatchingCount; i++) {
+                printLine(mMatchingIndexes[i]);
+                mLastPrintedIndex = mMatchingIndexes[i];
+            }
         }
         scrollDown();
     }
 
-    private boolean isFilterMatch(String line) {
+    /**
+     * @return the position in the matching indexes of the first line to display, so that no more than --maxdisplayed lines are displayed.
+     */
+    private int getFirstDisplayedMatch() {
+        if (mArguments.maxDisplayed <= 0) {
+            return 0;
+        }
+        return Math.max(0, mMatchingCount - mArguments.maxDisplayed);
+    }
+
+    /**
+     * Must be called while synchronized on the line store.
+     */
+    private boolean isFilterMatch(final int index) {
+        if (mFacetingMode && !mFacetPanel.isMatch(mLineStore.getLevel(index), mLineStore.getTagId(index))) {
+            return false;
+        }
+        return isTextFilterMatch(mLineStore.get(index));
+    }
+
+    /**
+     * @return for each tag id, whether the tag contains the filter text, in which case all the lines with this tag match without having to
+     *         look at them, or {@code null} if not filtering.<br/>
+     *         Must be called while synchronized on the line store.
+     */
+    private boolean[] getTagFilterMatches() {
+        if (!mFilteringMode) {
+            return null;
+        }
+        final Dictionary tagDictionary = mLineStore.getTagDictionary();
+        final String text = mFilterTextField.getText();
+        final boolean[] res = new boolean[tagDictionary.size()];
+        for (int i = 0; i < res.length; i++) {
+            res[i] = MiscUtil.containsIgnoreCase(tagDictionary.getValue(i), text);
+        }
+        return res;
+    }
+
+    /**
+     * Must be called while synchronized on the line store.
+     */
+    private boolean isTextFilterMatch(final int index, final boolean[] tagMatches) {
+        if (tagMatches != null) {
+            final int tagId = mLineStore.getTagId(index);
+            if (tagId != Dictionary.NO_ID && tagMatches[tagId]) {
+                return true;
+            }
+        }
+        return isTextFilterMatch(mLineStore.get(index));
+    }
+
+    private boolean isTextFilterMatch(String line) {
         if (!mFilteringMode) {
             return true;
         }
-        return line.toLowerCase().contains(mFilterTextField.getText().toLowerCase());
+        return MiscUtil.containsIgnoreCase(line, mFilterTextField.getText());
     }
 
     private boolean isHighlightMatch(String line) {
         if (!mHighlightingMode) {
             return true;
         }
-        return line.toLowerCase().contains(mHighlightTextField.getText().toLowerCase());
+        return MiscUtil.containsIgnoreCase(line, mHighlightTextField.getText());
+    }
+
+    private void initJumpListener() {
+        mJumpTextField.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                jump(mJumpTextField.getText());
+            }
+        });
+    }
+
+    /**
+     * Shows the lines of the file around the given time, read directly from the file thanks to the timestamp index. New lines are not
+     * displayed until the jump is left (by closing the jump field, or filtering).<br/>
+     * Compressed files can't be read at an offset, so for them the lines are taken from the line store.
+     */
+    private void jump(final String text) {
+        if (Config.LOGD) Log.d(TAG, "jump " + text);
+        final long lastTimestamp = mCompressed ? getLastStoredTimestamp() : mTimestampIndex.getLastTimestamp();
+        final long timestamp = TimestampIndex.parseTime(text, lastTimestamp == Long.MIN_VALUE ? System.currentTimeMillis() : lastTimestamp);
+        if (timestamp == Long.MIN_VALUE) {
+            Toolkit.getDefaultToolkit().beep();
+            return;
+        }
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                final LineParser lineParser = mArguments.format.newParser();
+                final List<String> lines;
+                try {
+                    if (mCompressed) {
+                        lines = readStoredWindow(timestamp);
+                    } else {
+                        lines = TimeWindowReader.read(mFile, mCharset, mTimestampIndex, lineParser, timestamp, JUMP_LINES_BEFORE, JUMP_LINES_AFTER);
+                    }
+                } catch (final IOException e) {
+                    Log.e(TAG, "Cannot read " + mFile, e);
+                    return;
+                }
+                final LineFields fields = new LineFields();
+                int jumpPosition = 0;
+                synchronized (mLineStore) {
+                    mJumpTime = text.trim();
+                    mTextPane.setText("");
+                    mFirstLine = true;
+                    mLastPrintedIndex = -1;
+                    for (int i = 0; i < lines.size(); i++) {
+                        final String line = lines.get(i);
+                        fields.reset();
+                        lineParser.parse(line, fields);
+                        if (i == Math.min(JUMP_LINES_BEFORE, lines.size() - 1)) {
+                            jumpPosition = mTextPane.getDocument().getLength();
+                        }
+                        printLine(line, fields.level, mHighlightedTagDictionary.getId(fields.tag), mHighlightedTagIds, 1);
+                    }
+                }
+                final int caretPosition = jumpPosition;
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        updateTitle();
+                        updateBackgroundColor();
+                        mTextPane.setCaretPosition(caretPosition);
+                    }
+                });
+            }
+        }).start();
+    }
+
+    private long getLastStoredTimestamp() {
+        synchronized (mLineStore) {
+            for (int i = mLineStore.size() - 1; i >= mLineStore.getFirstIndex(); i--) {
+                final long timestamp = mLineStore.getTimestamp(i);
+                if (timestamp != LineFields.NO_TIMESTAMP) {
+                    return timestamp;
+                }
+            }
+        }
+        return Long.MIN_VALUE;
+    }
+
+    /**
+     * Same as {@link TimeWindowReader#read(File, String, TimestampIndex, LineParser, long, int, int)}, but from the line store.
+     */
+    private List<String> readStoredWindow(final long timestamp) {
+        synchronized (mLineStore) {
+            final int firstIndex = mLineStore.getFirstIndex();
+            final int size = mLineStore.size();
+            int index = firstIndex;
+            while (index < size) {
+                final long lineTimestamp = mLineStore.getTimestamp(index);
+                if (lineTimestamp != LineFields.NO_TIMESTAMP && lineTimestamp >= timestamp) {
+                    break;
+                }
+                index++;
+            }
+            final int from = Math.max(firstIndex, Math.min(index, size - 1) - JUMP_LINES_BEFORE);
+            final int to = Math.min(size, index + JUMP_LINES_AFTER);
+            final ArrayList<String> res = new ArrayList<String>(to - from);
+            for (int i = from; i < to; i++) {
+                res.add(mLineStore.get(i));
+            }
+            return res;
+        }
     }
 
     private void initToolBar() {
@@ -483,15 +1349,48 @@ public class VtailWindow {
         toggleButton.setFocusable(false);
         toolBar.add(toggleButton);
 
-        final JButton button = new JButton(mClearAction);
+        mFacetsAction.putValue(Action.SELECTED_KEY, Boolean.FALSE);
+        toggleButton = new JToggleButton(mFacetsAction);
+        toggleButton.setFocusable(false);
+        toolBar.add(toggleButton);
+
+        if (mFile != null && mArguments.format != LineFormat.NONE) {
+            mJumpAction.putValue(Action.SELECTED_KEY, Boolean.FALSE);
+            toggleButton = new JToggleButton(mJumpAction);
+            toggleButton.setFocusable(false);
+            toolBar.add(toggleButton);
+        }
+
+        if (mFile != null && !mCompressed && mArguments.browse) {
+            mBrowseAction.putValue(Action.SELECTED_KEY, Boolean.FALSE);
+            toggleButton = new JToggleButton(mBrowseAction);
+            toggleButton.setFocusable(false);
+            toolBar.add(toggleButton);
+        }
+
+        JButton button = new JButton(mClearAction);
+        button.setFocusable(false);
+        toolBar.add(button);
+
+        button = new JButton(mNewViewAction);
         button.setFocusable(false);
         toolBar.add(button);
 
+        button = new JButton(mCloseViewAction);
+        button.setFocusable(false);
+        toolBar.add(button);
+
+        if (mRuleProfiler != null) {
+            button = new JButton(mRuleProfileAction);
+            button.setFocusable(false);
+            toolBar.add(button);
+        }
+
 
         toolBar.setRollover(true);
         toolBar.setFloatable(false);
 
-        mFrame.getContentPane().add(toolBar, BorderLayout.PAGE_START);
+        mContentPanel.add(toolBar, BorderLayout.PAGE_START);
     }
 
     private final Action mFilterAction = new AbstractAction("Filter") {
@@ -506,7 +1405,7 @@ public class VtailWindow {
                     public void run() {
                         mBottomPanel.add(mFilterTextField, 0);
                         mFilterTextField.requestFocusInWindow();
-                        mFrame.getContentPane().validate();
+                        mContentPanel.validate();
                         scrollDown();
                         if (mFilterTextField.getText().length() > 0) {
                             filter();
@@ -518,7 +1417,7 @@ public class VtailWindow {
                     @Override
                     public void run() {
                         mBottomPanel.remove(mFilterTextField);
-                        mFrame.getContentPane().validate();
+                        mContentPanel.validate();
                         filter();
                     }
                 });
@@ -542,11 +1441,11 @@ public class VtailWindow {
                         }
                         mBottomPanel.add(mHighlightTextField, pos);
                         mHighlightTextField.requestFocusInWindow();
-                        mFrame.getContentPane().validate();
+                        mContentPanel.validate();
 
                         scrollDown();
                         if (mHighlightTextField.getText().length() > 0) {
-                            filter();
+                            render();
                         }
                     }
                 });
@@ -555,7 +1454,38 @@ public class VtailWindow {
                     @Override
                     public void run() {
                         mBottomPanel.remove(mHighlightTextField);
-                        mFrame.getContentPane().validate();
+                        mContentPanel.validate();
+                        render();
+                    }
+                });
+            }
+        }
+    };
+
+    private final Action mFacetsAction = new AbstractAction("Facets") {
+        @Override
+        public void actionPerformed(ActionEvent e) {
+            final Boolean selected = (Boolean) getValue(Action.SELECTED_KEY);
+            if (Config.LOGD) Log.d(TAG, "actionPerformed Facets selected=" + selected);
+            mShowFacets = selected;
+            if (selected) {
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        mBottomPanel.add(mFacetPanel);
+                        mContentPanel.validate();
+                        scrollDown();
+                        if (mFacetPanel.isActive()) {
+                            filter();
+                        }
+                    }
+                });
+            } else {
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        mBottomPanel.remove(mFacetPanel);
+                        mContentPanel.validate();
                         filter();
                     }
                 });
@@ -563,16 +1493,168 @@ public class VtailWindow {
         }
     };
 
+    private final Action mJumpAction = new AbstractAction("Jump to time") {
+        @Override
+        public void actionPerformed(ActionEvent e) {
+            final Boolean selected = (Boolean) getValue(Action.SELECTED_KEY);
+            if (Config.LOGD) Log.d(TAG, "actionPerformed Jump selected=" + selected);
+            if (selected) {
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        mBottomPanel.add(mJumpTextField);
+                        mJumpTextField.requestFocusInWindow();
+                        mContentPanel.validate();
+                    }
+                });
+            } else {
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        mBottomPanel.remove(mJumpTextField);
+                        mContentPanel.validate();
+                        if (mJumpTime != null) {
+                            filter();
+                        }
+                    }
+                });
+            }
+        }
+    };
+
+    /**
+     * Replaces the live view with a view of the whole file, page by page.
+     */
+    private final Action mBrowseAction = new AbstractAction("Browse") {
+        @Override
+        public void actionPerformed(ActionEvent e) {
+            final Boolean selected = (Boolean) getValue(Action.SELECTED_KEY);
+            if (Config.LOGD) Log.d(TAG, "actionPerformed Browse selected=" + selected);
+            if (selected) {
+                if (mPagedFileView == null) {
+                    try {
+                        mPagedFileView = createPagedFileView();
+                    } catch (final IOException ex) {
+                        Log.e(TAG, "Cannot browse " + mFile, ex);
+                        putValue(Action.SELECTED_KEY, Boolean.FALSE);
+                        return;
+                    }
+                }
+                mContentPanel.remove(mScrollPane);
+                mContentPanel.add(mPagedFileView);
+                mContentPanel.validate();
+                mPagedFileView.start();
+            } else {
+                mPagedFileView.stop();
+                mContentPanel.remove(mPagedFileView);
+                mContentPanel.add(mScrollPane);
+                mContentPanel.validate();
+                scrollDown();
+            }
+        }
+    };
+
+    private PagedFileView createPagedFileView() throws IOException {
+        final WrapTextPane textPane = new WrapTextPane();
+        textPane.setFont(mTextPane.getFont());
+        textPane.setBackground(mArguments.scrollingBackground.color);
+        textPane.setForeground(mArguments.foreground.color);
+        final LineParser lineParser = mArguments.format.newParser();
+        final LineFields fields = new LineFields();
+        final PageReader pageReader = new PageReader(mFile, mCharset, mLineOffsetIndex);
+        return new PagedFileView(mFile, pageReader, mLineOffsetIndex, textPane, new PagedFileView.PageRenderer() {
+            @Override
+            public void render(StyledDocument document, List<String> lines) {
+                for (final String line : lines) {
+                    final int posStart = document.getLength();
+                    try {
+                        document.insertString(posStart, (posStart == 0 ? "" : "\n") + line, DEFAULT_STYLE);
+                    } catch (final BadLocationException e) {
+                        // should never happen
+                        Log.e(TAG, "insertString", e);
+                    }
+                    fields.reset();
+                    if (lineParser != null) {
+                        lineParser.parse(line, fields);
+                    }
+                    applyHighlights(mArguments, mRuleProfiler, document, posStart, line, fields.level, mHighlightedTagDictionary.getId(fields.tag),
+                            mHighlightedTagIds);
+                }
+            }
+        });
+    }
+
+    /**
+     * The line store is shared, so all the views are cleared.
+     */
     private final AbstractAction mClearAction = new AbstractAction("Clear") {
         @Override
         public void actionPerformed(ActionEvent e) {
-            mTextPane.setText("");
-            mFirstLine = true;
-            mLines.clear();
-            mLineCursor = 0;
-            mScrollingMode = false;
-            updateTitle();
-            updateBackgroundColor();
+            synchronized (mLineStore) {
+                mLineStore.clear();
+                mLineQueue.resetCounters();
+                for (final VtailWindow view : getViews()) {
+                    view.clear();
+                }
+            }
+        }
+    };
+
+    private void clear() {
+        mTextPane.setText("");
+        mFirstLine = true;
+        mLastPrintedIndex = -1;
+        mMatchingCount = 0;
+        mFacetPanel.clearTags();
+        mSkippedCount.set(0);
+        mJumpTime = null;
+        mScrollingMode = false;
+        updateTitle();
+        updateBackgroundColor();
+    }
+
+    /**
+     * Opens another view of the same lines, with its own filter.
+     */
+    private final AbstractAction mNewViewAction = new AbstractAction("New view") {
+        @Override
+        public void actionPerformed(ActionEvent e) {
+            final VtailWindow view = new VtailWindow(mArguments, mLinePipeline, mMainView);
+            view.filter();
+            view.mTextPane.requestFocusInWindow();
+        }
+    };
+
+    /**
+     * Shows the current rule profile (see --profile-rules).
+     */
+    private final AbstractAction mRuleProfileAction = new AbstractAction("Rule profile") {
+        @Override
+        public void actionPerformed(ActionEvent e) {
+            final JTextArea textArea = new JTextArea(mRuleProfiler.getReport());
+            textArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, mArguments.fontSize));
+            textArea.setEditable(false);
+            JOptionPane.showMessageDialog(mFrame, new JScrollPane(textArea), "Rule profile", JOptionPane.PLAIN_MESSAGE);
+        }
+    };
+
+    /**
+     * Shows the responsiveness of the window (see --edtwatchdog).
+     */
+    private final AbstractAction mEdtWatchdogAction = new AbstractAction("Responsiveness") {
+        @Override
+        public void actionPerformed(ActionEvent e) {
+            final JTextArea textArea = new JTextArea(mEdtWatchdog.getSummary(), 25, 100);
+            textArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, mArguments.fontSize));
+            textArea.setEditable(false);
+            JOptionPane.showMessageDialog(mFrame, new JScrollPane(textArea), "Responsiveness", JOptionPane.PLAIN_MESSAGE);
+        }
+    };
+
+    private final AbstractAction mCloseViewAction = new AbstractAction("Close view") {
+        @Override
+        public void actionPerformed(ActionEvent e) {
+            removeView();
         }
     };
 }
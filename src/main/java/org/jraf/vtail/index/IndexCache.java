@@ -0,0 +1,215 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright (C) 2010 Benoit 'BoD' Lubek (BoD@JRAF.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.vtail.index;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.zip.CRC32;
+
+import org.jraf.vtail.misc.Config;
+import org.jraf.vtail.misc.Log;
+
+/**
+ * Saves the indexes of a file in a sidecar file in a cache directory, so that reopening the same file doesn't need to index it again.<br/>
+ * The sidecar records the size and modification date of the file, and checksums of its beginning and of the end of the indexed part. When
+ * loading, if the file has been modified but these checksums still match, it has only been appended to: the indexes are still valid, and
+ * the indexers will only index the new part.
+ */
+public class IndexCache {
+    private static final String TAG = IndexCache.class.getName();
+
+    private static final int MAGIC = 0x56544958; // VTIX
+    private static final int VERSION = 1;
+
+    /**
+     * Number of bytes used for each checksum.
+     */
+    private static final int CHECKSUM_LENGTH = 4096;
+
+    private final File mCacheDirectory;
+    private final String mSettings;
+
+    /**
+     * @param settings The settings the indexes depend on (e.g. format and charset). Indexes saved with other settings are not loaded.
+     */
+    public IndexCache(final File cacheDirectory, final String settings) {
+        mCacheDirectory = cacheDirectory;
+        mSettings = settings;
+    }
+
+    /**
+     * Loads the indexes of the given file, if they are in the cache and still valid.
+     * 
+     * @param lineOffsetIndex Where to load the line offsets, or {@code null}.
+     * @param timestampIndex Where to load the timestamps, or {@code null}.
+     * @return {@code true} if the indexes were loaded.
+     */
+    public boolean load(final File file, final LineOffsetIndex lineOffsetIndex, final TimestampIndex timestampIndex) {
+        final File sidecarFile = getSidecarFile(file);
+        if (!sidecarFile.exists()) {
+            return false;
+        }
+        try {
+            final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(sidecarFile)));
+            try {
+                if (in.readInt() != MAGIC || in.readInt() != VERSION || !file.getCanonicalPath().equals(in.readUTF()) || !mSettings.equals(in.readUTF())) {
+                    return false;
+                }
+                final long length = in.readLong();
+                final long lastModified = in.readLong();
+                final long headChecksum = in.readLong();
+                final long tailChecksum = in.readLong();
+                if (file.length() != length || file.lastModified() != lastModified) {
+                    // modified: still valid if it was only appended to
+                    if (file.length() < length || checksum(file, 0, Math.min(CHECKSUM_LENGTH, length)) != headChecksum
+                            || checksum(file, length - CHECKSUM_LENGTH, length) != tailChecksum) {
+                        if (Config.LOGD) Log.d(TAG, "Cached index of " + file + " is obsolete");
+                        return false;
+                    }
+                }
+                try {
+                    readIndexes(in, lineOffsetIndex == null ? new LineOffsetIndex() : lineOffsetIndex, timestampIndex == null ? new TimestampIndex()
+                            : timestampIndex);
+                } catch (final IOException e) {
+                    // don't leave half loaded indexes
+                    if (lineOffsetIndex != null) {
+                        lineOffsetIndex.clear();
+                    }
+                    if (timestampIndex != null) {
+                        timestampIndex.clear();
+                    }
+                    throw e;
+                }
+                if (Config.LOGD) Log.d(TAG, "Loaded cached index of " + file);
+                return true;
+            } finally {
+                in.close();
+            }
+        } catch (final IOException e) {
+            Log.w(TAG, "Cannot read cached index " + sidecarFile, e);
+            return false;
+        }
+    }
+
+    /**
+     * Saves the indexes of the given file.
+     * 
+     * @param lineOffsetIndex The line offsets, or {@code null}.
+     * @param timestampIndex The timestamps, or {@code null}.
+     */
+    public void save(final File file, final LineOffsetIndex lineOffsetIndex, final TimestampIndex timestampIndex) {
+        if (!mCacheDirectory.isDirectory() && !mCacheDirectory.mkdirs()) {
+            Log.w(TAG, "Cannot create " + mCacheDirectory, new IOException());
+            return;
+        }
+        final File sidecarFile = getSidecarFile(file);
+        final File tmpFile = new File(sidecarFile.getPath() + ".tmp");
+        try {
+            final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+            try {
+                // the indexes only cover what was there when they were saved
+                final long lastModified = file.lastModified();
+                final long length = file.length();
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(file.getCanonicalPath());
+                out.writeUTF(mSettings);
+                out.writeLong(length);
+                out.writeLong(lastModified);
+                out.writeLong(checksum(file, 0, Math.min(CHECKSUM_LENGTH, length)));
+                out.writeLong(checksum(file, length - CHECKSUM_LENGTH, length));
+                out.writeBoolean(lineOffsetIndex != null);
+                if (lineOffsetIndex != null) {
+                    lineOffsetIndex.writeTo(out);
+                }
+                out.writeBoolean(timestampIndex != null);
+                if (timestampIndex != null) {
+                    timestampIndex.writeTo(out);
+                }
+            } finally {
+                out.close();
+            }
+            sidecarFile.delete();
+            if (!tmpFile.renameTo(sidecarFile)) {
+                Log.w(TAG, "Cannot rename " + tmpFile, new IOException());
+            }
+        } catch (final IOException e) {
+            Log.w(TAG, "Cannot write cached index " + sidecarFile, e);
+            tmpFile.delete();
+        }
+    }
+
+    private static void readIndexes(final DataInputStream in, final LineOffsetIndex lineOffsetIndex, final TimestampIndex timestampIndex)
+            throws IOException {
+        if (in.readBoolean()) {
+            lineOffsetIndex.readFrom(in);
+        }
+        if (in.readBoolean()) {
+            timestampIndex.readFrom(in);
+        }
+    }
+
+    private File getSidecarFile(final File file) {
+        String path;
+        try {
+            path = file.getCanonicalPath();
+        } catch (final IOException e) {
+            path = file.getAbsolutePath();
+        }
+        final CRC32 crc32 = new CRC32();
+        crc32.update(path.getBytes());
+        return new File(mCacheDirectory, file.getName() + "-" + Long.toHexString(crc32.getValue()) + ".idx");
+    }
+
+    /**
+     * @return the CRC32 of the bytes of the file between {@code start} (or 0 if it is negative) and {@code end}, which must be at most
+     *         {@link #CHECKSUM_LENGTH} bytes.
+     */
+    private static long checksum(final File file, final long start, final long end) throws IOException {
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            final int length = (int) (end - Math.max(0, start));
+            final byte[] buffer = new byte[length];
+            randomAccessFile.seek(Math.max(0, start));
+            int len = 0;
+            int read;
+            while (len < length && (read = randomAccessFile.read(buffer, len, length - len)) != -1) {
+                len += read;
+            }
+            final CRC32 crc32 = new CRC32();
+            crc32.update(buffer, 0, len);
+            return crc32.getValue();
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+}
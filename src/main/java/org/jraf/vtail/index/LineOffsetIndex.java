@@ -0,0 +1,142 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright (C) 2010 Benoit 'BoD' Lubek (BoD@JRAF.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.vtail.index;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A sparse index of the lines of a file: the offset of every {@link #INTERVAL}th line.<br/>
+ * While the file is being indexed, the total number of lines is estimated from the average length of the lines indexed so far.
+ */
+public class LineOffsetIndex {
+    /**
+     * Number of lines between 2 entries.
+     */
+    public static final int INTERVAL = 1024;
+
+    /**
+     * Average line length assumed before anything is indexed.
+     */
+    private static final int DEFAULT_LINE_LENGTH = 100;
+
+    private long[] mOffsets = new long[1024];
+    private int mSize = 1;
+    private int mLineCount;
+    private long mNextLineOffset;
+    private long mIndexedLength;
+
+    /**
+     * Adds the offset of the line number {@code size() * INTERVAL}.
+     */
+    public synchronized void addEntry(final long offset) {
+        if (mSize == mOffsets.length) {
+            mOffsets = Arrays.copyOf(mOffsets, mSize * 2);
+        }
+        mOffsets[mSize++] = offset;
+    }
+
+    /**
+     * @param lineCount Number of complete lines indexed so far.
+     * @param nextLineOffset Offset of the line after the last complete line.
+     * @param indexedLength Number of bytes indexed so far.
+     */
+    public synchronized void setProgress(final int lineCount, final long nextLineOffset, final long indexedLength) {
+        mLineCount = lineCount;
+        mNextLineOffset = nextLineOffset;
+        mIndexedLength = indexedLength;
+    }
+
+    public synchronized long getNextLineOffset() {
+        return mNextLineOffset;
+    }
+
+    public synchronized int getLineCount() {
+        return mLineCount;
+    }
+
+    public synchronized long getIndexedLength() {
+        return mIndexedLength;
+    }
+
+    /**
+     * @return the number of lines in a file of the given length: exact for the indexed part, extrapolated for the rest.
+     */
+    public synchronized int getEstimatedLineCount(final long fileLength) {
+        if (fileLength <= mIndexedLength) {
+            // a last line without a newline still counts
+            return mNextLineOffset < fileLength ? mLineCount + 1 : mLineCount;
+        }
+        return (int) Math.min(Integer.MAX_VALUE, mLineCount + (fileLength - mIndexedLength) / getAverageLineLength());
+    }
+
+    /**
+     * @return the average length of the lines indexed so far, or a default value.
+     */
+    public synchronized long getAverageLineLength() {
+        if (mLineCount == 0) {
+            return DEFAULT_LINE_LENGTH;
+        }
+        return Math.max(1, mIndexedLength / mLineCount);
+    }
+
+    /**
+     * @return the offset of the closest indexed line at or before the given line, whose number is
+     *         {@code line / INTERVAL * INTERVAL}.
+     */
+    public synchronized long getOffsetBefore(final int line) {
+        return mOffsets[Math.min(line / INTERVAL, mSize - 1)];
+    }
+
+    public synchronized void writeTo(final DataOutputStream out) throws IOException {
+        out.writeInt(mLineCount);
+        out.writeLong(mNextLineOffset);
+        out.writeLong(mIndexedLength);
+        out.writeInt(mSize);
+        for (int i = 0; i < mSize; i++) {
+            out.writeLong(mOffsets[i]);
+        }
+    }
+
+    public synchronized void readFrom(final DataInputStream in) throws IOException {
+        mLineCount = in.readInt();
+        mNextLineOffset = in.readLong();
+        mIndexedLength = in.readLong();
+        mSize = in.readInt();
+        mOffsets = new long[Math.max(1024, mSize)];
+        for (int i = 0; i < mSize; i++) {
+            mOffsets[i] = in.readLong();
+        }
+    }
+
+    public synchronized void clear() {
+        mSize = 1;
+        mLineCount = 0;
+        mNextLineOffset = 0;
+        mIndexedLength = 0;
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright (C) 2010 Benoit 'BoD' Lubek (BoD@JRAF.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.vtail.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.jraf.vtail.misc.Config;
+import org.jraf.vtail.misc.Log;
+import org.jraf.vtail.misc.MiscUtil;
+
+/**
+ * Builds a {@link LineOffsetIndex} of a file in the background, by scanning it memory mapped, and keeps extending it as the file grows.
+ */
+public class LineOffsetIndexer implements Runnable {
+    private static final String TAG = LineOffsetIndexer.class.getName();
+
+    /**
+     * The file is mapped by segments of this size.
+     */
+    private static final long SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * The progress is published every this many bytes.
+     */
+    private static final int PROGRESS_INTERVAL = 1024 * 1024;
+
+    private final File mFile;
+    private final LineOffsetIndex mLineOffsetIndex;
+    private volatile boolean mStopped;
+
+    public LineOffsetIndexer(final File file, final LineOffsetIndex lineOffsetIndex) {
+        mFile = file;
+        mLineOffsetIndex = lineOffsetIndex;
+    }
+
+    @Override
+    public void run() {
+        RandomAccessFile randomAccessFile = null;
+        try {
+            randomAccessFile = new RandomAccessFile(mFile, "r");
+            final FileChannel channel = randomAccessFile.getChannel();
+            // start where the index is (it may have been loaded from the cache)
+            long position = mLineOffsetIndex.getIndexedLength();
+            int lineCount = mLineOffsetIndex.getLineCount();
+            long nextLineOffset = mLineOffsetIndex.getNextLineOffset();
+            while (!mStopped) {
+                final long size = channel.size();
+                if (size < position) {
+                    if (Config.LOGD) Log.d(TAG, "File truncated: indexing again");
+                    mLineOffsetIndex.clear();
+                    position = 0;
+                    lineCount = 0;
+                    nextLineOffset = 0;
+                    continue;
+                }
+                if (size == position) {
+                    MiscUtil.sleep(1000);
+                    continue;
+                }
+
+                final int segmentSize = (int) Math.min(SEGMENT_SIZE, size - position);
+                final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, segmentSize);
+                for (int i = 0; i < segmentSize; i++) {
+                    if (buffer.get(i) == '\n') {
+                        lineCount++;
+                        nextLineOffset = position + i + 1;
+                        if (lineCount % LineOffsetIndex.INTERVAL == 0) {
+                            mLineOffsetIndex.addEntry(nextLineOffset);
+                        }
+                    }
+                    if (i % PROGRESS_INTERVAL == PROGRESS_INTERVAL - 1) {
+                        mLineOffsetIndex.setProgress(lineCount, nextLineOffset, position + i + 1);
+                    }
+                }
+                position += segmentSize;
+                mLineOffsetIndex.setProgress(lineCount, nextLineOffset, position);
+            }
+        } catch (final IOException e) {
+            Log.e(TAG, "Cannot index " + mFile + ": giving up", e);
+        } finally {
+            if (randomAccessFile != null) {
+                try {
+                    randomAccessFile.close();
+                } catch (final IOException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    public void stop() {
+        mStopped = true;
+    }
+}
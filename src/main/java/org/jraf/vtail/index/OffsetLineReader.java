@@ -0,0 +1,132 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright (C) 2010 Benoit 'BoD' Lubek (BoD@JRAF.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.vtail.index;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+
+/**
+ * Reads the lines of a file from any offset, keeping track of the offset of each line.<br/>
+ * Only complete (newline terminated) lines are returned: if the end of the file is in the middle of a line, {@link #readLine()} returns
+ * {@code null} and the next call will start again at the beginning of that line, which allows to follow a growing file.<br/>
+ * Not thread safe.
+ */
+public class OffsetLineReader {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final RandomAccessFile mFile;
+    private final String mCharset;
+    private final byte[] mBuffer = new byte[BUFFER_SIZE];
+    private int mBufferPos;
+    private int mBufferLen;
+    private long mBufferOffset;
+    private byte[] mLineBytes = new byte[256];
+    private long mLineOffset;
+
+    public OffsetLineReader(final RandomAccessFile file, final String charset, final long offset) throws UnsupportedEncodingException {
+        // fail early if the charset is not supported
+        new String(new byte[0], charset);
+        mFile = file;
+        mCharset = charset;
+        seek(offset);
+    }
+
+    public void seek(final long offset) {
+        mBufferOffset = offset;
+        mBufferPos = 0;
+        mBufferLen = 0;
+        mLineOffset = offset;
+    }
+
+    /**
+     * @return the next line, without its line terminator, or {@code null} if there is no complete line available yet.
+     */
+    public String readLine() throws IOException {
+        final int lineLen = nextLine(true);
+        if (lineLen == -1) {
+            return null;
+        }
+        return new String(mLineBytes, 0, lineLen, mCharset);
+    }
+
+    /**
+     * Goes to the next line without decoding it.
+     * 
+     * @return {@code false} if there is no complete line available yet.
+     */
+    public boolean skipLine() throws IOException {
+        return nextLine(false) != -1;
+    }
+
+    private int nextLine(final boolean keep) throws IOException {
+        final long lineOffset = mBufferOffset + mBufferPos;
+        int lineLen = 0;
+        while (true) {
+            if (mBufferPos == mBufferLen) {
+                mBufferOffset += mBufferLen;
+                mBufferPos = 0;
+                mFile.seek(mBufferOffset);
+                mBufferLen = Math.max(0, mFile.read(mBuffer, 0, BUFFER_SIZE));
+                if (mBufferLen == 0) {
+                    // incomplete line: start again from its beginning next time
+                    seek(lineOffset);
+                    return -1;
+                }
+            }
+            final byte b = mBuffer[mBufferPos++];
+            if (b == '\n') {
+                break;
+            }
+            if (keep) {
+                if (lineLen == mLineBytes.length) {
+                    final byte[] lineBytes = new byte[lineLen * 2];
+                    System.arraycopy(mLineBytes, 0, lineBytes, 0, lineLen);
+                    mLineBytes = lineBytes;
+                }
+                mLineBytes[lineLen++] = b;
+            }
+        }
+        if (lineLen > 0 && mLineBytes[lineLen - 1] == '\r') {
+            lineLen--;
+        }
+        mLineOffset = lineOffset;
+        return lineLen;
+    }
+
+    /**
+     * @return the offset of the beginning of the line last returned by {@link #readLine()}.
+     */
+    public long getLineOffset() {
+        return mLineOffset;
+    }
+
+    /**
+     * @return the offset of the next line to be read.
+     */
+    public long getOffset() {
+        return mBufferOffset + mBufferPos;
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright (C) 2010 Benoit 'BoD' Lubek (BoD@JRAF.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.vtail.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a few lines anywhere in a file, by number, using a {@link LineOffsetIndex}. Lines after the indexed part of the file are found at
+ * their estimated offset.<br/>
+ * Not thread safe.
+ */
+public class PageReader {
+    private final RandomAccessFile mRandomAccessFile;
+    private final OffsetLineReader mReader;
+    private final LineOffsetIndex mLineOffsetIndex;
+
+    public PageReader(final File file, final String charset, final LineOffsetIndex lineOffsetIndex) throws IOException {
+        mRandomAccessFile = new RandomAccessFile(file, "r");
+        mReader = new OffsetLineReader(mRandomAccessFile, charset, 0);
+        mLineOffsetIndex = lineOffsetIndex;
+    }
+
+    /**
+     * @return up to {@code count} lines starting at line {@code firstLine} (fewer at the end of the file).
+     */
+    public List<String> read(final int firstLine, final int count) throws IOException {
+        final ArrayList<String> res = new ArrayList<String>(count);
+        final int lineCount = mLineOffsetIndex.getLineCount();
+        if (firstLine <= lineCount) {
+            mReader.seek(mLineOffsetIndex.getOffsetBefore(firstLine));
+            for (int i = firstLine / LineOffsetIndex.INTERVAL * LineOffsetIndex.INTERVAL; i < firstLine; i++) {
+                if (!mReader.skipLine()) {
+                    return res;
+                }
+            }
+        } else {
+            // not indexed yet: estimate where the line is, and start at the next line
+            final long offset = mLineOffsetIndex.getIndexedLength() + (firstLine - lineCount) * mLineOffsetIndex.getAverageLineLength();
+            mReader.seek(Math.max(0, Math.min(offset, mRandomAccessFile.length()) - 1));
+            mReader.skipLine();
+        }
+        String line;
+        while (res.size() < count && (line = mReader.readLine()) != null) {
+            res.add(line);
+        }
+        return res;
+    }
+
+    public void close() throws IOException {
+        mRandomAccessFile.close();
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright (C) 2010 Benoit 'BoD' Lubek (BoD@JRAF.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.vtail.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.jraf.vtail.parser.LineFields;
+import org.jraf.vtail.parser.LineParser;
+
+/**
+ * Reads the lines of a file around a given time, using a {@link TimestampIndex} to go there directly.
+ */
+public class TimeWindowReader {
+    /**
+     * Maximum number of lines read after the index entry while looking for the time, since lines without a timestamp are not counted.
+     */
+    private static final int MAX_SCANNED_LINES = 100000;
+
+    /**
+     * @param before Number of lines to return before the first line at or after {@code timestamp}.
+     * @param after Number of lines to return starting at this line.
+     * @return the lines of the window, which are all the lines around the end of the file if {@code timestamp} is after it.
+     */
+    public static List<String> read(final File file, final String charset, final TimestampIndex timestampIndex, final LineParser lineParser,
+            final long timestamp, final int before, final int after) throws IOException {
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            final OffsetLineReader reader = new OffsetLineReader(randomAccessFile, charset, timestampIndex.findOffsetBefore(timestamp));
+            final LinkedList<String> beforeLines = new LinkedList<String>();
+            final LineFields fields = new LineFields();
+            String line;
+            int scanned = 0;
+            // find the first line at or after the timestamp, keeping the lines before it
+            while ((line = reader.readLine()) != null) {
+                fields.reset();
+                if (lineParser.parse(line, fields) && fields.timestamp >= timestamp || ++scanned > MAX_SCANNED_LINES) {
+                    break;
+                }
+                beforeLines.addLast(line);
+                if (beforeLines.size() > before) {
+                    beforeLines.removeFirst();
+                }
+            }
+            final ArrayList<String> res = new ArrayList<String>(beforeLines);
+            if (line != null) {
+                res.add(line);
+                while (res.size() < beforeLines.size() + after && (line = reader.readLine()) != null) {
+                    res.add(line);
+                }
+            }
+            return res;
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+}
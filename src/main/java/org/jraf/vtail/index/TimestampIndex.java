@@ -0,0 +1,166 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright (C) 2010 Benoit 'BoD' Lubek (BoD@JRAF.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.vtail.index;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Calendar;
+
+/**
+ * A sparse index of the timestamps of a file: every few kilobytes, the timestamp of a line and its offset.<br/>
+ * Entries are kept in increasing timestamp order (a line older than the previous entry is not indexed), so that it can be binary searched.
+ */
+public class TimestampIndex {
+    private long[] mTimestamps = new long[1024];
+    private long[] mOffsets = new long[1024];
+    private int mSize;
+    private long mIndexedLength;
+
+    public synchronized void add(final long timestamp, final long offset) {
+        if (mSize > 0 && timestamp < mTimestamps[mSize - 1]) {
+            return;
+        }
+        if (mSize == mTimestamps.length) {
+            mTimestamps = Arrays.copyOf(mTimestamps, mSize * 2);
+            mOffsets = Arrays.copyOf(mOffsets, mSize * 2);
+        }
+        mTimestamps[mSize] = timestamp;
+        mOffsets[mSize] = offset;
+        mSize++;
+    }
+
+    /**
+     * @return the offset of an indexed line before the first line at or after the given timestamp, or 0 if there is none.
+     */
+    public synchronized long findOffsetBefore(final long timestamp) {
+        int low = 0;
+        int high = mSize - 1;
+        int res = -1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            if (mTimestamps[mid] < timestamp) {
+                res = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return res == -1 ? 0 : mOffsets[res];
+    }
+
+    /**
+     * @return the latest indexed timestamp, or {@link Long#MIN_VALUE} if the index is empty.
+     */
+    public synchronized long getLastTimestamp() {
+        return mSize == 0 ? Long.MIN_VALUE : mTimestamps[mSize - 1];
+    }
+
+    public synchronized int size() {
+        return mSize;
+    }
+
+    /**
+     * @param indexedLength Number of bytes of the file indexed so far.
+     */
+    public synchronized void setIndexedLength(final long indexedLength) {
+        mIndexedLength = indexedLength;
+    }
+
+    public synchronized long getIndexedLength() {
+        return mIndexedLength;
+    }
+
+    public synchronized void clear() {
+        mSize = 0;
+        mIndexedLength = 0;
+    }
+
+    public synchronized void writeTo(final DataOutputStream out) throws IOException {
+        out.writeLong(mIndexedLength);
+        out.writeInt(mSize);
+        for (int i = 0; i < mSize; i++) {
+            out.writeLong(mTimestamps[i]);
+            out.writeLong(mOffsets[i]);
+        }
+    }
+
+    public synchronized void readFrom(final DataInputStream in) throws IOException {
+        mIndexedLength = in.readLong();
+        mSize = in.readInt();
+        mTimestamps = new long[Math.max(1024, mSize)];
+        mOffsets = new long[Math.max(1024, mSize)];
+        for (int i = 0; i < mSize; i++) {
+            mTimestamps[i] = in.readLong();
+            mOffsets[i] = in.readLong();
+        }
+    }
+
+    /**
+     * Parses a time typed by the user: {@code HH:mm[:ss[.SSS]]}, optionally preceded by a date ({@code MM-dd} or {@code yyyy-MM-dd}).<br/>
+     * Missing date parts are taken from {@code reference}, and a time without a date which would be after {@code reference} is taken on
+     * the day before.
+     * 
+     * @return the corresponding epoch millis, or {@link Long#MIN_VALUE} if the text could not be parsed.
+     */
+    public static long parseTime(final String text, final long reference) {
+        final String[] parts = text.trim().split("[\\sT]+");
+        if (parts.length == 0 || parts.length > 2) {
+            return Long.MIN_VALUE;
+        }
+        final Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(reference);
+        try {
+            if (parts.length == 2) {
+                final String[] dateParts = parts[0].split("-");
+                if (dateParts.length == 3) {
+                    calendar.set(Calendar.YEAR, Integer.parseInt(dateParts[0]));
+                    calendar.set(Calendar.MONTH, Integer.parseInt(dateParts[1]) - 1);
+                    calendar.set(Calendar.DAY_OF_MONTH, Integer.parseInt(dateParts[2]));
+                } else if (dateParts.length == 2) {
+                    calendar.set(Calendar.MONTH, Integer.parseInt(dateParts[0]) - 1);
+                    calendar.set(Calendar.DAY_OF_MONTH, Integer.parseInt(dateParts[1]));
+                } else {
+                    return Long.MIN_VALUE;
+                }
+            }
+            final String[] timeParts = parts[parts.length - 1].split("[:.,]");
+            if (timeParts.length < 2 || timeParts.length > 4) {
+                return Long.MIN_VALUE;
+            }
+            calendar.set(Calendar.HOUR_OF_DAY, Integer.parseInt(timeParts[0]));
+            calendar.set(Calendar.MINUTE, Integer.parseInt(timeParts[1]));
+            calendar.set(Calendar.SECOND, timeParts.length > 2 ? Integer.parseInt(timeParts[2]) : 0);
+            calendar.set(Calendar.MILLISECOND, timeParts.length > 3 ? Integer.parseInt(timeParts[3]) : 0);
+        } catch (final NumberFormatException e) {
+            return Long.MIN_VALUE;
+        }
+        if (parts.length == 1 && calendar.getTimeInMillis() > reference) {
+            calendar.add(Calendar.DAY_OF_MONTH, -1);
+        }
+        return calendar.getTimeInMillis();
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright (C) 2010 Benoit 'BoD' Lubek (BoD@JRAF.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.vtail.index;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import org.jraf.vtail.misc.Config;
+import org.jraf.vtail.misc.Log;
+import org.jraf.vtail.misc.MiscUtil;
+import org.jraf.vtail.parser.LineFields;
+import org.jraf.vtail.parser.LineParser;
+
+/**
+ * Builds a {@link TimestampIndex} of a file in the background, and keeps extending it as the file grows.
+ */
+public class TimestampIndexer implements Runnable {
+    private static final String TAG = TimestampIndexer.class.getName();
+
+    /**
+     * Approximate number of bytes between 2 index entries.
+     */
+    private static final long INTERVAL = 16 * 1024;
+
+    private final File mFile;
+    private final String mCharset;
+    private final LineParser mLineParser;
+    private final TimestampIndex mTimestampIndex;
+    private volatile boolean mStopped;
+
+    public TimestampIndexer(final File file, final String charset, final LineParser lineParser, final TimestampIndex timestampIndex) {
+        mFile = file;
+        mCharset = charset;
+        mLineParser = lineParser;
+        mTimestampIndex = timestampIndex;
+    }
+
+    @Override
+    public void run() {
+        RandomAccessFile randomAccessFile = null;
+        try {
+            randomAccessFile = new RandomAccessFile(mFile, "r");
+            // start where the index is (it may have been loaded from the cache)
+            long nextIndexedOffset = mTimestampIndex.getIndexedLength();
+            final OffsetLineReader reader = new OffsetLineReader(randomAccessFile, mCharset, nextIndexedOffset);
+            final LineFields fields = new LineFields();
+            while (!mStopped) {
+                if (reader.getOffset() < nextIndexedOffset) {
+                    if (!reader.skipLine() && waitForMore(randomAccessFile, reader)) {
+                        nextIndexedOffset = 0;
+                    }
+                    continue;
+                }
+                final String line = reader.readLine();
+                if (line == null) {
+                    if (waitForMore(randomAccessFile, reader)) {
+                        nextIndexedOffset = 0;
+                    }
+                    continue;
+                }
+                fields.reset();
+                if (mLineParser.parse(line, fields) && fields.timestamp != LineFields.NO_TIMESTAMP) {
+                    mTimestampIndex.add(fields.timestamp, reader.getLineOffset());
+                    mTimestampIndex.setIndexedLength(reader.getOffset());
+                    nextIndexedOffset = reader.getLineOffset() + INTERVAL;
+                }
+            }
+        } catch (final FileNotFoundException e) {
+            Log.e(TAG, "Cannot index " + mFile, e);
+        } catch (final IOException e) {
+            Log.e(TAG, "Cannot index " + mFile + ": giving up", e);
+        } finally {
+            if (randomAccessFile != null) {
+                try {
+                    randomAccessFile.close();
+                } catch (final IOException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    /**
+     * Called at the end of the file.
+     * 
+     * @return {@code true} if the file has been truncated, in which case everything is indexed again from the start.
+     */
+    private boolean waitForMore(final RandomAccessFile randomAccessFile, final OffsetLineReader reader) throws IOException {
+        if (randomAccessFile.length() < reader.getOffset()) {
+            if (Config.LOGD) Log.d(TAG, "File truncated: indexing again");
+            mTimestampIndex.clear();
+            reader.seek(0);
+            return true;
+        }
+        mTimestampIndex.setIndexedLength(reader.getOffset());
+        MiscUtil.sleep(1000);
+        return false;
+    }
+
+    public void stop() {
+        mStopped = true;
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright (C) 2010 Benoit 'BoD' Lubek (BoD@JRAF.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.vtail.instance;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+import org.jraf.vtail.arguments.Arguments;
+import org.jraf.vtail.misc.Log;
+import org.jraf.vtail.source.NetworkSource;
+
+/**
+ * Hands a new invocation over to the running instance, if there is one (see {@link InstanceProtocol}).
+ */
+public class InstanceClient {
+    private static final String TAG = InstanceClient.class.getName();
+
+    private static final int CONNECT_TIMEOUT_MS = 1000;
+
+    /**
+     * @param args The arguments of this invocation.
+     * @param arguments The same, already parsed.
+     * @return {@code true} if the running instance opened the window (after which this invocation must exit once this method returns),
+     *         {@code false} if there is no running instance.
+     */
+    public static boolean handOver(final String[] args, final Arguments arguments) {
+        final InstanceProtocol.Endpoint endpoint = InstanceProtocol.readInstanceFile();
+        if (endpoint == null) {
+            return false;
+        }
+        final Socket socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress("127.0.0.1", endpoint.port), CONNECT_TIMEOUT_MS);
+        } catch (final IOException e) {
+            // stale instance file
+            return false;
+        }
+        final boolean hasStdin = arguments.fileList == null && arguments.exec == null && arguments.connect == null
+                && arguments.listenTcpPort == NetworkSource.DISABLED && arguments.listenUdpPort == NetworkSource.DISABLED;
+        try {
+            final DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            out.writeUTF(endpoint.token);
+            out.writeUTF(new File("").getAbsolutePath());
+            out.writeInt(args.length);
+            for (final String arg : args) {
+                if (arg.startsWith("@")) {
+                    // option files are relative to this directory
+                    out.writeUTF("@" + new File(arg.substring(1)).getAbsolutePath());
+                } else {
+                    out.writeUTF(arg);
+                }
+            }
+            out.writeBoolean(hasStdin);
+            out.flush();
+
+            final String result = new DataInputStream(socket.getInputStream()).readUTF();
+            if (!InstanceProtocol.OK.equals(result)) {
+                System.err.println(result);
+                System.exit(-1);
+            }
+        } catch (final IOException e) {
+            Log.w(TAG, "Cannot hand over to the running instance", e);
+            close(socket);
+            return false;
+        }
+
+        try {
+            if (hasStdin) {
+                pump(System.in, socket.getOutputStream());
+            }
+        } catch (final IOException e) {
+            // the window was closed
+        } finally {
+            close(socket);
+        }
+        return true;
+    }
+
+    private static void close(final Socket socket) {
+        try {
+            socket.close();
+        } catch (final IOException e) {
+            // what can you do
+        }
+    }
+
+    private static void pump(final InputStream in, final OutputStream out) throws IOException {
+        final byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+            out.flush();
+        }
+    }
+}
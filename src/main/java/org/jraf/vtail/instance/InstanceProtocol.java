@@ -0,0 +1,99 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright (C) 2010 Benoit 'BoD' Lubek (BoD@JRAF.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.vtail.instance;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/**
+ * What is shared between the running instance and the new invocations.<br/>
+ * The running instance listens on a loopback port. The port, and a random token which a new invocation must send first, are written in
+ * the instance file, which only the user can read.<br/>
+ * A new invocation then sends its working directory and its arguments, and whether it will send its standard input. The instance answers
+ * with an empty string if the window could be opened, or an error message. Then, if announced, the standard input follows until the end
+ * of the connection.
+ */
+class InstanceProtocol {
+    static final File INSTANCE_FILE = new File(System.getProperty("user.home"), ".vtail" + File.separator + "instance");
+
+    static final String OK = "";
+
+    static final class Endpoint {
+        final int port;
+        final String token;
+
+        Endpoint(final int port, final String token) {
+            this.port = port;
+            this.token = token;
+        }
+    }
+
+    /**
+     * @return the endpoint of the running instance, or {@code null} if there is none.
+     */
+    static Endpoint readInstanceFile() {
+        if (!INSTANCE_FILE.isFile()) {
+            return null;
+        }
+        try {
+            final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(INSTANCE_FILE), "UTF-8"));
+            try {
+                final String[] parts = reader.readLine().split(" ");
+                return new Endpoint(Integer.parseInt(parts[0]), parts[1]);
+            } finally {
+                reader.close();
+            }
+        } catch (final Exception e) {
+            // missing, being written, or garbage
+            return null;
+        }
+    }
+
+    static void writeInstanceFile(final Endpoint endpoint) throws IOException {
+        INSTANCE_FILE.getParentFile().mkdirs();
+        final File tmpFile = new File(INSTANCE_FILE.getPath() + ".tmp");
+        tmpFile.delete();
+        tmpFile.createNewFile();
+        // only the user can read the token
+        tmpFile.setReadable(false, false);
+        tmpFile.setReadable(true, true);
+        final Writer writer = new OutputStreamWriter(new FileOutputStream(tmpFile), "UTF-8");
+        try {
+            writer.write(endpoint.port + " " + endpoint.token + "\n");
+        } finally {
+            writer.close();
+        }
+        INSTANCE_FILE.delete();
+        if (!tmpFile.renameTo(INSTANCE_FILE)) {
+            throw new IOException("Cannot write " + INSTANCE_FILE);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright (C) 2010 Benoit 'BoD' Lubek (BoD@JRAF.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.vtail.instance;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jraf.vtail.arguments.Arguments;
+import org.jraf.vtail.core.Main;
+import org.jraf.vtail.misc.Config;
+import org.jraf.vtail.misc.Log;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.ParameterException;
+
+/**
+ * Lets new invocations of vtail open their window in this VM (see {@link InstanceProtocol}), which is much faster than starting a new
+ * one.
+ */
+public class InstanceServer {
+    private static final String TAG = InstanceServer.class.getName();
+
+    private static final AtomicInteger sRequestCount = new AtomicInteger();
+
+    private final ServerSocket mServerSocket;
+    private final String mToken;
+
+    private InstanceServer() throws IOException {
+        mServerSocket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+        mToken = new BigInteger(128, new SecureRandom()).toString(16);
+    }
+
+    /**
+     * Starts accepting the new invocations, in the background. Failing to do so is not fatal: new invocations will just start their own
+     * VM.
+     */
+    public static void start() {
+        try {
+            final InstanceServer instanceServer = new InstanceServer();
+            InstanceProtocol.writeInstanceFile(new InstanceProtocol.Endpoint(instanceServer.mServerSocket.getLocalPort(), instanceServer.mToken));
+            Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    final InstanceProtocol.Endpoint endpoint = InstanceProtocol.readInstanceFile();
+                    if (endpoint != null && endpoint.token.equals(instanceServer.mToken)) {
+                        InstanceProtocol.INSTANCE_FILE.delete();
+                    }
+                }
+            }));
+            final Thread acceptThread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    instanceServer.acceptLoop();
+                }
+            }, "vtail-instance-server");
+            acceptThread.setDaemon(true);
+            acceptThread.start();
+        } catch (final IOException e) {
+            Log.w(TAG, "Cannot start the instance server", e);
+        }
+    }
+
+    private void acceptLoop() {
+        while (true) {
+            final Socket socket;
+            try {
+                socket = mServerSocket.accept();
+            } catch (final IOException e) {
+                Log.e(TAG, "Cannot accept new invocations anymore", e);
+                return;
+            }
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    handle(socket);
+                }
+            }, "vtail-instance-" + sRequestCount.incrementAndGet()).start();
+        }
+    }
+
+    private void handle(final Socket socket) {
+        boolean keepOpen = false;
+        try {
+            final DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            final DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            if (!mToken.equals(in.readUTF())) {
+                Log.w(TAG, "Wrong token from " + socket.getRemoteSocketAddress());
+                return;
+            }
+            final File workingDirectory = new File(in.readUTF());
+            final String[] args = new String[in.readInt()];
+            for (int i = 0; i < args.length; i++) {
+                args[i] = in.readUTF();
+            }
+            final boolean hasStdin = in.readBoolean();
+            if (Config.LOGD) Log.d(TAG, "New invocation from " + workingDirectory);
+
+            String result = InstanceProtocol.OK;
+            try {
+                final Arguments arguments = new Arguments();
+                new JCommander(arguments, args);
+                if (arguments.fileList != null) {
+                    final File file = arguments.fileList.get(0);
+                    if (!file.isAbsolute()) {
+                        arguments.fileList.set(0, new File(workingDirectory, file.getPath()));
+                    }
+                }
+                // the rest of the connection is the standard input of the invocation
+                Main.run(arguments, in);
+                keepOpen = hasStdin;
+            } catch (final ParameterException e) {
+                result = e.getMessage();
+            } catch (final IOException e) {
+                result = e.getMessage();
+            }
+            out.writeUTF(result);
+            out.flush();
+        } catch (final IOException e) {
+            Log.w(TAG, "Cannot handle invocation", e);
+        } finally {
+            if (!keepOpen) {
+                try {
+                    socket.close();
+                } catch (final IOException e) {
+                    // what can you do
+                }
+            }
+        }
+    }
+}
@@ -24,18 +24,37 @@
  */
 package org.jraf.vtail.misc;
 
+import java.io.PrintStream;
+
 public class Log {
+    private static volatile boolean sToStderr;
+
+    /**
+     * Sends all the logs to the standard error, e.g. when the standard output is the rendered lines.
+     */
+    public static void toStderr() {
+        sToStderr = true;
+    }
+
+    private static PrintStream out() {
+        return sToStderr ? System.err : System.out;
+    }
+
     public static void e(String tag, final String msg, final Exception e) {
         System.err.println(System.currentTimeMillis() + " E/" + tag + ": " + msg);
         e.printStackTrace();
     }
 
+    public static void w(String tag, final String msg) {
+        out().println(System.currentTimeMillis() + " W/" + tag + ": " + msg);
+    }
+
     public static void w(String tag, final String msg, final Exception e) {
-        System.out.println(System.currentTimeMillis() + " W/" + tag + ": " + msg);
+        out().println(System.currentTimeMillis() + " W/" + tag + ": " + msg);
         e.printStackTrace();
     }
 
     public static void d(String tag, final String msg) {
-        System.out.println(System.currentTimeMillis() + " D/" + tag + ": " + msg);
+        out().println(System.currentTimeMillis() + " D/" + tag + ": " + msg);
     }
 }
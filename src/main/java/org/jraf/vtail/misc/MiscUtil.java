@@ -24,6 +24,9 @@
  */
 package org.jraf.vtail.misc;
 
+import java.util.List;
+import java.util.regex.Pattern;
+
 public class MiscUtil {
 
     /**
@@ -36,4 +39,26 @@ public class MiscUtil {
             // what can you do
         }
     }
+
+    /**
+     * @return {@code true} if the line matches one of the given --ignore patterns.
+     */
+    public static boolean isIgnored(final List<Pattern> ignoreList, final String line) {
+        if (ignoreList == null) {
+            return false;
+        }
+        for (final Pattern pattern : ignoreList) {
+            if (pattern.matcher(line).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * How the filter and highlight texts are matched.
+     */
+    public static boolean containsIgnoreCase(final String line, final String text) {
+        return line.toLowerCase().contains(text.toLowerCase());
+    }
 }
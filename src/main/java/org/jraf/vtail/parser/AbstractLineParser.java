@@ -0,0 +1,92 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright (C) 2010 Benoit 'BoD' Lubek (BoD@JRAF.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.vtail.parser;
+
+import java.util.Calendar;
+
+/**
+ * Helpers for hand written parsers. Not thread safe: use one instance per thread.
+ */
+public abstract class AbstractLineParser implements LineParser {
+    private final Calendar mCalendar = Calendar.getInstance();
+    private final int mCurrentYear = mCalendar.get(Calendar.YEAR);
+    private int mCachedDayKey = -1;
+    private long mCachedDayMillis;
+
+    /**
+     * @return the value of the {@code count} digits at {@code start}, or -1 if they are not all digits.
+     */
+    protected static int parseDigits(final String line, final int start, final int count) {
+        if (start + count > line.length()) {
+            return -1;
+        }
+        int res = 0;
+        for (int i = start; i < start + count; i++) {
+            final char c = line.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            res = res * 10 + c - '0';
+        }
+        return res;
+    }
+
+    /**
+     * @return the index of the first non space character at or after {@code start}.
+     */
+    protected static int skipSpaces(final String line, int start) {
+        final int len = line.length();
+        while (start < len && line.charAt(start) == ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    protected static boolean charAt(final String line, final int index, final char c) {
+        return index < line.length() && line.charAt(index) == c;
+    }
+
+    /**
+     * @return the epoch millis of the given local time. Months start at 1. Computing the start of the day is cached since
+     *         consecutive lines are almost always on the same day.
+     */
+    protected long toMillis(final int year, final int month, final int day, final int hour, final int minute, final int second, final int millis) {
+        final int dayKey = (year * 100 + month) * 100 + day;
+        if (dayKey != mCachedDayKey) {
+            mCalendar.clear();
+            mCalendar.set(year, month - 1, day);
+            mCachedDayMillis = mCalendar.getTimeInMillis();
+            mCachedDayKey = dayKey;
+        }
+        return mCachedDayMillis + ((hour * 60L + minute) * 60L + second) * 1000L + millis;
+    }
+
+    /**
+     * For formats that don't include the year.
+     */
+    protected int getCurrentYear() {
+        return mCurrentYear;
+    }
+}
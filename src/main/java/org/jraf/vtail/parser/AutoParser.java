@@ -0,0 +1,56 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright (C) 2010 Benoit 'BoD' Lubek (BoD@JRAF.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.vtail.parser;
+
+/**
+ * Tries several parsers, starting with the one that recognized the previous line.
+ */
+public class AutoParser implements LineParser {
+    private final LineParser[] mParsers;
+    private int mLastIndex;
+
+    public AutoParser(final LineParser... parsers) {
+        mParsers = parsers;
+    }
+
+    @Override
+    public boolean parse(final String line, final LineFields fields) {
+        if (mParsers[mLastIndex].parse(line, fields)) {
+            return true;
+        }
+        for (int i = 0; i < mParsers.length; i++) {
+            if (i == mLastIndex) {
+                continue;
+            }
+            fields.reset();
+            if (mParsers[i].parse(line, fields)) {
+                mLastIndex = i;
+                return true;
+            }
+        }
+        fields.reset();
+        return false;
+    }
+}
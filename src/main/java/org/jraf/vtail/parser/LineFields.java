@@ -0,0 +1,64 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright (C) 2010 Benoit 'BoD' Lubek (BoD@JRAF.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.vtail.parser;
+
+/**
+ * The fields extracted from a line by a {@link LineParser}. Instances are meant to be reused from one line to the next.
+ */
+public class LineFields {
+    public static final long NO_TIMESTAMP = Long.MIN_VALUE;
+    public static final int NO_PID = -1;
+
+    /**
+     * Epoch millis, or {@link #NO_TIMESTAMP}.
+     */
+    public long timestamp;
+
+    /**
+     * One of the {@link LogLevel} constants.
+     */
+    public byte level;
+
+    /**
+     * Tag (logcat), category (log4j) or program (syslog), or {@code null}.
+     */
+    public String tag;
+
+    /**
+     * Process id, or {@link #NO_PID}.
+     */
+    public int pid;
+
+    public LineFields() {
+        reset();
+    }
+
+    public void reset() {
+        timestamp = NO_TIMESTAMP;
+        level = LogLevel.UNKNOWN;
+        tag = null;
+        pid = NO_PID;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright (C) 2010 Benoit 'BoD' Lubek (BoD@JRAF.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.vtail.parser;
+
+/**
+ * The known log formats.
+ */
+public enum LineFormat {
+    NONE {
+        @Override
+        public LineParser newParser() {
+            return null;
+        }
+    },
+
+    AUTO {
+        @Override
+        public LineParser newParser() {
+            return new AutoParser(new LogcatParser(), new Log4jParser(), new SyslogParser());
+        }
+    },
+
+    LOGCAT {
+        @Override
+        public LineParser newParser() {
+            return new LogcatParser();
+        }
+    },
+
+    LOG4J {
+        @Override
+        public LineParser newParser() {
+            return new Log4jParser();
+        }
+    },
+
+    SYSLOG {
+        @Override
+        public LineParser newParser() {
+            return new SyslogParser();
+        }
+    };
+
+    /**
+     * @return a new parser for this format, or {@code null} for {@link #NONE}. Parsers are not thread safe.
+     */
+    public abstract LineParser newParser();
+}
@@ -0,0 +1,40 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright (C) 2010 Benoit 'BoD' Lubek (BoD@JRAF.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.vtail.parser;
+
+/**
+ * Splits a line of a given log format into its fields.
+ */
+public interface LineParser {
+    /**
+     * Parses a line.
+     * 
+     * @param line The line to parse.
+     * @param fields Where to put the extracted fields. Fields that could not be found are left untouched, so this should be
+     *            {@link LineFields#reset()} before.
+     * @return {@code true} if the line is in the format of this parser.
+     */
+    boolean parse(String line, LineFields fields);
+}
@@ -0,0 +1,100 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright (C) 2010 Benoit 'BoD' Lubek (BoD@JRAF.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.vtail.parser;
+
+/**
+ * Parses log4j / logback style lines starting with an ISO8601 date, followed by the level, an optional thread name between brackets, and
+ * the category. E.g.:
+ * 
+ * <pre>
+ * 2010-10-12 14:32:05,123 WARN  [main] org.jraf.Foo - Something happened
+ * 2010-10-12 14:32:05.123 [main] WARN org.jraf.Foo - Something happened
+ * </pre>
+ */
+public class Log4jParser extends AbstractLineParser {
+
+    @Override
+    public boolean parse(final String line, final LineFields fields) {
+        // yyyy-MM-dd HH:mm:ss,SSS (or T instead of the space, . instead of the comma)
+        final int year = parseDigits(line, 0, 4);
+        final int month = parseDigits(line, 5, 2);
+        final int day = parseDigits(line, 8, 2);
+        final int hour = parseDigits(line, 11, 2);
+        final int minute = parseDigits(line, 14, 2);
+        final int second = parseDigits(line, 17, 2);
+        if (year == -1 || month == -1 || day == -1 || hour == -1 || minute == -1 || second == -1 || !charAt(line, 4, '-')
+                || !charAt(line, 13, ':')) {
+            return false;
+        }
+        int pos = 19;
+        int millis = 0;
+        if (charAt(line, pos, ',') || charAt(line, pos, '.')) {
+            millis = parseDigits(line, pos + 1, 3);
+            if (millis == -1) {
+                return false;
+            }
+            pos += 4;
+        }
+        fields.timestamp = toMillis(year, month, day, hour, minute, second, millis);
+
+        // level and thread, in any order
+        byte level = LogLevel.UNKNOWN;
+        final int len = line.length();
+        for (int i = 0; i < 2 && pos < len; i++) {
+            pos = skipSpaces(line, pos);
+            if (charAt(line, pos, '[')) {
+                final int closingIndex = line.indexOf(']', pos);
+                if (closingIndex == -1) {
+                    return true;
+                }
+                pos = closingIndex + 1;
+            } else if (level == LogLevel.UNKNOWN) {
+                final int wordEnd = wordEnd(line, pos);
+                level = LogLevel.fromName(line.substring(pos, wordEnd));
+                if (level == LogLevel.UNKNOWN) {
+                    break;
+                }
+                pos = wordEnd;
+            }
+        }
+        fields.level = level;
+
+        // category
+        pos = skipSpaces(line, pos);
+        final int wordEnd = wordEnd(line, pos);
+        if (wordEnd > pos) {
+            fields.tag = line.substring(pos, wordEnd);
+        }
+        return true;
+    }
+
+    private static int wordEnd(final String line, int pos) {
+        final int len = line.length();
+        while (pos < len && line.charAt(pos) != ' ') {
+            pos++;
+        }
+        return pos;
+    }
+}
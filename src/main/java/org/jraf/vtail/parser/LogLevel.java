@@ -0,0 +1,92 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright (C) 2010 Benoit 'BoD' Lubek (BoD@JRAF.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.vtail.parser;
+
+/**
+ * Log levels, as stored in a byte. Logcat letters and log4j names are mapped to the same values.
+ */
+public class LogLevel {
+    public static final byte UNKNOWN = 0;
+    public static final byte VERBOSE = 1;
+    public static final byte DEBUG = 2;
+    public static final byte INFO = 3;
+    public static final byte WARN = 4;
+    public static final byte ERROR = 5;
+    public static final byte FATAL = 6;
+
+    public static final int COUNT = 7;
+
+    private static final char[] LETTERS = { '?', 'V', 'D', 'I', 'W', 'E', 'F' };
+
+    /**
+     * @return the level for a logcat letter (V, D, I, W, E, F or A), or {@link #UNKNOWN}.
+     */
+    public static byte fromLetter(final char letter) {
+        switch (letter) {
+            case 'V':
+                return VERBOSE;
+            case 'D':
+                return DEBUG;
+            case 'I':
+                return INFO;
+            case 'W':
+                return WARN;
+            case 'E':
+                return ERROR;
+            case 'F':
+            case 'A':
+                return FATAL;
+        }
+        return UNKNOWN;
+    }
+
+    /**
+     * @return the level for a logcat letter or a log4j name (TRACE, DEBUG, INFO, WARN, ERROR, FATAL), case insensitive, or
+     *         {@link #UNKNOWN}.
+     */
+    public static byte fromName(final String name) {
+        if (name.length() == 1) {
+            return fromLetter(Character.toUpperCase(name.charAt(0)));
+        }
+        if ("TRACE".equalsIgnoreCase(name) || "VERBOSE".equalsIgnoreCase(name)) {
+            return VERBOSE;
+        } else if ("DEBUG".equalsIgnoreCase(name)) {
+            return DEBUG;
+        } else if ("INFO".equalsIgnoreCase(name)) {
+            return INFO;
+        } else if ("WARN".equalsIgnoreCase(name) || "WARNING".equalsIgnoreCase(name)) {
+            return WARN;
+        } else if ("ERROR".equalsIgnoreCase(name)) {
+            return ERROR;
+        } else if ("FATAL".equalsIgnoreCase(name) || "ASSERT".equalsIgnoreCase(name)) {
+            return FATAL;
+        }
+        return UNKNOWN;
+    }
+
+    public static char toLetter(final byte level) {
+        return LETTERS[level];
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright (C) 2010 Benoit 'BoD' Lubek (BoD@JRAF.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.vtail.parser;
+
+/**
+ * Parses the output of {@code adb logcat} in the brief, time and threadtime formats. E.g.:
+ * 
+ * <pre>
+ * W/ActivityManager(  123): Activity idle timeout
+ * 10-12 14:32:05.123 W/ActivityManager(  123): Activity idle timeout
+ * 10-12 14:32:05.123   123   456 W ActivityManager: Activity idle timeout
+ * </pre>
+ */
+public class LogcatParser extends AbstractLineParser {
+
+    @Override
+    public boolean parse(final String line, final LineFields fields) {
+        int pos = 0;
+
+        // time / threadtime: MM-DD HH:MM:SS.mmm
+        final int month = parseDigits(line, 0, 2);
+        if (month != -1) {
+            final int day = parseDigits(line, 3, 2);
+            final int hour = parseDigits(line, 6, 2);
+            final int minute = parseDigits(line, 9, 2);
+            final int second = parseDigits(line, 12, 2);
+            final int millis = parseDigits(line, 15, 3);
+            if (!charAt(line, 2, '-') || day == -1 || hour == -1 || minute == -1 || second == -1 || millis == -1) {
+                return false;
+            }
+            fields.timestamp = toMillis(getCurrentYear(), month, day, hour, minute, second, millis);
+            pos = skipSpaces(line, 18);
+
+            if (pos < line.length() && Character.isDigit(line.charAt(pos))) {
+                return parseThreadtime(line, pos, fields);
+            }
+        }
+
+        // brief: L/Tag( pid):
+        if (!charAt(line, pos + 1, '/')) {
+            return false;
+        }
+        final byte level = LogLevel.fromLetter(line.charAt(pos));
+        if (level == LogLevel.UNKNOWN) {
+            return false;
+        }
+        final int parenIndex = line.indexOf('(', pos + 2);
+        if (parenIndex == -1) {
+            return false;
+        }
+        fields.level = level;
+        fields.tag = line.substring(pos + 2, parenIndex).trim();
+        final int pidStart = skipSpaces(line, parenIndex + 1);
+        int pidEnd = pidStart;
+        while (pidEnd < line.length() && Character.isDigit(line.charAt(pidEnd))) {
+            pidEnd++;
+        }
+        if (pidEnd > pidStart) {
+            fields.pid = parseDigits(line, pidStart, pidEnd - pidStart);
+        }
+        return true;
+    }
+
+    /**
+     * {@code pid tid L Tag: message}, starting at the pid.
+     */
+    private boolean parseThreadtime(final String line, int pos, final LineFields fields) {
+        final int len = line.length();
+        final int pidStart = pos;
+        while (pos < len && Character.isDigit(line.charAt(pos))) {
+            pos++;
+        }
+        final int pid = parseDigits(line, pidStart, pos - pidStart);
+        pos = skipSpaces(line, pos);
+        while (pos < len && Character.isDigit(line.charAt(pos))) {
+            pos++;
+        }
+        pos = skipSpaces(line, pos);
+        if (pos >= len || !charAt(line, pos + 1, ' ')) {
+            return false;
+        }
+        final byte level = LogLevel.fromLetter(line.charAt(pos));
+        if (level == LogLevel.UNKNOWN) {
+            return false;
+        }
+        final int colonIndex = line.indexOf(':', pos + 2);
+        if (colonIndex == -1) {
+            return false;
+        }
+        fields.pid = pid;
+        fields.level = level;
+        fields.tag = line.substring(pos + 2, colonIndex).trim();
+        return true;
+    }
+}
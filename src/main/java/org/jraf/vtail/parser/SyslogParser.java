@@ -0,0 +1,112 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright (C) 2010 Benoit 'BoD' Lubek (BoD@JRAF.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.vtail.parser;
+
+/**
+ * Parses BSD syslog lines (RFC 3164, as written in /var/log), with an optional {@code <PRI>} prefix. E.g.:
+ * 
+ * <pre>
+ * Oct 12 14:32:05 myhost sshd[1234]: Accepted publickey for bod
+ * &lt;28&gt;Oct 12 14:32:05 myhost kernel: Out of memory
+ * </pre>
+ */
+public class SyslogParser extends AbstractLineParser {
+    private static final String MONTHS = "JanFebMarAprMayJunJulAugSepOctNovDec";
+
+    @Override
+    public boolean parse(final String line, final LineFields fields) {
+        int pos = 0;
+        byte level = LogLevel.UNKNOWN;
+        if (charAt(line, 0, '<')) {
+            final int closingIndex = line.indexOf('>');
+            // 1 to 3 digits
+            if (closingIndex <= 1 || closingIndex > 4) {
+                return false;
+            }
+            final int pri = parseDigits(line, 1, closingIndex - 1);
+            if (pri == -1) {
+                return false;
+            }
+            level = fromSeverity(pri & 7);
+            pos = closingIndex + 1;
+        }
+
+        // Mmm dd HH:mm:ss (the day is padded with a space)
+        if (line.length() < pos + 16) {
+            return false;
+        }
+        final int monthIndex = MONTHS.indexOf(line.substring(pos, pos + 3));
+        if (monthIndex == -1 || monthIndex % 3 != 0) {
+            return false;
+        }
+        final int day = charAt(line, pos + 4, ' ') ? parseDigits(line, pos + 5, 1) : parseDigits(line, pos + 4, 2);
+        final int hour = parseDigits(line, pos + 7, 2);
+        final int minute = parseDigits(line, pos + 10, 2);
+        final int second = parseDigits(line, pos + 13, 2);
+        if (day == -1 || hour == -1 || minute == -1 || second == -1) {
+            return false;
+        }
+        fields.timestamp = toMillis(getCurrentYear(), monthIndex / 3 + 1, day, hour, minute, second, 0);
+        fields.level = level;
+
+        // host, then tag[pid]:
+        final int hostEnd = line.indexOf(' ', pos + 16);
+        if (hostEnd == -1) {
+            return true;
+        }
+        final int colonIndex = line.indexOf(':', hostEnd);
+        if (colonIndex == -1) {
+            return true;
+        }
+        final int bracketIndex = line.lastIndexOf('[', colonIndex);
+        if (bracketIndex > hostEnd && charAt(line, colonIndex - 1, ']')) {
+            fields.tag = line.substring(hostEnd + 1, bracketIndex);
+            final int pid = parseDigits(line, bracketIndex + 1, colonIndex - 2 - bracketIndex);
+            if (pid != -1) {
+                fields.pid = pid;
+            }
+        } else {
+            fields.tag = line.substring(hostEnd + 1, colonIndex);
+        }
+        return true;
+    }
+
+    private static byte fromSeverity(final int severity) {
+        switch (severity) {
+            case 0:
+            case 1:
+            case 2:
+                return LogLevel.FATAL;
+            case 3:
+                return LogLevel.ERROR;
+            case 4:
+                return LogLevel.WARN;
+            case 5:
+            case 6:
+                return LogLevel.INFO;
+        }
+        return LogLevel.DEBUG;
+    }
+}
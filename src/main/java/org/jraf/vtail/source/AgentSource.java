@@ -0,0 +1,208 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright (C) 2010 Benoit 'BoD' Lubek (BoD@JRAF.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.vtail.source;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Inflater;
+
+import org.jraf.vtail.agent.Agent;
+import org.jraf.vtail.agent.AgentProtocol;
+import org.jraf.vtail.misc.Config;
+import org.jraf.vtail.misc.Log;
+
+/**
+ * A source receiving the lines streamed by an {@link Agent}, and pushing the filter to it.<br/>
+ * The filter changes are sent by a thread of each connection, so that a stalled connection never blocks the caller.<br/>
+ * When the connection is lost, it connects again after a delay.
+ */
+public class AgentSource implements Source {
+    private static final String TAG = AgentSource.class.getName();
+
+    private static final long RECONNECT_DELAY_MS = 2000;
+
+    private final String mHost;
+    private final int mPort;
+    private final String mToken;
+    private final Object mLock = new Object();
+    private String mFilter = "";
+    private Socket mSocket;
+    private volatile boolean mStopped;
+
+    /**
+     * @param token The token given to the agent.
+     */
+    public AgentSource(final String host, final int port, final String token) {
+        mHost = host;
+        mPort = port;
+        mToken = token;
+    }
+
+    @Override
+    public String getName() {
+        return mHost + ":" + mPort;
+    }
+
+    /**
+     * Sets the filter applied by the agent: only lines containing this text (ignoring case) will be received. An empty filter lets all
+     * the lines through.<br/>
+     * Returns right away: the filter is sent in the background.
+     */
+    public void setFilter(final String filter) {
+        synchronized (mLock) {
+            if (filter.equals(mFilter)) {
+                return;
+            }
+            mFilter = filter;
+            mLock.notifyAll();
+        }
+    }
+
+    @Override
+    public void run(final LineSink lineSink) {
+        final Inflater inflater = new Inflater();
+        final List<String> lines = new ArrayList<String>();
+        try {
+            while (!mStopped) {
+                try {
+                    final DataInputStream in = connect();
+                    while (true) {
+                        lines.clear();
+                        AgentProtocol.readBatch(in, inflater, lines);
+                        for (final String line : lines) {
+                            lineSink.onLine(this, line);
+                        }
+                    }
+                } catch (final IOException e) {
+                    if (mStopped) {
+                        break;
+                    }
+                    Log.w(TAG, "Lost connection to " + getName() + ": reconnecting in " + RECONNECT_DELAY_MS + "ms");
+                } finally {
+                    disconnect();
+                }
+                final long reconnectTime = System.currentTimeMillis() + RECONNECT_DELAY_MS;
+                synchronized (mLock) {
+                    // the lock is also notified when the filter changes
+                    long delay;
+                    while (!mStopped && (delay = reconnectTime - System.currentTimeMillis()) > 0) {
+                        try {
+                            mLock.wait(delay);
+                        } catch (final InterruptedException e) {
+                            return;
+                        }
+                    }
+                }
+            }
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private DataInputStream connect() throws IOException {
+        final Socket socket = new Socket(mHost, mPort);
+        final String filter;
+        synchronized (mLock) {
+            mSocket = socket;
+            if (mStopped) {
+                throw new IOException("Stopped");
+            }
+            filter = mFilter;
+        }
+        socket.setTcpNoDelay(true);
+        final DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+        AgentProtocol.writeHello(out, mToken, filter);
+        final Thread filterThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                filterLoop(socket, out, filter);
+            }
+        }, "vtail-agent-filter-" + getName());
+        filterThread.setDaemon(true);
+        filterThread.start();
+        if (Config.LOGD) Log.d(TAG, "Connected to " + getName());
+        return new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+    }
+
+    /**
+     * Sends the filter each time it changes, until the given connection is closed.
+     */
+    private void filterLoop(final Socket socket, final DataOutputStream out, String sentFilter) {
+        try {
+            while (true) {
+                final String filter;
+                synchronized (mLock) {
+                    while (mSocket == socket && mFilter.equals(sentFilter)) {
+                        mLock.wait();
+                    }
+                    if (mSocket != socket) {
+                        return;
+                    }
+                    filter = mFilter;
+                }
+                AgentProtocol.writeFilter(out, filter);
+                sentFilter = filter;
+            }
+        } catch (final IOException e) {
+            // make the reading fail too, so that it reconnects
+            if (Config.LOGD) Log.d(TAG, "Cannot send filter to " + getName());
+            try {
+                socket.close();
+            } catch (final IOException e2) {
+                // what can you do
+            }
+        } catch (final InterruptedException e) {
+            // what can you do
+        }
+    }
+
+    private void disconnect() {
+        synchronized (mLock) {
+            mLock.notifyAll();
+            if (mSocket != null) {
+                try {
+                    mSocket.close();
+                } catch (final IOException e) {
+                    // what can you do
+                }
+                mSocket = null;
+            }
+        }
+    }
+
+    @Override
+    public void stop() {
+        synchronized (mLock) {
+            mStopped = true;
+            mLock.notifyAll();
+        }
+        disconnect();
+    }
+}
@@ -0,0 +1,368 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright (C) 2010 Benoit 'BoD' Lubek (BoD@JRAF.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.vtail.source;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+
+import org.jraf.vtail.misc.Config;
+import org.jraf.vtail.misc.Log;
+
+/**
+ * A source listening for log messages sent over the network (e.g. by syslog), on a TCP and/or UDP port.<br/>
+ * All the connections are handled by a single thread with a {@link Selector}. On TCP, messages are framed either by newlines or by octet
+ * counting ({@code "<length> <message>"}, RFC 6587), chosen once per connection from its first message. On UDP, each datagram holds one or several lines.<br/>
+ * Each line is tagged with the address of its sender, at its end so that the format parsers still work.
+ */
+public class NetworkSource implements Source {
+    private static final String TAG = NetworkSource.class.getName();
+
+    /**
+     * Longer messages are cut.
+     */
+    private static final int MAX_MESSAGE_SIZE = 64 * 1024;
+
+    public static final int DISABLED = -1;
+
+    private static final int FRAMING_UNKNOWN = 0;
+    private static final int FRAMING_NEWLINE = 1;
+    private static final int FRAMING_OCTET_COUNTING = 2;
+
+    /**
+     * A TCP connection, and the bytes received from it which are not a complete message yet.
+     */
+    private static class Connection {
+        final String sender;
+        final ByteBuffer buffer = ByteBuffer.allocate(MAX_MESSAGE_SIZE);
+        /**
+         * One of the FRAMING_ constants. Lines starting with a number (e.g. "200 OK") would be taken for lengths if it was chosen again
+         * for each message.
+         */
+        int framing = FRAMING_UNKNOWN;
+
+        Connection(final String sender) {
+            this.sender = sender;
+        }
+    }
+
+    private final String mCharset;
+    private final Selector mSelector;
+    private ServerSocketChannel mServerSocketChannel;
+    private DatagramChannel mDatagramChannel;
+    private final ByteBuffer mDatagramBuffer = ByteBuffer.allocate(MAX_MESSAGE_SIZE);
+    private volatile boolean mStopped;
+
+    /**
+     * Starts listening right away, so that errors (port already in use...) are reported to the caller.
+     * 
+     * @param tcpPort The TCP port to listen on, 0 for any free port, or {@link #DISABLED}.
+     * @param udpPort The UDP port to listen on, 0 for any free port, or {@link #DISABLED}.
+     */
+    public NetworkSource(final int tcpPort, final int udpPort, final String charset) throws IOException {
+        // fail early on a bad charset
+        "".getBytes(charset);
+        mCharset = charset;
+        mSelector = Selector.open();
+        try {
+            if (tcpPort != DISABLED) {
+                mServerSocketChannel = ServerSocketChannel.open();
+                mServerSocketChannel.socket().setReuseAddress(true);
+                mServerSocketChannel.socket().bind(new InetSocketAddress(tcpPort));
+                mServerSocketChannel.configureBlocking(false);
+                mServerSocketChannel.register(mSelector, SelectionKey.OP_ACCEPT);
+            }
+            if (udpPort != DISABLED) {
+                mDatagramChannel = DatagramChannel.open();
+                mDatagramChannel.socket().bind(new InetSocketAddress(udpPort));
+                mDatagramChannel.configureBlocking(false);
+                mDatagramChannel.register(mSelector, SelectionKey.OP_READ);
+            }
+        } catch (final IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the TCP port actually listened on, or {@link #DISABLED}.
+     */
+    public int getTcpPort() {
+        return mServerSocketChannel == null ? DISABLED : mServerSocketChannel.socket().getLocalPort();
+    }
+
+    /**
+     * @return the UDP port actually listened on, or {@link #DISABLED}.
+     */
+    public int getUdpPort() {
+        return mDatagramChannel == null ? DISABLED : mDatagramChannel.socket().getLocalPort();
+    }
+
+    @Override
+    public String getName() {
+        final StringBuilder res = new StringBuilder();
+        if (mServerSocketChannel != null) {
+            res.append("tcp:").append(getTcpPort());
+        }
+        if (mDatagramChannel != null) {
+            if (res.length() > 0) {
+                res.append(' ');
+            }
+            res.append("udp:").append(getUdpPort());
+        }
+        return res.toString();
+    }
+
+    @Override
+    public void run(final LineSink lineSink) {
+        try {
+            while (!mStopped) {
+                mSelector.select();
+                final Iterator<SelectionKey> iterator = mSelector.selectedKeys().iterator();
+                while (iterator.hasNext()) {
+                    final SelectionKey key = iterator.next();
+                    iterator.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else if (key.channel() == mDatagramChannel) {
+                        receiveDatagrams(lineSink);
+                    } else {
+                        readConnection(key, lineSink);
+                    }
+                }
+            }
+        } catch (final IOException e) {
+            if (!mStopped) {
+                Log.e(TAG, "Cannot listen anymore: giving up", e);
+            }
+        } finally {
+            close();
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel socketChannel;
+        while ((socketChannel = mServerSocketChannel.accept()) != null) {
+            socketChannel.configureBlocking(false);
+            final String sender = getSender(socketChannel.socket().getRemoteSocketAddress());
+            if (Config.LOGD) Log.d(TAG, "Connection from " + sender);
+            socketChannel.register(mSelector, SelectionKey.OP_READ, new Connection(sender));
+        }
+    }
+
+    private void readConnection(final SelectionKey key, final LineSink lineSink) throws UnsupportedEncodingException {
+        final SocketChannel socketChannel = (SocketChannel) key.channel();
+        final Connection connection = (Connection) key.attachment();
+        int read;
+        try {
+            read = socketChannel.read(connection.buffer);
+        } catch (final IOException e) {
+            read = -1;
+        }
+        connection.buffer.flip();
+        frame(connection, lineSink, read == -1);
+        connection.buffer.compact();
+        if (read == -1) {
+            if (Config.LOGD) Log.d(TAG, "End of connection from " + connection.sender);
+            key.cancel();
+            try {
+                socketChannel.close();
+            } catch (final IOException e) {
+                // what can you do
+            }
+        }
+    }
+
+    /**
+     * Gives the complete messages in the buffer (which is ready to be read) to the sink, leaving the incomplete one.
+     * 
+     * @param flush Whether to also give the incomplete message (at the end of the connection).
+     */
+    private void frame(final Connection connection, final LineSink lineSink, final boolean flush) throws UnsupportedEncodingException {
+        final ByteBuffer buffer = connection.buffer;
+        final byte[] bytes = buffer.array();
+        while (buffer.hasRemaining()) {
+            final int start = buffer.position();
+            final int limit = buffer.limit();
+            if (connection.framing == FRAMING_UNKNOWN) {
+                connection.framing = getFraming(bytes, start, limit);
+                if (connection.framing == FRAMING_UNKNOWN) {
+                    if (!flush) {
+                        // wait for the rest of the length
+                        return;
+                    }
+                    connection.framing = FRAMING_NEWLINE;
+                }
+                if (Config.LOGD) Log.d(TAG, connection.sender + " framing: " + connection.framing);
+            }
+            if (connection.framing == FRAMING_OCTET_COUNTING && bytes[start] >= '1' && bytes[start] <= '9') {
+                int pos = start;
+                int length = 0;
+                while (pos < limit && bytes[pos] >= '0' && bytes[pos] <= '9' && length < MAX_MESSAGE_SIZE) {
+                    length = length * 10 + bytes[pos] - '0';
+                    pos++;
+                }
+                if (pos == limit && !flush) {
+                    // wait for the rest of the length
+                    return;
+                }
+                if (pos < limit && bytes[pos] == ' ' && pos + 1 - start + length <= buffer.capacity()) {
+                    final int messageStart = pos + 1;
+                    if (messageStart + length > limit) {
+                        if (flush) {
+                            emit(connection.sender, bytes, messageStart, limit - messageStart, lineSink);
+                            buffer.position(limit);
+                        }
+                        return;
+                    }
+                    emit(connection.sender, bytes, messageStart, length, lineSink);
+                    buffer.position(messageStart + length);
+                    continue;
+                }
+                // not a valid length: take it as a line
+            }
+
+            int end = start;
+            while (end < limit && bytes[end] != '\n') {
+                end++;
+            }
+            if (end == limit) {
+                // no newline
+                if (flush || buffer.position() == 0 && limit == buffer.capacity()) {
+                    // end of the connection, or too long: take it as it is
+                    emit(connection.sender, bytes, start, limit - start, lineSink);
+                    buffer.position(limit);
+                }
+                return;
+            }
+            emit(connection.sender, bytes, start, end - start, lineSink);
+            buffer.position(end + 1);
+        }
+    }
+
+    /**
+     * @return how the messages starting at {@code start} are framed, or {@link #FRAMING_UNKNOWN} if more bytes are needed to know.
+     */
+    private static int getFraming(final byte[] bytes, final int start, final int limit) {
+        if (bytes[start] < '1' || bytes[start] > '9') {
+            return FRAMING_NEWLINE;
+        }
+        int pos = start;
+        while (pos < limit && bytes[pos] >= '0' && bytes[pos] <= '9') {
+            pos++;
+        }
+        if (pos == limit) {
+            return pos - start > 5 ? FRAMING_NEWLINE : FRAMING_UNKNOWN;
+        }
+        return bytes[pos] == ' ' ? FRAMING_OCTET_COUNTING : FRAMING_NEWLINE;
+    }
+
+    private void receiveDatagrams(final LineSink lineSink) throws IOException {
+        SocketAddress address;
+        while (true) {
+            mDatagramBuffer.clear();
+            address = mDatagramChannel.receive(mDatagramBuffer);
+            if (address == null) {
+                return;
+            }
+            final String sender = getSender(address);
+            final byte[] bytes = mDatagramBuffer.array();
+            final int limit = mDatagramBuffer.position();
+            int start = 0;
+            for (int i = 0; i <= limit; i++) {
+                if (i == limit || bytes[i] == '\n') {
+                    emit(sender, bytes, start, i - start, lineSink);
+                    start = i + 1;
+                }
+            }
+        }
+    }
+
+    private void emit(final String sender, final byte[] bytes, final int start, int length, final LineSink lineSink)
+            throws UnsupportedEncodingException {
+        // the message may end with a newline (octet counting) or a CR (newline framing)
+        while (length > 0 && (bytes[start + length - 1] == '\n' || bytes[start + length - 1] == '\r')) {
+            length--;
+        }
+        if (length == 0) {
+            return;
+        }
+        lineSink.onLine(this, new String(bytes, start, length, mCharset) + " [" + sender + "]");
+    }
+
+    private static String getSender(final SocketAddress socketAddress) {
+        if (socketAddress instanceof InetSocketAddress) {
+            final InetAddress address = ((InetSocketAddress) socketAddress).getAddress();
+            if (address != null) {
+                return address.getHostAddress();
+            }
+        }
+        return String.valueOf(socketAddress);
+    }
+
+    private void close() {
+        for (final SelectionKey key : mSelector.keys()) {
+            try {
+                key.channel().close();
+            } catch (final IOException e) {
+                // what can you do
+            }
+        }
+        try {
+            mSelector.close();
+        } catch (final IOException e) {
+            // what can you do
+        }
+        // in case they were not registered yet
+        try {
+            if (mServerSocketChannel != null) {
+                mServerSocketChannel.close();
+            }
+            if (mDatagramChannel != null) {
+                mDatagramChannel.close();
+            }
+        } catch (final IOException e) {
+            // what can you do
+        }
+    }
+
+    @Override
+    public void stop() {
+        mStopped = true;
+        mSelector.wakeup();
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright (C) 2010 Benoit 'BoD' Lubek (BoD@JRAF.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.vtail.source;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jraf.vtail.misc.Config;
+import org.jraf.vtail.misc.Log;
+
+/**
+ * A source running a command and reading its output (stdout and stderr, merged).<br/>
+ * When the command exits (e.g. adb losing the device), it is started again after a delay, which doubles after each quick exit. The lines
+ * that were already read are kept.
+ */
+public class ProcessSource implements Source {
+    private static final String TAG = ProcessSource.class.getName();
+
+    private static final long MIN_BACKOFF_MS = 500;
+    private static final long MAX_BACKOFF_MS = 30000;
+
+    /**
+     * A command running at least this long is considered to have worked, and the delay goes back to its minimum.
+     */
+    private static final long STABLE_RUN_MS = 10000;
+
+    private final List<String> mCommand;
+    private final String mCharset;
+    private final Object mLock = new Object();
+    private Process mProcess;
+    private volatile boolean mStopped;
+    private int mStartCount;
+
+    public ProcessSource(final List<String> command, final String charset) {
+        mCommand = command;
+        mCharset = charset;
+    }
+
+    /**
+     * @param command The command line, split like a shell would (see {@link #splitCommand(String)}).
+     */
+    public ProcessSource(final String command, final String charset) {
+        this(splitCommand(command), charset);
+    }
+
+    /**
+     * Splits a command line into its arguments, on whitespace. Like in a shell, single quotes keep everything as is, double quotes keep
+     * whitespace and single quotes, and a backslash escapes the next character (only {@code "} and {@code \} inside double quotes).<br/>
+     * Nothing else is interpreted: no variables, globs or redirections.
+     */
+    public static List<String> splitCommand(final String command) {
+        final List<String> res = new ArrayList<String>();
+        final StringBuilder argument = new StringBuilder();
+        // true as soon as the argument has started, so that "" is an (empty) argument
+        boolean inArgument = false;
+        char quote = 0;
+        final int length = command.length();
+        for (int i = 0; i < length; i++) {
+            final char c = command.charAt(i);
+            if (quote == '\'') {
+                if (c == '\'') {
+                    quote = 0;
+                } else {
+                    argument.append(c);
+                }
+            } else if (quote == '"') {
+                if (c == '"') {
+                    quote = 0;
+                } else if (c == '\\' && i + 1 < length && (command.charAt(i + 1) == '"' || command.charAt(i + 1) == '\\')) {
+                    argument.append(command.charAt(++i));
+                } else {
+                    argument.append(c);
+                }
+            } else if (Character.isWhitespace(c)) {
+                if (inArgument) {
+                    res.add(argument.toString());
+                    argument.setLength(0);
+                    inArgument = false;
+                }
+            } else {
+                inArgument = true;
+                if (c == '\'' || c == '"') {
+                    quote = c;
+                } else if (c == '\\' && i + 1 < length) {
+                    argument.append(command.charAt(++i));
+                } else {
+                    argument.append(c);
+                }
+            }
+        }
+        if (quote != 0) {
+            throw new IllegalArgumentException("Unclosed quote in " + command);
+        }
+        if (inArgument) {
+            res.add(argument.toString());
+        }
+        return res;
+    }
+
+    @Override
+    public String getName() {
+        return mCommand.get(0);
+    }
+
+    /**
+     * @return how many times the command was started.
+     */
+    public synchronized int getStartCount() {
+        return mStartCount;
+    }
+
+    @Override
+    public void run(final LineSink lineSink) {
+        long backoffMs = MIN_BACKOFF_MS;
+        while (!mStopped) {
+            final long startTime = System.currentTimeMillis();
+            try {
+                runOnce(lineSink);
+            } catch (final IOException e) {
+                Log.w(TAG, "Cannot run " + mCommand, e);
+            }
+            if (mStopped) {
+                break;
+            }
+            if (System.currentTimeMillis() - startTime >= STABLE_RUN_MS) {
+                backoffMs = MIN_BACKOFF_MS;
+            }
+            Log.w(TAG, mCommand + " exited: restarting in " + backoffMs + "ms");
+            synchronized (mLock) {
+                if (!mStopped) {
+                    try {
+                        mLock.wait(backoffMs);
+                    } catch (final InterruptedException e) {
+                        break;
+                    }
+                }
+            }
+            backoffMs = Math.min(backoffMs * 2, MAX_BACKOFF_MS);
+        }
+    }
+
+    private void runOnce(final LineSink lineSink) throws IOException {
+        final ProcessBuilder processBuilder = new ProcessBuilder(mCommand);
+        processBuilder.redirectErrorStream(true);
+        final Process process;
+        synchronized (mLock) {
+            if (mStopped) {
+                return;
+            }
+            process = processBuilder.start();
+            mProcess = process;
+        }
+        synchronized (this) {
+            mStartCount++;
+        }
+        if (Config.LOGD) Log.d(TAG, "Started " + mCommand);
+        process.getOutputStream().close();
+        final BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(process.getInputStream(), mCharset));
+        try {
+            String line;
+            while ((line = bufferedReader.readLine()) != null) {
+                lineSink.onLine(this, line);
+            }
+        } catch (final IOException e) {
+            if (!mStopped) {
+                throw e;
+            }
+        } finally {
+            bufferedReader.close();
+            process.destroy();
+            synchronized (mLock) {
+                mProcess = null;
+            }
+        }
+    }
+
+    @Override
+    public void stop() {
+        synchronized (mLock) {
+            mStopped = true;
+            if (mProcess != null) {
+                mProcess.destroy();
+            }
+            mLock.notifyAll();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright (C) 2010 Benoit 'BoD' Lubek (BoD@JRAF.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.vtail.source;
+
+/**
+ * An input of lines (a file, the standard input, a process...), run by a {@link SourceScheduler}.
+ */
+public interface Source {
+    /**
+     * Receives the lines read by a source.<br/>
+     * It is called from the thread of the source, and can be shared by several sources.
+     */
+    public interface LineSink {
+        void onLine(Source source, String line);
+    }
+
+    /**
+     * @return a short name for this source, used to name its thread.
+     */
+    String getName();
+
+    /**
+     * Reads lines and gives them to the sink, until the end of the input or until {@link #stop()} is called.
+     */
+    void run(LineSink lineSink);
+
+    /**
+     * Makes {@link #run(LineSink)} return as soon as possible. Can be called from any thread.
+     */
+    void stop();
+}
@@ -0,0 +1,127 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright (C) 2010 Benoit 'BoD' Lubek (BoD@JRAF.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.vtail.source;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jraf.vtail.misc.Config;
+import org.jraf.vtail.misc.Log;
+
+/**
+ * Runs the sources, each one in its own named daemon thread of a pool, all feeding the same {@link Source.LineSink}.<br/>
+ * The threads are created with a small stack, since sources spend their time blocked on reads, so that many sources stay cheap.
+ */
+public class SourceScheduler {
+    private static final String TAG = SourceScheduler.class.getName();
+
+    /**
+     * Stack size requested for the source threads (the VM may ignore it).
+     */
+    private static final long STACK_SIZE = 128 * 1024;
+
+    private final Source.LineSink mLineSink;
+    private final ExecutorService mExecutorService;
+    private final List<Source> mSources = new ArrayList<Source>();
+    private boolean mShutdown;
+
+    public SourceScheduler(final Source.LineSink lineSink) {
+        mLineSink = lineSink;
+        mExecutorService = Executors.newCachedThreadPool(new ThreadFactory() {
+            private final AtomicInteger mCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(null, runnable, "vtail-source-" + mCount.incrementAndGet(), STACK_SIZE);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Starts running the given source.
+     */
+    public synchronized void start(final Source source) {
+        if (mShutdown) {
+            throw new IllegalStateException("Scheduler is shut down");
+        }
+        mSources.add(source);
+        mExecutorService.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Thread thread = Thread.currentThread();
+                final String threadName = thread.getName();
+                thread.setName(threadName + "-" + source.getName());
+                if (Config.LOGD) Log.d(TAG, "Start source " + source.getName());
+                try {
+                    source.run(mLineSink);
+                } finally {
+                    if (Config.LOGD) Log.d(TAG, "End of source " + source.getName());
+                    thread.setName(threadName);
+                    remove(source);
+                }
+            }
+        });
+    }
+
+    private synchronized void remove(final Source source) {
+        mSources.remove(source);
+    }
+
+    /**
+     * @return the number of sources currently running.
+     */
+    public synchronized int getSourceCount() {
+        return mSources.size();
+    }
+
+    /**
+     * Stops all the sources and waits for their threads to end (at most {@code timeoutMs}).
+     * 
+     * @return {@code true} if all the threads ended in time.
+     */
+    public boolean shutdown(final long timeoutMs) {
+        final ArrayList<Source> sources;
+        synchronized (this) {
+            mShutdown = true;
+            sources = new ArrayList<Source>(mSources);
+        }
+        for (final Source source : sources) {
+            source.stop();
+        }
+        mExecutorService.shutdownNow();
+        try {
+            return mExecutorService.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (final InterruptedException e) {
+            return false;
+        }
+    }
+}
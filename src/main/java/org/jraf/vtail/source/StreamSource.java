@@ -0,0 +1,92 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright (C) 2010 Benoit 'BoD' Lubek (BoD@JRAF.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.vtail.source;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
+
+import org.jraf.vtail.misc.Config;
+import org.jraf.vtail.misc.Log;
+
+/**
+ * A source reading the lines of an {@link InputStream}.
+ */
+public class StreamSource implements Source {
+    private static final String TAG = StreamSource.class.getName();
+
+    private final String mName;
+    private final InputStream mInputStream;
+    private final BufferedReader mBufferedReader;
+    private volatile boolean mStopped;
+
+    public StreamSource(final String name, final InputStream inputStream, final String charset) throws UnsupportedEncodingException {
+        mName = name;
+        mInputStream = inputStream;
+        mBufferedReader = new BufferedReader(new InputStreamReader(inputStream, charset));
+    }
+
+    @Override
+    public String getName() {
+        return mName;
+    }
+
+    @Override
+    public void run(final LineSink lineSink) {
+        while (!mStopped) {
+            String line = null;
+            try {
+                line = mBufferedReader.readLine();
+            } catch (final IOException e) {
+                if (!mStopped) {
+                    Log.e(TAG, "Cannot read next line from " + mName + ": giving up", e);
+                }
+                // give up
+                return;
+            }
+
+            if (line == null) {
+                // end of stream
+                if (Config.LOGD) Log.d(TAG, "End of stream " + mName);
+                break;
+            }
+
+            lineSink.onLine(this, line);
+        }
+    }
+
+    @Override
+    public void stop() {
+        mStopped = true;
+        try {
+            // unblocks the read
+            mInputStream.close();
+        } catch (final IOException e) {
+            // what can you do
+        }
+    }
+}
@@ -0,0 +1,459 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright (C) 2010 Benoit 'BoD' Lubek (BoD@JRAF.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.vtail.store;
+
+import java.util.Arrays;
+
+/**
+ * A set of non negative ints (line indexes), stored as chunks of 65536 bits, like a Roaring bitmap. Empty chunks are not allocated, and a
+ * chunk with few bits set is a sorted array of their offsets (2 bytes per bit) rather than a bitmap (8 KB), so a bitmap for a rare value
+ * over millions of lines stays small. {@link #and(ChunkedBitmap)} / {@link #or(ChunkedBitmap)} skip the empty chunks.<br/>
+ * The chunks before the first one allocated are not looked at, so clearing the oldest bits as lines are evicted doesn't get slower with
+ * time.<br/>
+ * Not thread safe.
+ */
+public class ChunkedBitmap {
+    private static final int CHUNK_SHIFT = 16;
+    static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int WORDS_PER_CHUNK = CHUNK_SIZE >>> 6;
+
+    /**
+     * Above this many bits set, a chunk is a bitmap: it then takes less memory than the array.
+     */
+    private static final int MAX_ARRAY_SIZE = 4096;
+
+    /**
+     * The bits set in a chunk, as offsets from the start of the chunk.
+     */
+    private abstract static class Container {
+        /**
+         * @return the container holding the bits: this one, or a new one if this one can't hold one more bit.
+         */
+        abstract Container set(int offset);
+
+        abstract boolean get(int offset);
+
+        /**
+         * @return the first offset set at or after {@code from}, or -1 if there is none.
+         */
+        abstract int next(int from);
+
+        abstract int cardinality();
+
+        /**
+         * Clears the offsets below {@code offset}.
+         * 
+         * @return the container holding the remaining bits, or {@code null} if there are none.
+         */
+        abstract Container clearBefore(int offset);
+
+        abstract Container copy();
+
+        abstract long getMemoryEstimate();
+    }
+
+    private static final class ArrayContainer extends Container {
+        char[] mValues;
+        int mSize;
+
+        ArrayContainer(final int capacity) {
+            mValues = new char[capacity];
+        }
+
+        @Override
+        Container set(final int offset) {
+            int index;
+            if (mSize == 0 || mValues[mSize - 1] < offset) {
+                // the lines are added in order: most of the time, at the end
+                index = mSize;
+            } else {
+                index = Arrays.binarySearch(mValues, 0, mSize, (char) offset);
+                if (index >= 0) {
+                    return this;
+                }
+                index = -index - 1;
+            }
+            if (mSize == MAX_ARRAY_SIZE) {
+                final BitmapContainer res = new BitmapContainer();
+                for (int i = 0; i < mSize; i++) {
+                    res.set(mValues[i]);
+                }
+                res.set(offset);
+                return res;
+            }
+            if (mSize == mValues.length) {
+                mValues = Arrays.copyOf(mValues, Math.min(MAX_ARRAY_SIZE, mValues.length * 2));
+            }
+            System.arraycopy(mValues, index, mValues, index + 1, mSize - index);
+            mValues[index] = (char) offset;
+            mSize++;
+            return this;
+        }
+
+        @Override
+        boolean get(final int offset) {
+            return Arrays.binarySearch(mValues, 0, mSize, (char) offset) >= 0;
+        }
+
+        @Override
+        int next(final int from) {
+            if (from >= CHUNK_SIZE) {
+                return -1;
+            }
+            int index = Arrays.binarySearch(mValues, 0, mSize, (char) from);
+            if (index < 0) {
+                index = -index - 1;
+            }
+            return index < mSize ? mValues[index] : -1;
+        }
+
+        @Override
+        int cardinality() {
+            return mSize;
+        }
+
+        @Override
+        Container clearBefore(final int offset) {
+            int index = Arrays.binarySearch(mValues, 0, mSize, (char) offset);
+            if (index < 0) {
+                index = -index - 1;
+            }
+            if (index == mSize) {
+                return null;
+            }
+            System.arraycopy(mValues, index, mValues, 0, mSize - index);
+            mSize -= index;
+            return this;
+        }
+
+        @Override
+        Container copy() {
+            final ArrayContainer res = new ArrayContainer(0);
+            res.mValues = Arrays.copyOf(mValues, mSize);
+            res.mSize = mSize;
+            return res;
+        }
+
+        @Override
+        long getMemoryEstimate() {
+            return 16 + 2L * mValues.length;
+        }
+    }
+
+    private static final class BitmapContainer extends Container {
+        final long[] mWords = new long[WORDS_PER_CHUNK];
+        int mCardinality;
+
+        @Override
+        Container set(final int offset) {
+            final long mask = 1L << offset;
+            if ((mWords[offset >>> 6] & mask) == 0) {
+                mWords[offset >>> 6] |= mask;
+                mCardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        boolean get(final int offset) {
+            return (mWords[offset >>> 6] & 1L << offset) != 0;
+        }
+
+        @Override
+        int next(final int from) {
+            if (from >= CHUNK_SIZE) {
+                return -1;
+            }
+            int wordIndex = from >>> 6;
+            long word = mWords[wordIndex] & -1L << from;
+            while (word == 0) {
+                if (++wordIndex == WORDS_PER_CHUNK) {
+                    return -1;
+                }
+                word = mWords[wordIndex];
+            }
+            return (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+        }
+
+        @Override
+        int cardinality() {
+            return mCardinality;
+        }
+
+        @Override
+        Container clearBefore(final int offset) {
+            final int wordIndex = offset >>> 6;
+            Arrays.fill(mWords, 0, wordIndex, 0L);
+            mWords[wordIndex] &= -1L << offset;
+            return optimize();
+        }
+
+        /**
+         * Counts the bits again, after the words were changed directly.
+         * 
+         * @return the container holding the bits: this one, an array one if there are few of them, or {@code null} if there are none.
+         */
+        Container optimize() {
+            int cardinality = 0;
+            for (final long word : mWords) {
+                cardinality += Long.bitCount(word);
+            }
+            mCardinality = cardinality;
+            if (cardinality == 0) {
+                return null;
+            }
+            if (cardinality > MAX_ARRAY_SIZE) {
+                return this;
+            }
+            final ArrayContainer res = new ArrayContainer(cardinality);
+            for (int offset = next(0); offset != -1; offset = next(offset + 1)) {
+                res.mValues[res.mSize++] = (char) offset;
+            }
+            return res;
+        }
+
+        @Override
+        Container copy() {
+            final BitmapContainer res = new BitmapContainer();
+            System.arraycopy(mWords, 0, res.mWords, 0, WORDS_PER_CHUNK);
+            res.mCardinality = mCardinality;
+            return res;
+        }
+
+        @Override
+        long getMemoryEstimate() {
+            return 16 + 8L * WORDS_PER_CHUNK;
+        }
+    }
+
+    private Container[] mChunks = new Container[4];
+    // all the chunks before this one are null
+    private int mFirstChunk;
+
+    public ChunkedBitmap() {}
+
+    public ChunkedBitmap(final ChunkedBitmap other) {
+        mChunks = new Container[other.mChunks.length];
+        for (int i = other.mFirstChunk; i < mChunks.length; i++) {
+            if (other.mChunks[i] != null) {
+                mChunks[i] = other.mChunks[i].copy();
+            }
+        }
+        mFirstChunk = other.mFirstChunk;
+    }
+
+    public void set(final int bit) {
+        final int chunkIndex = bit >>> CHUNK_SHIFT;
+        if (chunkIndex >= mChunks.length) {
+            mChunks = Arrays.copyOf(mChunks, Math.max(chunkIndex + 1, mChunks.length * 2));
+        }
+        Container chunk = mChunks[chunkIndex];
+        if (chunk == null) {
+            chunk = new ArrayContainer(4);
+            if (chunkIndex < mFirstChunk || isEmpty()) {
+                mFirstChunk = chunkIndex;
+            }
+        }
+        mChunks[chunkIndex] = chunk.set(bit & CHUNK_SIZE - 1);
+    }
+
+    public boolean get(final int bit) {
+        final int chunkIndex = bit >>> CHUNK_SHIFT;
+        if (chunkIndex >= mChunks.length || mChunks[chunkIndex] == null) {
+            return false;
+        }
+        return mChunks[chunkIndex].get(bit & CHUNK_SIZE - 1);
+    }
+
+    /**
+     * @return the first bit set at or after {@code from}, or -1 if there is none.
+     */
+    public int nextSetBit(final int from) {
+        int chunkIndex = from >>> CHUNK_SHIFT;
+        int offset = from & CHUNK_SIZE - 1;
+        if (chunkIndex < mFirstChunk) {
+            chunkIndex = mFirstChunk;
+            offset = 0;
+        }
+        for (; chunkIndex < mChunks.length; chunkIndex++, offset = 0) {
+            final Container chunk = mChunks[chunkIndex];
+            if (chunk != null) {
+                final int next = chunk.next(offset);
+                if (next != -1) {
+                    return (chunkIndex << CHUNK_SHIFT) + next;
+                }
+            }
+        }
+        return -1;
+    }
+
+    public int cardinality() {
+        int res = 0;
+        for (int i = mFirstChunk; i < mChunks.length; i++) {
+            if (mChunks[i] != null) {
+                res += mChunks[i].cardinality();
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Keeps only the bits that are also set in {@code other}.
+     */
+    public void and(final ChunkedBitmap other) {
+        for (int i = mFirstChunk; i < mChunks.length; i++) {
+            final Container chunk = mChunks[i];
+            if (chunk == null) {
+                continue;
+            }
+            final Container otherChunk = i < other.mChunks.length ? other.mChunks[i] : null;
+            mChunks[i] = otherChunk == null ? null : and(chunk, otherChunk);
+        }
+    }
+
+    /**
+     * @return the bits set in both containers, in a new container (or {@code a}), or {@code null} if there are none.
+     */
+    private static Container and(final Container a, final Container b) {
+        if (a instanceof ArrayContainer || b instanceof ArrayContainer) {
+            final ArrayContainer array = (ArrayContainer) (a instanceof ArrayContainer ? a : b);
+            final Container filter = array == a ? b : a;
+            final ArrayContainer res = new ArrayContainer(array.mSize);
+            for (int i = 0; i < array.mSize; i++) {
+                if (filter.get(array.mValues[i])) {
+                    res.mValues[res.mSize++] = array.mValues[i];
+                }
+            }
+            return res.mSize == 0 ? null : res;
+        }
+        final long[] words = ((BitmapContainer) a).mWords;
+        final long[] otherWords = ((BitmapContainer) b).mWords;
+        for (int j = 0; j < WORDS_PER_CHUNK; j++) {
+            words[j] &= otherWords[j];
+        }
+        return ((BitmapContainer) a).optimize();
+    }
+
+    /**
+     * Adds the bits set in {@code other}.
+     */
+    public void or(final ChunkedBitmap other) {
+        if (other.mChunks.length > mChunks.length) {
+            mChunks = Arrays.copyOf(mChunks, other.mChunks.length);
+        }
+        final boolean empty = isEmpty();
+        for (int i = other.mFirstChunk; i < other.mChunks.length; i++) {
+            final Container otherChunk = other.mChunks[i];
+            if (otherChunk == null) {
+                continue;
+            }
+            final Container chunk = mChunks[i];
+            mChunks[i] = chunk == null ? otherChunk.copy() : or(chunk, otherChunk);
+        }
+        if (!other.isEmpty() && (empty || other.mFirstChunk < mFirstChunk)) {
+            mFirstChunk = other.mFirstChunk;
+        }
+    }
+
+    /**
+     * @return the bits set in either container, in {@code a} or a new container. {@code b} is not modified.
+     */
+    private static Container or(final Container a, final Container b) {
+        if (b instanceof BitmapContainer) {
+            final BitmapContainer res = (BitmapContainer) (a instanceof BitmapContainer ? a : b.copy());
+            final long[] otherWords = ((BitmapContainer) b).mWords;
+            if (a instanceof BitmapContainer) {
+                for (int j = 0; j < WORDS_PER_CHUNK; j++) {
+                    res.mWords[j] |= otherWords[j];
+                }
+                res.optimize();
+            } else {
+                final ArrayContainer array = (ArrayContainer) a;
+                for (int i = 0; i < array.mSize; i++) {
+                    res.set(array.mValues[i]);
+                }
+            }
+            return res;
+        }
+        final ArrayContainer array = (ArrayContainer) b;
+        Container res = a;
+        for (int i = 0; i < array.mSize; i++) {
+            res = res.set(array.mValues[i]);
+        }
+        return res;
+    }
+
+    /**
+     * Clears all the bits below {@code bit}, freeing the chunks that become empty. Used when the oldest lines are evicted.
+     */
+    public void clearBefore(final int bit) {
+        final int chunkIndex = bit >>> CHUNK_SHIFT;
+        for (int i = mFirstChunk; i < chunkIndex && i < mChunks.length; i++) {
+            mChunks[i] = null;
+        }
+        if (chunkIndex < mChunks.length && mChunks[chunkIndex] != null) {
+            mChunks[chunkIndex] = mChunks[chunkIndex].clearBefore(bit & CHUNK_SIZE - 1);
+        }
+        mFirstChunk = Math.max(mFirstChunk, Math.min(chunkIndex, mChunks.length));
+    }
+
+    /**
+     * Removes the first {@code count} chunks, which must be empty: all the bits decrease by {@code count * CHUNK_SIZE}.
+     */
+    public void removeFirstChunks(final int count) {
+        mChunks = Arrays.copyOfRange(mChunks, Math.min(count, mChunks.length), Math.max(mChunks.length, count + 4));
+        mFirstChunk = Math.max(0, mFirstChunk - count);
+    }
+
+    /**
+     * @return {@code true} if no bit is set.
+     */
+    public boolean isEmpty() {
+        for (int i = mFirstChunk; i < mChunks.length; i++) {
+            if (mChunks[i] != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return roughly how many bytes the chunks take.
+     */
+    public long getMemoryEstimate() {
+        long res = 0;
+        for (int i = mFirstChunk; i < mChunks.length; i++) {
+            if (mChunks[i] != null) {
+                res += mChunks[i].getMemoryEstimate();
+            }
+        }
+        return res;
+    }
+
+    public void clear() {
+        mChunks = new Container[4];
+        mFirstChunk = 0;
+    }
+}
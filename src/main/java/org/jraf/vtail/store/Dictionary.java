@@ -0,0 +1,92 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright (C) 2010 Benoit 'BoD' Lubek (BoD@JRAF.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.vtail.store;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Assigns a small integer id to each distinct string, so that it is stored only once and can be compared as an int.<br/>
+ * The ids are never reused. The number of distinct values can be capped, the values beyond the cap getting no id.
+ */
+public class Dictionary {
+    public static final int NO_ID = -1;
+
+    private final int mMaxSize;
+    private final HashMap<String, Integer> mIds = new HashMap<String, Integer>();
+    private final ArrayList<String> mValues = new ArrayList<String>();
+
+    public Dictionary() {
+        this(Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param maxSize How many distinct values to give an id to, at most.
+     */
+    public Dictionary(final int maxSize) {
+        mMaxSize = maxSize;
+    }
+
+    /**
+     * @return the id of the given value, creating it if needed, or {@link #NO_ID} for {@code null} or if the dictionary is full.
+     */
+    public synchronized int getOrCreateId(final String value) {
+        if (value == null) {
+            return NO_ID;
+        }
+        final Integer id = mIds.get(value);
+        if (id != null) {
+            return id;
+        }
+        if (mValues.size() >= mMaxSize) {
+            return NO_ID;
+        }
+        final int res = mValues.size();
+        mValues.add(value);
+        mIds.put(value, res);
+        return res;
+    }
+
+    /**
+     * @return the id of the given value, or {@link #NO_ID} if it is not known.
+     */
+    public synchronized int getId(final String value) {
+        final Integer id = mIds.get(value);
+        return id == null ? NO_ID : id;
+    }
+
+    public synchronized String getValue(final int id) {
+        return id == NO_ID ? null : mValues.get(id);
+    }
+
+    public synchronized int size() {
+        return mValues.size();
+    }
+
+    public synchronized void clear() {
+        mIds.clear();
+        mValues.clear();
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright (C) 2010 Benoit 'BoD' Lubek (BoD@JRAF.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.vtail.store;
+
+import java.util.ArrayList;
+
+import org.jraf.vtail.parser.LogLevel;
+
+/**
+ * For each level and each tag, a bitmap of the indexes of the lines having it. This allows to find the lines matching a selection of levels
+ * and tags with a few bitmap operations, without looking at the lines.<br/>
+ * Not thread safe: it is maintained by, and synchronized with, the {@link LineStore}.
+ */
+public class FacetIndex {
+    private final ChunkedBitmap[] mLevelBitmaps = new ChunkedBitmap[LogLevel.COUNT];
+    private final ArrayList<ChunkedBitmap> mTagBitmaps = new ArrayList<ChunkedBitmap>();
+
+    public FacetIndex() {
+        for (int i = 0; i < mLevelBitmaps.length; i++) {
+            mLevelBitmaps[i] = new ChunkedBitmap();
+        }
+    }
+
+    void add(final int index, final byte level, final int tagId) {
+        mLevelBitmaps[level].set(index);
+        if (tagId != Dictionary.NO_ID) {
+            while (mTagBitmaps.size() <= tagId) {
+                mTagBitmaps.add(null);
+            }
+            ChunkedBitmap bitmap = mTagBitmaps.get(tagId);
+            if (bitmap == null) {
+                bitmap = new ChunkedBitmap();
+                mTagBitmaps.set(tagId, bitmap);
+            }
+            bitmap.set(index);
+        }
+    }
+
+    /**
+     * @return the indexes of the lines having one of the selected levels and, if {@code tagIds} is not {@code null}, one of the given tags.
+     */
+    public ChunkedBitmap select(final boolean[] levels, final int[] tagIds) {
+        final ChunkedBitmap res = new ChunkedBitmap();
+        for (int i = 0; i < mLevelBitmaps.length; i++) {
+            if (levels[i]) {
+                res.or(mLevelBitmaps[i]);
+            }
+        }
+        if (tagIds != null) {
+            final ChunkedBitmap tags = new ChunkedBitmap();
+            for (final int tagId : tagIds) {
+                if (tagId >= 0 && tagId < mTagBitmaps.size() && mTagBitmaps.get(tagId) != null) {
+                    tags.or(mTagBitmaps.get(tagId));
+                }
+            }
+            res.and(tags);
+        }
+        return res;
+    }
+
+    void clearBefore(final int index) {
+        for (final ChunkedBitmap bitmap : mLevelBitmaps) {
+            bitmap.clearBefore(index);
+        }
+        for (int i = 0, len = mTagBitmaps.size(); i < len; i++) {
+            final ChunkedBitmap bitmap = mTagBitmaps.get(i);
+            if (bitmap != null) {
+                bitmap.clearBefore(index);
+                if (bitmap.isEmpty()) {
+                    // the tag has no line left
+                    mTagBitmaps.set(i, null);
+                }
+            }
+        }
+    }
+
+    /**
+     * All the indexes decrease by {@code delta}, which must be a multiple of {@link ChunkedBitmap#CHUNK_SIZE} and not larger than the
+     * first index kept.
+     */
+    void rebase(final int delta) {
+        final int chunkCount = delta / ChunkedBitmap.CHUNK_SIZE;
+        for (final ChunkedBitmap bitmap : mLevelBitmaps) {
+            bitmap.removeFirstChunks(chunkCount);
+        }
+        for (final ChunkedBitmap bitmap : mTagBitmaps) {
+            if (bitmap != null) {
+                bitmap.removeFirstChunks(chunkCount);
+            }
+        }
+    }
+
+    /**
+     * @return roughly how many bytes the bitmaps take.
+     */
+    long getMemoryEstimate() {
+        long res = 0;
+        for (final ChunkedBitmap bitmap : mLevelBitmaps) {
+            res += bitmap.getMemoryEstimate();
+        }
+        for (final ChunkedBitmap bitmap : mTagBitmaps) {
+            if (bitmap != null) {
+                res += bitmap.getMemoryEstimate();
+            }
+        }
+        return res;
+    }
+
+    void clear() {
+        for (final ChunkedBitmap bitmap : mLevelBitmaps) {
+            bitmap.clear();
+        }
+        mTagBitmaps.clear();
+    }
+}
@@ -0,0 +1,281 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright (C) 2010 Benoit 'BoD' Lubek (BoD@JRAF.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.vtail.store;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.jraf.vtail.misc.Log;
+
+/**
+ * The lines of a {@link LineStore}, by blocks of {@link #BLOCK_SIZE} lines. Only the most recent blocks are kept as strings: older ones are
+ * compressed (logs typically compress 5 to 10 times), with a preset dictionary taken from the lines of the most recent full block, since
+ * a block alone is too small for the compression to learn much. The compressed blocks which are read are decompressed into a small cache, so that reading them in
+ * order (e.g. when filtering) only decompresses each block once.<br/>
+ * Not thread safe: it is used while synchronized on the store.
+ */
+class LineBlocks {
+    private static final String TAG = LineBlocks.class.getName();
+
+    static final int BLOCK_SIZE = 2048;
+    private static final int HOT_BLOCK_COUNT = 2;
+    private static final int CACHE_BLOCK_COUNT = 8;
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+    // the dictionary is taken again from the recent lines every this many blocks
+    private static final int DICTIONARY_BLOCK_COUNT = 16;
+
+    private static class Block {
+        private String[] mLines = new String[BLOCK_SIZE];
+        private int mCharCount;
+        private byte[] mCompressed;
+        private int mUncompressedLength;
+        private byte[] mDictionary;
+    }
+
+    private final boolean mCompress;
+    private final ArrayList<Block> mBlocks = new ArrayList<Block>();
+    // index of the first line in the first block (the ones before have been removed)
+    private int mOffset;
+    private int mSize;
+    private int mHotBlockCount;
+    private long mHotCharCount;
+    private long mCompressedByteCount;
+    private byte[] mDictionary;
+    private int mDictionaryUseCount;
+    private final Deflater mDeflater = new Deflater(Deflater.BEST_SPEED);
+    private final Inflater mInflater = new Inflater();
+
+    private final LinkedHashMap<Block, String[]> mCache = new LinkedHashMap<Block, String[]>(CACHE_BLOCK_COUNT * 2, .75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<Block, String[]> eldest) {
+            return size() > CACHE_BLOCK_COUNT;
+        }
+    };
+
+    /**
+     * @param compress Whether to compress the older blocks.
+     */
+    LineBlocks(final boolean compress) {
+        mCompress = compress;
+    }
+
+    void add(final String line) {
+        final int position = mOffset + mSize;
+        if (position == mBlocks.size() * BLOCK_SIZE) {
+            mBlocks.add(new Block());
+            mHotBlockCount++;
+            if (mCompress && mHotBlockCount > HOT_BLOCK_COUNT) {
+                compress(mBlocks.get(mBlocks.size() - 1 - HOT_BLOCK_COUNT));
+            }
+        }
+        final Block block = mBlocks.get(mBlocks.size() - 1);
+        block.mLines[position % BLOCK_SIZE] = line;
+        block.mCharCount += line.length();
+        mHotCharCount += line.length();
+        mSize++;
+    }
+
+    String get(final int index) {
+        final int position = mOffset + index;
+        final Block block = mBlocks.get(position / BLOCK_SIZE);
+        return getLines(block)[position % BLOCK_SIZE];
+    }
+
+    int size() {
+        return mSize;
+    }
+
+    /**
+     * Removes the given number of lines, from the oldest one.
+     */
+    void removeFirst(final int count) {
+        mOffset += count;
+        mSize -= count;
+        while (mOffset >= BLOCK_SIZE) {
+            final Block block = mBlocks.remove(0);
+            if (block.mCompressed != null) {
+                mCompressedByteCount -= block.mCompressed.length;
+                mCache.remove(block);
+            } else {
+                mHotCharCount -= block.mCharCount;
+                mHotBlockCount--;
+            }
+            mOffset -= BLOCK_SIZE;
+        }
+    }
+
+    void clear() {
+        mBlocks.clear();
+        mCache.clear();
+        mOffset = 0;
+        mSize = 0;
+        mHotBlockCount = 0;
+        mHotCharCount = 0;
+        mCompressedByteCount = 0;
+        mDictionary = null;
+    }
+
+    /**
+     * @return roughly how many bytes the lines take.
+     */
+    long getMemoryEstimate() {
+        // a String is about 56 bytes plus its chars, and a reference 8 bytes
+        long res = mHotCharCount * 2 + (long) mHotBlockCount * BLOCK_SIZE * (56 + 8) + mCompressedByteCount;
+        for (final String[] lines : mCache.values()) {
+            for (final String line : lines) {
+                res += 56 + 8 + line.length() * 2;
+            }
+        }
+        return res;
+    }
+
+    /**
+     * @return how many bytes the compressed blocks take.
+     */
+    long getCompressedByteCount() {
+        return mCompressedByteCount;
+    }
+
+    private String[] getLines(final Block block) {
+        if (block.mCompressed == null) {
+            return block.mLines;
+        }
+        String[] res = mCache.get(block);
+        if (res == null) {
+            res = decompress(block);
+            mCache.put(block, res);
+        }
+        return res;
+    }
+
+    private void compress(final Block block) {
+        if (mDictionary == null || mDictionaryUseCount == DICTIONARY_BLOCK_COUNT) {
+            // the most recent full block (the last one is being filled)
+            mDictionary = createDictionary(mBlocks.get(mBlocks.size() - HOT_BLOCK_COUNT).mLines);
+            mDictionaryUseCount = 0;
+        }
+        mDictionaryUseCount++;
+        try {
+            final ByteArrayOutputStream uncompressed = new ByteArrayOutputStream(block.mCharCount + BLOCK_SIZE * 4);
+            final DataOutputStream out = new DataOutputStream(uncompressed);
+            for (final String line : block.mLines) {
+                final byte[] bytes = line.getBytes("UTF-8");
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+            out.flush();
+            final byte[] input = uncompressed.toByteArray();
+
+            mDeflater.reset();
+            mDeflater.setDictionary(mDictionary);
+            mDeflater.setInput(input);
+            mDeflater.finish();
+            final ByteArrayOutputStream compressed = new ByteArrayOutputStream(input.length / 4);
+            final byte[] buffer = new byte[64 * 1024];
+            while (!mDeflater.finished()) {
+                final int length = mDeflater.deflate(buffer);
+                compressed.write(buffer, 0, length);
+            }
+            block.mCompressed = compressed.toByteArray();
+            block.mUncompressedLength = input.length;
+            block.mDictionary = mDictionary;
+        } catch (final IOException e) {
+            // should never happen
+            Log.e(TAG, "compress", e);
+            return;
+        }
+        block.mLines = null;
+        mHotBlockCount--;
+        mHotCharCount -= block.mCharCount;
+        mCompressedByteCount += block.mCompressed.length;
+    }
+
+    /**
+     * The dictionary is made of lines spread over the given block, the last ones being the most useful for the compression.
+     */
+    private static byte[] createDictionary(final String[] lines) {
+        final ByteArrayOutputStream res = new ByteArrayOutputStream(DICTIONARY_SIZE);
+        try {
+            for (int i = 0; i < lines.length && res.size() < DICTIONARY_SIZE; i += 16) {
+                res.write(lines[i].getBytes("UTF-8"));
+                res.write('\n');
+            }
+        } catch (final IOException e) {
+            // should never happen
+            Log.e(TAG, "createDictionary", e);
+        }
+        final byte[] bytes = res.toByteArray();
+        if (bytes.length <= DICTIONARY_SIZE) {
+            return bytes;
+        }
+        final byte[] truncated = new byte[DICTIONARY_SIZE];
+        System.arraycopy(bytes, bytes.length - DICTIONARY_SIZE, truncated, 0, DICTIONARY_SIZE);
+        return truncated;
+    }
+
+    private String[] decompress(final Block block) {
+        final byte[] uncompressed = new byte[block.mUncompressedLength];
+        try {
+            mInflater.reset();
+            mInflater.setInput(block.mCompressed);
+            int length = 0;
+            while (length < uncompressed.length) {
+                final int inflated = mInflater.inflate(uncompressed, length, uncompressed.length - length);
+                if (inflated == 0) {
+                    if (mInflater.needsDictionary()) {
+                        mInflater.setDictionary(block.mDictionary);
+                    } else if (mInflater.finished() || mInflater.needsInput()) {
+                        throw new IllegalStateException("Truncated block");
+                    }
+                }
+                length += inflated;
+            }
+
+            final String[] res = new String[BLOCK_SIZE];
+            final DataInputStream in = new DataInputStream(new ByteArrayInputStream(uncompressed));
+            for (int i = 0; i < BLOCK_SIZE; i++) {
+                final byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                res[i] = new String(bytes, "UTF-8");
+            }
+            return res;
+        } catch (final DataFormatException e) {
+            // should never happen
+            throw new IllegalStateException("Corrupted block", e);
+        } catch (final IOException e) {
+            // should never happen
+            throw new IllegalStateException("Corrupted block", e);
+        }
+    }
+}
@@ -0,0 +1,363 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright (C) 2010 Benoit 'BoD' Lubek (BoD@JRAF.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.vtail.store;
+
+import org.jraf.vtail.parser.LineFields;
+import org.jraf.vtail.parser.LineParser;
+
+/**
+ * All the lines that have been read (and not ignored).<br/>
+ * Consecutive duplicate lines are stored only once, with a repeat count. Optionally, lines that differ only by their numbers (timestamps,
+ * ids, counters...) are considered duplicates too.<br/>
+ * If a {@link LineParser} is given, each new line is parsed once when added, and its fields are kept in primitive columns (the tags
+ * being encoded with a {@link Dictionary}).<br/>
+ * If a maximum number of lines is given, the oldest lines are evicted when it is exceeded. The indexes of the lines don't change when
+ * lines are evicted: the first line kept is at {@link #getFirstIndex()}. So that they don't overflow in sessions lasting for days, they are
+ * decreased from time to time by {@link #rebase()}.<br/>
+ * At most {@link #MAX_TAG_COUNT} distinct tags are kept in the tag dictionary: the lines with other tags can't be selected by tag.<br/>
+ * The older lines are kept compressed (see {@link LineBlocks}).<br/>
+ * Iterating must be done while synchronized on the store.
+ */
+public class LineStore {
+    /**
+     * Once the first index kept reaches this, {@link #rebase()} decreases the indexes.
+     */
+    static final int REBASE_THRESHOLD = 1 << 30;
+
+    /**
+     * How many distinct tags the tag dictionary (and the facet index) keep at most. The ids of the tags are never reused, since the views
+     * keep them.
+     */
+    public static final int MAX_TAG_COUNT = 8192;
+
+    private final boolean mCollapse;
+    private final boolean mCollapseSimilar;
+    private final LineParser mLineParser;
+    private final int mMaxLines;
+    private final LineFields mLineFields = new LineFields();
+    private final Dictionary mTagDictionary = new Dictionary(MAX_TAG_COUNT);
+    private final FacetIndex mFacetIndex = new FacetIndex();
+    private final LineBlocks mLines;
+    private int[] mRepeatCounts;
+    private long[] mTimestamps;
+    private byte[] mLevels;
+    private int[] mTagIds;
+    private int[] mPids;
+    private int mLastHash;
+    private int mFirstIndex;
+
+    public LineStore(final boolean collapse, final boolean collapseSimilar, final LineParser lineParser) {
+        this(collapse, collapseSimilar, lineParser, 0, true);
+    }
+
+    /**
+     * @param maxLines How many lines to keep at most, or 0 to keep them all.
+     * @param compress Whether to compress the older lines.
+     */
+    public LineStore(final boolean collapse, final boolean collapseSimilar, final LineParser lineParser, final int maxLines,
+            final boolean compress) {
+        mCollapse = collapse || collapseSimilar;
+        mCollapseSimilar = collapseSimilar;
+        mLineParser = lineParser;
+        mMaxLines = maxLines;
+        mLines = new LineBlocks(compress);
+        allocateColumns(1000);
+    }
+
+    /**
+     * Adds a line.
+     * 
+     * @return {@code true} if the line was added as a new entry, {@code false} if it was collapsed into the previous one.
+     */
+    public synchronized boolean add(final String line) {
+        return add(line, null);
+    }
+
+    /**
+     * Adds a line which has already been parsed.
+     * 
+     * @param fields The fields of the line, or {@code null} to parse it here.
+     * @return {@code true} if the line was added as a new entry, {@code false} if it was collapsed into the previous one.
+     */
+    public synchronized boolean add(final String line, LineFields fields) {
+        final int size = mLines.size();
+        if (mCollapse) {
+            final int hash = mCollapseSimilar ? similarHash(line) : line.hashCode();
+            if (size > 0 && hash == mLastHash && isDuplicate(mLines.get(size - 1), line)) {
+                mRepeatCounts[size - 1]++;
+                return false;
+            }
+            mLastHash = hash;
+        }
+        if (size == mRepeatCounts.length) {
+            growColumns(size);
+        }
+        mRepeatCounts[size] = 1;
+        if (fields == null) {
+            fields = mLineFields;
+            fields.reset();
+            if (mLineParser != null) {
+                mLineParser.parse(line, fields);
+            }
+        }
+        mTimestamps[size] = fields.timestamp;
+        mLevels[size] = fields.level;
+        mTagIds[size] = mTagDictionary.getOrCreateId(fields.tag);
+        mPids[size] = fields.pid;
+        mFacetIndex.add(mFirstIndex + size, mLevels[size], mTagIds[size]);
+        mLines.add(line);
+        if (mMaxLines > 0 && size + 1 > mMaxLines + getEvictionBatch()) {
+            evict(size + 1 - mMaxLines);
+        }
+        return true;
+    }
+
+    /**
+     * Lines are evicted several at a time, since each eviction moves all the kept lines.
+     */
+    private int getEvictionBatch() {
+        return Math.max(1, Math.min(mMaxLines / 16, 64 * 1024));
+    }
+
+    private void evict(final int count) {
+        final int size = mLines.size();
+        mLines.removeFirst(count);
+        System.arraycopy(mRepeatCounts, count, mRepeatCounts, 0, size - count);
+        System.arraycopy(mTimestamps, count, mTimestamps, 0, size - count);
+        System.arraycopy(mLevels, count, mLevels, 0, size - count);
+        System.arraycopy(mTagIds, count, mTagIds, 0, size - count);
+        System.arraycopy(mPids, count, mPids, 0, size - count);
+        mFirstIndex += count;
+        mFacetIndex.clearBefore(mFirstIndex);
+    }
+
+    /**
+     * Decreases the indexes of the lines once they are large, so that they never overflow. Whoever keeps indexes (e.g. the matching lines
+     * of the views) must decrease them by the same amount.<br/>
+     * It is not done by {@link #add(String)}, so that the indexes only change when the caller is ready for it.
+     * 
+     * @return how much the indexes decreased, most of the time 0.
+     */
+    public synchronized int rebase() {
+        if (mFirstIndex < REBASE_THRESHOLD) {
+            return 0;
+        }
+        // a whole number of chunks, so that the bitmaps of the facet index only have to drop their first chunks
+        final int delta = mFirstIndex / ChunkedBitmap.CHUNK_SIZE * ChunkedBitmap.CHUNK_SIZE;
+        mFirstIndex -= delta;
+        mFacetIndex.rebase(delta);
+        return delta;
+    }
+
+    /**
+     * Starts the indexes at the given value, as if that many lines had been evicted. For tests, to reach large indexes.
+     */
+    synchronized void setFirstIndex(final int firstIndex) {
+        if (mLines.size() != 0) {
+            throw new IllegalStateException("The store is not empty");
+        }
+        mFirstIndex = firstIndex;
+    }
+
+    private void allocateColumns(final int capacity) {
+        mRepeatCounts = new int[capacity];
+        mTimestamps = new long[capacity];
+        mLevels = new byte[capacity];
+        mTagIds = new int[capacity];
+        mPids = new int[capacity];
+    }
+
+    private void growColumns(final int size) {
+        final int[] repeatCounts = mRepeatCounts;
+        final long[] timestamps = mTimestamps;
+        final byte[] levels = mLevels;
+        final int[] tagIds = mTagIds;
+        final int[] pids = mPids;
+        allocateColumns(size * 2);
+        System.arraycopy(repeatCounts, 0, mRepeatCounts, 0, size);
+        System.arraycopy(timestamps, 0, mTimestamps, 0, size);
+        System.arraycopy(levels, 0, mLevels, 0, size);
+        System.arraycopy(tagIds, 0, mTagIds, 0, size);
+        System.arraycopy(pids, 0, mPids, 0, size);
+    }
+
+    public synchronized String get(final int index) {
+        return mLines.get(index - mFirstIndex);
+    }
+
+    /**
+     * @return how many consecutive times the line at the given index was read (1 if it was not repeated).
+     */
+    public synchronized int getRepeatCount(final int index) {
+        return mRepeatCounts[index - mFirstIndex];
+    }
+
+    /**
+     * @return the epoch millis of the line at the given index, or {@link LineFields#NO_TIMESTAMP}.
+     */
+    public synchronized long getTimestamp(final int index) {
+        return mTimestamps[index - mFirstIndex];
+    }
+
+    /**
+     * @return the level of the line at the given index, as one of the {@link org.jraf.vtail.parser.LogLevel} constants.
+     */
+    public synchronized byte getLevel(final int index) {
+        return mLevels[index - mFirstIndex];
+    }
+
+    /**
+     * @return the id of the tag of the line at the given index in the {@link #getTagDictionary() tag dictionary}, or
+     *         {@link Dictionary#NO_ID}.
+     */
+    public synchronized int getTagId(final int index) {
+        return mTagIds[index - mFirstIndex];
+    }
+
+    /**
+     * @return the pid of the line at the given index, or {@link LineFields#NO_PID}.
+     */
+    public synchronized int getPid(final int index) {
+        return mPids[index - mFirstIndex];
+    }
+
+    /**
+     * The dictionary is kept when the store is cleared, so that the ids it gave stay valid.
+     */
+    public Dictionary getTagDictionary() {
+        return mTagDictionary;
+    }
+
+    /**
+     * The returned index must only be used while synchronized on the store.
+     */
+    public FacetIndex getFacetIndex() {
+        return mFacetIndex;
+    }
+
+    /**
+     * @return the index of the next line to be added. The lines before {@link #getFirstIndex()} have been evicted.
+     */
+    public synchronized int size() {
+        return mFirstIndex + mLines.size();
+    }
+
+    /**
+     * @return how many lines are kept at most, or 0 if they are all kept.
+     */
+    public int getMaxLines() {
+        return mMaxLines;
+    }
+
+    /**
+     * @return the index of the oldest line kept.
+     */
+    public synchronized int getFirstIndex() {
+        return mFirstIndex;
+    }
+
+    /**
+     * @return how many lines are kept.
+     */
+    public synchronized int getLineCount() {
+        return mLines.size();
+    }
+
+    /**
+     * @return roughly how many bytes the lines, their columns and the facet index take.
+     */
+    public synchronized long getMemoryEstimate() {
+        // the columns take 21 bytes per line
+        return mLines.getMemoryEstimate() + (long) mRepeatCounts.length * 21 + mFacetIndex.getMemoryEstimate();
+    }
+
+    public synchronized void clear() {
+        mLines.clear();
+        mFirstIndex = 0;
+        mFacetIndex.clear();
+        allocateColumns(1000);
+    }
+
+    private boolean isDuplicate(final String previous, final String line) {
+        if (mCollapseSimilar) {
+            return isSimilar(previous, line);
+        }
+        return previous.equals(line);
+    }
+
+    /**
+     * Hash of a line where each run of digits counts as a single placeholder, so that similar lines have the same hash.
+     */
+    static int similarHash(final String line) {
+        int hash = 0;
+        boolean inDigits = false;
+        for (int i = 0, len = line.length(); i < len; i++) {
+            final char c = line.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (inDigits) {
+                    continue;
+                }
+                inDigits = true;
+                hash = 31 * hash + '#';
+            } else {
+                inDigits = false;
+                hash = 31 * hash + c;
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * @return {@code true} if both lines are identical, not taking into account the values of the numbers they contain.
+     */
+    static boolean isSimilar(final String a, final String b) {
+        final int lenA = a.length();
+        final int lenB = b.length();
+        int i = 0;
+        int j = 0;
+        while (i < lenA && j < lenB) {
+            final char ca = a.charAt(i);
+            final char cb = b.charAt(j);
+            final boolean digitA = ca >= '0' && ca <= '9';
+            final boolean digitB = cb >= '0' && cb <= '9';
+            if (digitA && digitB) {
+                // skip both runs of digits
+                while (i < lenA && a.charAt(i) >= '0' && a.charAt(i) <= '9') {
+                    i++;
+                }
+                while (j < lenB && b.charAt(j) >= '0' && b.charAt(j) <= '9') {
+                    j++;
+                }
+                continue;
+            }
+            if (ca != cb) {
+                return false;
+            }
+            i++;
+            j++;
+        }
+        return i == lenA && j == lenB;
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright (C) 2010 Benoit 'BoD' Lubek (BoD@JRAF.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.vtail.ui;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.SwingUtilities;
+
+import org.jraf.vtail.misc.Histogram;
+import org.jraf.vtail.misc.Log;
+
+/**
+ * Watches the responsiveness of the event dispatch thread (see --edtwatchdog): a heartbeat is posted to it regularly, and the time it takes
+ * to run is recorded. When the thread doesn't run the heartbeat for longer than the threshold, its stack trace is captured, which shows
+ * what it is busy with.
+ */
+public class EdtWatchdog {
+    private static final String TAG = EdtWatchdog.class.getName();
+
+    private static final long HEARTBEAT_PERIOD_MS = 100;
+    private static final int MAX_STALLS = 20;
+    private static final int MAX_STACK_DEPTH = 40;
+
+    private static EdtWatchdog sInstance;
+
+    private static class Stall {
+        private final long mTime;
+        private long mDurationMs;
+        private final StackTraceElement[] mStackTrace;
+
+        private Stall(final long time, final StackTraceElement[] stackTrace) {
+            mTime = time;
+            mStackTrace = stackTrace;
+        }
+    }
+
+    private final long mThresholdNs;
+    private final Histogram mLatencies = new Histogram();
+    private final List<Stall> mStalls = new ArrayList<Stall>();
+    private long mStallCount;
+    private volatile Thread mEdt;
+
+    // guarded by this
+    private long mHeartbeatPostTime;
+    private boolean mHeartbeatPending;
+    private Stall mCurrentStall;
+
+    EdtWatchdog(final long thresholdMs) {
+        mThresholdNs = TimeUnit.MILLISECONDS.toNanos(thresholdMs);
+    }
+
+    /**
+     * Starts the watchdog, unless it is already running (there is only one event dispatch thread to watch per VM).
+     */
+    public static synchronized EdtWatchdog start(final long thresholdMs) {
+        if (sInstance == null) {
+            sInstance = new EdtWatchdog(thresholdMs);
+            sInstance.startThread();
+            sInstance.printSummaryOnExit();
+        }
+        return sInstance;
+    }
+
+    void startThread() {
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (true) {
+                    check();
+                    try {
+                        Thread.sleep(HEARTBEAT_PERIOD_MS);
+                    } catch (final InterruptedException e) {
+                        return;
+                    }
+                }
+            }
+        }, "vtail-edt-watchdog");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Posts a heartbeat if the previous one has run, otherwise checks whether it is late.
+     */
+    private synchronized void check() {
+        final long now = System.nanoTime();
+        if (!mHeartbeatPending) {
+            mHeartbeatPending = true;
+            mHeartbeatPostTime = now;
+            SwingUtilities.invokeLater(new Runnable() {
+                @Override
+                public void run() {
+                    onHeartbeat();
+                }
+            });
+            return;
+        }
+        if (mCurrentStall == null && now - mHeartbeatPostTime > mThresholdNs) {
+            final Thread edt = mEdt;
+            final StackTraceElement[] stackTrace = edt == null ? new StackTraceElement[0] : edt.getStackTrace();
+            mCurrentStall = new Stall(System.currentTimeMillis(), stackTrace);
+            mStallCount++;
+            mStalls.add(mCurrentStall);
+            if (mStalls.size() > MAX_STALLS) {
+                mStalls.remove(0);
+            }
+            Log.w(TAG, "The UI has been blocked for more than " + TimeUnit.NANOSECONDS.toMillis(mThresholdNs) + "ms, in:\n" + format(stackTrace));
+        }
+    }
+
+    private synchronized void onHeartbeat() {
+        mEdt = Thread.currentThread();
+        final long latency = System.nanoTime() - mHeartbeatPostTime;
+        mLatencies.record(latency);
+        if (mCurrentStall != null) {
+            mCurrentStall.mDurationMs = TimeUnit.NANOSECONDS.toMillis(latency);
+            mCurrentStall = null;
+        }
+        mHeartbeatPending = false;
+    }
+
+    /**
+     * @return the distribution of the latency of the event dispatch thread, and the last stalls with the code they happened in.
+     */
+    public synchronized String getSummary() {
+        final StringBuilder res = new StringBuilder();
+        res.append("Latency (ms): p50 ").append(toMs(mLatencies.getPercentile(50))).append(", p90 ").append(toMs(mLatencies.getPercentile(90)))
+                .append(", p99 ").append(toMs(mLatencies.getPercentile(99))).append(", p99.9 ").append(toMs(mLatencies.getPercentile(99.9)))
+                .append(", max ").append(toMs(mLatencies.getMax())).append(" (").append(mLatencies.getCount()).append(" heartbeats)\n");
+        res.append("Stalls over ").append(toMs(mThresholdNs)).append("ms: ").append(mStallCount).append('\n');
+        for (int i = mStalls.size() - 1; i >= 0; i--) {
+            final Stall stall = mStalls.get(i);
+            res.append('\n').append(String.format("%tT", stall.mTime)).append(", ");
+            res.append(stall.mDurationMs == 0 ? "still blocked" : stall.mDurationMs + "ms").append(":\n");
+            res.append(format(stall.mStackTrace));
+        }
+        return res.toString();
+    }
+
+    synchronized long getStallCount() {
+        return mStallCount;
+    }
+
+    private static long toMs(final long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    private static String format(final StackTraceElement[] stackTrace) {
+        final StringBuilder res = new StringBuilder();
+        for (int i = 0; i < stackTrace.length && i < MAX_STACK_DEPTH; i++) {
+            res.append("    at ").append(stackTrace[i]).append('\n');
+        }
+        if (stackTrace.length > MAX_STACK_DEPTH) {
+            res.append("    ...\n");
+        }
+        return res.toString();
+    }
+
+    private void printSummaryOnExit() {
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+            @Override
+            public void run() {
+                System.out.println("Event dispatch thread:");
+                System.out.print(getSummary());
+            }
+        }));
+    }
+}
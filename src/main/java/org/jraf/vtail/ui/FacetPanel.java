@@ -0,0 +1,194 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright (C) 2010 Benoit 'BoD' Lubek (BoD@JRAF.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.vtail.ui;
+
+import java.awt.FlowLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.Arrays;
+import java.util.TreeSet;
+
+import javax.swing.JButton;
+import javax.swing.JCheckBoxMenuItem;
+import javax.swing.JPanel;
+import javax.swing.JPopupMenu;
+import javax.swing.JToggleButton;
+
+import org.jraf.vtail.parser.LogLevel;
+import org.jraf.vtail.store.Dictionary;
+
+/**
+ * Lets the user pick the levels and tags of the lines to show.<br/>
+ * The selection can be read from any thread.
+ */
+public class FacetPanel extends JPanel {
+    public interface Listener {
+        void onFacetsChanged();
+    }
+
+    private final Dictionary mTagDictionary;
+    private final Listener mListener;
+    private final JToggleButton[] mLevelButtons = new JToggleButton[LogLevel.COUNT];
+    private final JButton mTagsButton;
+    private final TreeSet<String> mSelectedTags = new TreeSet<String>();
+    private volatile boolean[] mSelectedLevels;
+    private volatile int[] mSelectedTagIds;
+
+    public FacetPanel(final Dictionary tagDictionary, final Listener listener) {
+        super(new FlowLayout(FlowLayout.LEADING, 2, 0));
+        mTagDictionary = tagDictionary;
+        mListener = listener;
+
+        final ActionListener levelListener = new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                updateSelection();
+            }
+        };
+        // most severe first
+        for (int level = LogLevel.COUNT - 1; level >= 0; level--) {
+            final JToggleButton button = new JToggleButton(level == LogLevel.UNKNOWN ? "Other" : String.valueOf(LogLevel.toLetter((byte) level)));
+            button.setSelected(true);
+            button.setFocusable(false);
+            button.addActionListener(levelListener);
+            mLevelButtons[level] = button;
+            add(button);
+        }
+
+        mTagsButton = new JButton("All tags");
+        mTagsButton.setFocusable(false);
+        mTagsButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                showTagsPopup();
+            }
+        });
+        add(mTagsButton);
+
+        computeSelection();
+    }
+
+    private void showTagsPopup() {
+        final TreeSet<String> tags = new TreeSet<String>(String.CASE_INSENSITIVE_ORDER);
+        for (int i = 0, len = mTagDictionary.size(); i < len; i++) {
+            tags.add(mTagDictionary.getValue(i));
+        }
+        final JPopupMenu popup = new JPopupMenu();
+        final JCheckBoxMenuItem allItem = new JCheckBoxMenuItem("All tags", mSelectedTags.isEmpty());
+        allItem.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                mSelectedTags.clear();
+                updateSelection();
+            }
+        });
+        popup.add(allItem);
+        popup.addSeparator();
+        for (final String tag : tags) {
+            final JCheckBoxMenuItem item = new JCheckBoxMenuItem(tag, mSelectedTags.contains(tag));
+            item.addActionListener(new ActionListener() {
+                @Override
+                public void actionPerformed(ActionEvent e) {
+                    if (item.isSelected()) {
+                        mSelectedTags.add(tag);
+                    } else {
+                        mSelectedTags.remove(tag);
+                    }
+                    updateSelection();
+                }
+            });
+            popup.add(item);
+        }
+        popup.show(mTagsButton, 0, mTagsButton.getHeight());
+    }
+
+    private void updateSelection() {
+        computeSelection();
+        mListener.onFacetsChanged();
+    }
+
+    private void computeSelection() {
+        final boolean[] selectedLevels = new boolean[LogLevel.COUNT];
+        for (int i = 0; i < selectedLevels.length; i++) {
+            selectedLevels[i] = mLevelButtons[i].isSelected();
+        }
+        int[] selectedTagIds = null;
+        if (!mSelectedTags.isEmpty()) {
+            selectedTagIds = new int[mSelectedTags.size()];
+            int i = 0;
+            for (final String tag : mSelectedTags) {
+                selectedTagIds[i++] = mTagDictionary.getId(tag);
+            }
+            Arrays.sort(selectedTagIds);
+            mTagsButton.setText(mSelectedTags.size() == 1 ? mSelectedTags.first() : mSelectedTags.size() + " tags");
+        } else {
+            mTagsButton.setText("All tags");
+        }
+        mSelectedLevels = selectedLevels;
+        mSelectedTagIds = selectedTagIds;
+    }
+
+    /**
+     * @return {@code true} if some lines are hidden by the current selection.
+     */
+    public boolean isActive() {
+        if (mSelectedTagIds != null) {
+            return true;
+        }
+        for (final boolean selected : mSelectedLevels) {
+            if (!selected) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean[] getSelectedLevels() {
+        return mSelectedLevels;
+    }
+
+    /**
+     * @return the ids of the selected tags, sorted, or {@code null} if all the tags are selected.
+     */
+    public int[] getSelectedTagIds() {
+        return mSelectedTagIds;
+    }
+
+    public boolean isMatch(final byte level, final int tagId) {
+        if (!mSelectedLevels[level]) {
+            return false;
+        }
+        final int[] selectedTagIds = mSelectedTagIds;
+        return selectedTagIds == null || Arrays.binarySearch(selectedTagIds, tagId) >= 0;
+    }
+
+    /**
+     * Forgets the selected tags (e.g. because the lines have been cleared).
+     */
+    public void clearTags() {
+        mSelectedTags.clear();
+        updateSelection();
+    }
+}
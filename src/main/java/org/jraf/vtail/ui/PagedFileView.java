@@ -0,0 +1,161 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright (C) 2010 Benoit 'BoD' Lubek (BoD@JRAF.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.vtail.ui;
+
+import java.awt.BorderLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.AdjustmentEvent;
+import java.awt.event.AdjustmentListener;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.event.MouseWheelListener;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import javax.swing.JPanel;
+import javax.swing.JScrollBar;
+import javax.swing.Timer;
+import javax.swing.text.StyledDocument;
+
+import org.jraf.vtail.index.LineOffsetIndex;
+import org.jraf.vtail.index.PageReader;
+import org.jraf.vtail.misc.Log;
+
+/**
+ * Shows a file of any size, one page at a time. Only the lines of the displayed page are read and decoded.<br/>
+ * The scroll bar represents the (estimated, while the file is indexed) number of lines of the file.
+ */
+public class PagedFileView extends JPanel {
+    private static final String TAG = PagedFileView.class.getName();
+
+    public interface PageRenderer {
+        /**
+         * Renders the given lines in the (empty) document.
+         */
+        void render(StyledDocument document, List<String> lines);
+    }
+
+    private final WrapTextPane mTextPane;
+    private final JScrollBar mScrollBar;
+    private final PageReader mPageReader;
+    private final LineOffsetIndex mLineOffsetIndex;
+    private final File mFile;
+    private final PageRenderer mPageRenderer;
+    private final Timer mTimer;
+    private int mDisplayedFirstLine = -1;
+    private int mDisplayedLineCount = -1;
+
+    public PagedFileView(final File file, final PageReader pageReader, final LineOffsetIndex lineOffsetIndex, final WrapTextPane textPane,
+            final PageRenderer pageRenderer) {
+        super(new BorderLayout());
+        mFile = file;
+        mPageReader = pageReader;
+        mLineOffsetIndex = lineOffsetIndex;
+        mPageRenderer = pageRenderer;
+
+        mTextPane = textPane;
+        mTextPane.setEditable(false);
+        add(mTextPane, BorderLayout.CENTER);
+
+        mScrollBar = new JScrollBar(JScrollBar.VERTICAL);
+        mScrollBar.addAdjustmentListener(new AdjustmentListener() {
+            @Override
+            public void adjustmentValueChanged(AdjustmentEvent e) {
+                showPage();
+            }
+        });
+        add(mScrollBar, BorderLayout.LINE_END);
+
+        mTextPane.addMouseWheelListener(new MouseWheelListener() {
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                mScrollBar.setValue(mScrollBar.getValue() + e.getUnitsToScroll());
+            }
+        });
+        addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                updateScrollBar();
+            }
+        });
+
+        // the estimated number of lines changes while the file is indexed, and when it grows
+        mTimer = new Timer(500, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                updateScrollBar();
+            }
+        });
+    }
+
+    /**
+     * Starts showing the file, at its end.
+     */
+    public void start() {
+        mTimer.start();
+        updateScrollBar();
+        mScrollBar.setValue(mScrollBar.getMaximum());
+    }
+
+    public void stop() {
+        mTimer.stop();
+    }
+
+    private int getPageLineCount() {
+        final int lineHeight = mTextPane.getFontMetrics(mTextPane.getFont()).getHeight();
+        return Math.max(1, mTextPane.getHeight() / Math.max(1, lineHeight));
+    }
+
+    private void updateScrollBar() {
+        final int lineCount = mLineOffsetIndex.getEstimatedLineCount(mFile.length());
+        final int pageLineCount = getPageLineCount();
+        mScrollBar.setValues(Math.min(mScrollBar.getValue(), Math.max(0, lineCount - pageLineCount)), pageLineCount, 0, lineCount);
+        mScrollBar.setBlockIncrement(pageLineCount);
+        showPage();
+    }
+
+    private void showPage() {
+        final int firstLine = mScrollBar.getValue();
+        final int lineCount = getPageLineCount();
+        if (firstLine == mDisplayedFirstLine && lineCount == mDisplayedLineCount) {
+            return;
+        }
+        mDisplayedFirstLine = firstLine;
+        mDisplayedLineCount = lineCount;
+        final List<String> lines;
+        try {
+            lines = mPageReader.read(firstLine, lineCount);
+        } catch (final IOException e) {
+            Log.e(TAG, "Cannot read " + mFile, e);
+            return;
+        }
+        mTextPane.setText("");
+        mPageRenderer.render((StyledDocument) mTextPane.getDocument(), lines);
+        mTextPane.setCaretPosition(0);
+    }
+}
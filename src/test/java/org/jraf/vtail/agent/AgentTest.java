@@ -0,0 +1,122 @@
+package org.jraf.vtail.agent;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import junit.framework.TestCase;
+
+import org.jraf.vtail.source.AgentSource;
+import org.jraf.vtail.source.Source;
+import org.jraf.vtail.source.SourceScheduler;
+import org.jraf.vtail.source.StreamSource;
+
+public class AgentTest extends TestCase {
+    private final List<String> mLines = new ArrayList<String>();
+
+    private boolean waitFor(final String line, final long timeoutMs) throws InterruptedException {
+        final long start = System.currentTimeMillis();
+        while (System.currentTimeMillis() - start < timeoutMs) {
+            synchronized (mLines) {
+                if (mLines.contains(line)) {
+                    return true;
+                }
+            }
+            Thread.sleep(10);
+        }
+        return false;
+    }
+
+    private static void waitForClients(final Agent agent, final int count) throws InterruptedException {
+        final long start = System.currentTimeMillis();
+        while (agent.getClientCount() < count && System.currentTimeMillis() - start < 5000) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, agent.getClientCount());
+    }
+
+    public void testFilterPushdown() throws IOException, InterruptedException {
+        final PipedOutputStream logOut = new PipedOutputStream();
+        final PipedInputStream logIn = new PipedInputStream(logOut);
+        final Agent agent = new Agent(InetAddress.getByName("127.0.0.1"), 0, "secret", Arrays.asList(Pattern.compile(".*ignored.*")));
+        final StreamSource logSource = new StreamSource("test", logIn, "UTF-8");
+        final Thread agentThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                agent.run(logSource);
+            }
+        });
+        agentThread.start();
+
+        final SourceScheduler scheduler = new SourceScheduler(new Source.LineSink() {
+            @Override
+            public void onLine(final Source source, final String line) {
+                synchronized (mLines) {
+                    mLines.add(line);
+                }
+            }
+        });
+        // neither a silent connection nor a wrong token must prevent the GUI from connecting
+        final Socket silentSocket = new Socket("127.0.0.1", agent.getPort());
+        final AgentSource wrongTokenSource = new AgentSource("127.0.0.1", agent.getPort(), "guess");
+        scheduler.start(wrongTokenSource);
+        final AgentSource agentSource = new AgentSource("127.0.0.1", agent.getPort(), "secret");
+        agentSource.setFilter("Error");
+        scheduler.start(agentSource);
+        waitForClients(agent, 1);
+
+        logOut.write("info: hello\nerror: ignored\nERROR: disk full\n".getBytes("UTF-8"));
+        logOut.flush();
+        assertTrue(waitFor("ERROR: disk full", 5000));
+
+        // change the filter, which is sent in the background
+        agentSource.setFilter("");
+        final long start = System.currentTimeMillis();
+        boolean received = false;
+        while (!received && System.currentTimeMillis() - start < 5000) {
+            logOut.write("info: again\n".getBytes("UTF-8"));
+            logOut.flush();
+            received = waitFor("info: again", 500);
+        }
+        assertTrue(received);
+
+        synchronized (mLines) {
+            assertFalse(mLines.contains("info: hello"));
+            assertFalse(mLines.contains("error: ignored"));
+        }
+
+        assertEquals(1, agent.getClientCount());
+        silentSocket.close();
+        assertTrue(scheduler.shutdown(5000));
+        agent.stop();
+        agentThread.join(5000);
+        assertFalse(agentThread.isAlive());
+        logOut.close();
+    }
+
+    public void testBatchRoundTrip() throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        final Deflater deflater = new Deflater();
+        AgentProtocol.writeBatch(out, Arrays.asList("a", "", "été"), deflater);
+        AgentProtocol.writeBatch(out, Arrays.asList("b"), deflater);
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        final Inflater inflater = new Inflater();
+        final List<String> lines = new ArrayList<String>();
+        AgentProtocol.readBatch(in, inflater, lines);
+        AgentProtocol.readBatch(in, inflater, lines);
+        assertEquals(Arrays.asList("a", "", "été", "b"), lines);
+    }
+}
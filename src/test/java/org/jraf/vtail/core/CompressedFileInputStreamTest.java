@@ -0,0 +1,46 @@
+package org.jraf.vtail.core;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.zip.GZIPOutputStream;
+
+import junit.framework.TestCase;
+
+public class CompressedFileInputStreamTest extends TestCase {
+
+    public void testMultiMember() throws IOException {
+        final File file = File.createTempFile("vtail", ".log.gz");
+        file.deleteOnExit();
+        final FileOutputStream out = new FileOutputStream(file);
+        for (int member = 0; member < 3; member++) {
+            final GZIPOutputStream gzipOut = new GZIPOutputStream(out);
+            for (int i = 0; i < 10000; i++) {
+                gzipOut.write(("member " + member + " line " + i + "\n").getBytes("UTF-8"));
+            }
+            gzipOut.finish();
+        }
+        out.close();
+
+        assertEquals(CompressedFileInputStream.Compression.GZIP, CompressedFileInputStream.getCompression(file));
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(new CompressedFileInputStream(file), "UTF-8"));
+        for (int member = 0; member < 3; member++) {
+            for (int i = 0; i < 10000; i++) {
+                assertEquals("member " + member + " line " + i, reader.readLine());
+            }
+        }
+        assertNull(reader.readLine());
+        reader.close();
+    }
+
+    public void testNotCompressed() throws IOException {
+        final File file = File.createTempFile("vtail", ".log");
+        file.deleteOnExit();
+        final FileOutputStream out = new FileOutputStream(file);
+        out.write("x".getBytes("UTF-8"));
+        out.close();
+        assertEquals(CompressedFileInputStream.Compression.NONE, CompressedFileInputStream.getCompression(file));
+    }
+}
@@ -0,0 +1,118 @@
+package org.jraf.vtail.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.jraf.vtail.arguments.OverloadPolicy;
+
+public class LineQueueTest extends TestCase {
+
+    public void testDrop() {
+        final LineQueue lineQueue = new LineQueue(OverloadPolicy.DROP, 3, 1);
+        for (int i = 0; i < 5; i++) {
+            lineQueue.put("line " + i);
+        }
+        assertEquals(2, lineQueue.getDroppedCount());
+        final List<String> lines = new ArrayList<String>();
+        lineQueue.drainTo(lines);
+        // the oldest lines are dropped
+        assertEquals(Arrays.asList("line 2", "line 3", "line 4"), lines);
+        assertEquals(0, lineQueue.size());
+
+        lineQueue.resetCounters();
+        assertEquals(0, lineQueue.getDroppedCount());
+    }
+
+    public void testSample() {
+        final LineQueue lineQueue = new LineQueue(OverloadPolicy.SAMPLE, 10, 3);
+        for (int i = 0; i < 14; i++) {
+            lineQueue.put("line " + i);
+        }
+        // from half the capacity, only 1 line out of 3 is kept: 5 + 3 of the 9 others
+        assertEquals(6, lineQueue.getSampledOutCount());
+        assertEquals(0, lineQueue.getDroppedCount());
+        final List<String> lines = new ArrayList<String>();
+        lineQueue.drainTo(lines);
+        assertEquals(Arrays.asList("line 0", "line 1", "line 2", "line 3", "line 4", "line 5", "line 8", "line 11"), lines);
+    }
+
+    public void testBlockWakesUpOnDrain() throws InterruptedException {
+        checkWakesUpOnDrain(OverloadPolicy.BLOCK);
+    }
+
+    public void testLatestWakesUpOnDrain() throws InterruptedException {
+        checkWakesUpOnDrain(OverloadPolicy.LATEST);
+    }
+
+    public void testCloseWakesUpPut() throws InterruptedException {
+        final LineQueue lineQueue = new LineQueue(OverloadPolicy.BLOCK, 1, 1);
+        lineQueue.put("line 0");
+        final Thread putThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                lineQueue.put("line 1");
+            }
+        });
+        putThread.start();
+        putThread.join(200);
+        assertTrue(putThread.isAlive());
+
+        lineQueue.close();
+        putThread.join(5000);
+        assertFalse(putThread.isAlive());
+        // the lines put once closed are ignored, without waiting
+        lineQueue.put("line 2");
+        assertEquals(0, lineQueue.size());
+    }
+
+    public void testInterruptEndsPut() throws InterruptedException {
+        final LineQueue lineQueue = new LineQueue(OverloadPolicy.BLOCK, 1, 1);
+        lineQueue.put("line 0");
+        final boolean[] interrupted = new boolean[1];
+        final Thread putThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                lineQueue.put("line 1");
+                interrupted[0] = Thread.currentThread().isInterrupted();
+            }
+        });
+        putThread.start();
+        putThread.join(200);
+        assertTrue(putThread.isAlive());
+
+        putThread.interrupt();
+        putThread.join(5000);
+        assertFalse(putThread.isAlive());
+        // the flag is kept, so that the source can see it
+        assertTrue(interrupted[0]);
+        assertEquals(1, lineQueue.size());
+    }
+
+    private static void checkWakesUpOnDrain(final OverloadPolicy policy) throws InterruptedException {
+        final LineQueue lineQueue = new LineQueue(policy, 2, 1);
+        lineQueue.put("line 0");
+        lineQueue.put("line 1");
+        final Thread putThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                lineQueue.put("line 2");
+            }
+        });
+        putThread.start();
+        putThread.join(200);
+        // waiting for room
+        assertTrue(putThread.isAlive());
+        assertEquals(2, lineQueue.size());
+
+        final List<String> lines = new ArrayList<String>();
+        lineQueue.drainTo(lines);
+        putThread.join(5000);
+        assertFalse(putThread.isAlive());
+        lineQueue.drainTo(lines);
+        assertEquals(Arrays.asList("line 0", "line 1", "line 2"), lines);
+        assertEquals(0, lineQueue.getDroppedCount());
+    }
+}
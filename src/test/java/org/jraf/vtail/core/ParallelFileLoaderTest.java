@@ -0,0 +1,81 @@
+package org.jraf.vtail.core;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+
+import junit.framework.TestCase;
+
+import org.jraf.vtail.parser.LineFormat;
+import org.jraf.vtail.parser.LogLevel;
+import org.jraf.vtail.store.LineStore;
+
+public class ParallelFileLoaderTest extends TestCase {
+
+    public void testLoadInOrder() throws IOException {
+        final File file = File.createTempFile("vtail", ".log");
+        file.deleteOnExit();
+        final PrintStream out = new PrintStream(new FileOutputStream(file), false, "UTF-8");
+        for (int i = 0; i < 3000; i++) {
+            out.print("01-02 03:04:05.678 W/Tag" + (i % 3) + "( 123): line " + i + (i % 2 == 0 ? "\r\n" : "\n"));
+        }
+        out.print("partial");
+        out.close();
+
+        final ParallelFileLoader loader = new ParallelFileLoader(file, "UTF-8", LineFormat.LOGCAT, new ParallelFileLoader.LineFilter() {
+            @Override
+            public boolean isIgnored(final String line) {
+                return line.endsWith("0");
+            }
+        }, 4, 1000);
+        final LineStore lineStore = new LineStore(true, false, null);
+        final int[] counts = new int[2];
+        final long loadedLength = loader.load(lineStore, new ParallelFileLoader.ChunkListener() {
+            @Override
+            public void onChunkLoaded(final int readCount, final int ignoredCount) {
+                counts[0] += readCount;
+                counts[1] += ignoredCount;
+            }
+        });
+
+        assertEquals(file.length() - "partial".length(), loadedLength);
+        assertEquals(2700, lineStore.size());
+        assertEquals(3000, counts[0]);
+        assertEquals(300, counts[1]);
+        int expected = 0;
+        for (int i = 0; i < lineStore.size(); i++) {
+            if (expected % 10 == 0) {
+                expected++;
+            }
+            assertTrue(lineStore.get(i).endsWith("): line " + expected));
+            assertEquals(LogLevel.WARN, lineStore.getLevel(i));
+            expected++;
+        }
+    }
+
+    public void testLoadTail() throws IOException {
+        final File file = File.createTempFile("vtail", ".log");
+        file.deleteOnExit();
+        final PrintStream out = new PrintStream(new FileOutputStream(file), false, "UTF-8");
+        for (int i = 0; i < 3000; i++) {
+            out.print("line " + i + "\n");
+        }
+        out.close();
+
+        final ParallelFileLoader loader = new ParallelFileLoader(file, "UTF-8", LineFormat.NONE, new ParallelFileLoader.LineFilter() {
+            @Override
+            public boolean isIgnored(final String line) {
+                return false;
+            }
+        }, 2, 1000);
+        final LineStore lineStore = new LineStore(false, false, null, 100, true);
+        assertEquals(file.length(), loader.load(lineStore));
+
+        // only the lines that are kept have been read
+        assertEquals(0, lineStore.getFirstIndex());
+        assertEquals(100, lineStore.size());
+        assertEquals("line 2900", lineStore.get(0));
+        assertEquals("line 2999", lineStore.get(99));
+    }
+}
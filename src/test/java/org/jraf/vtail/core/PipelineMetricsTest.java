@@ -0,0 +1,53 @@
+package org.jraf.vtail.core;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.ObjectName;
+
+import junit.framework.TestCase;
+
+import org.jraf.vtail.arguments.OverloadPolicy;
+import org.jraf.vtail.store.LineStore;
+
+public class PipelineMetricsTest extends TestCase {
+    public void testCounters() throws Exception {
+        final LineQueue lineQueue = new LineQueue(OverloadPolicy.BLOCK, 100, 10);
+        final LineStore lineStore = new LineStore(false, false, null);
+        final PipelineMetrics metrics = new PipelineMetrics(lineQueue, lineStore);
+        metrics.sample();
+        for (int i = 0; i < 10; i++) {
+            metrics.onLineRead();
+        }
+        metrics.onLineIgnored();
+        metrics.onBatch(9);
+        metrics.onLinePrinted(2000);
+        lineQueue.put("queued");
+        lineStore.add("stored");
+
+        assertEquals(10, metrics.getLinesRead());
+        assertEquals(1, metrics.getLinesIgnored());
+        assertEquals(1, metrics.getLinesRendered());
+        assertEquals(9, metrics.getBatchSizeMedian());
+        assertEquals(2, metrics.getPrintLineMicrosP99());
+        assertEquals(1, metrics.getQueueDepth());
+        assertEquals(0, metrics.getLineStoreSize());
+        Thread.sleep(10);
+        metrics.sample();
+        assertEquals(1, metrics.getLineStoreSize());
+        assertTrue(metrics.getLineStoreBytes() > 0);
+        assertTrue(metrics.getLinesReadPerSecond() > 0);
+        assertTrue(metrics.getSummary().startsWith("Read: "));
+
+        metrics.onLinesLoaded(5, 2);
+        assertEquals(15, metrics.getLinesRead());
+        assertEquals(3, metrics.getLinesIgnored());
+
+        metrics.registerMBean();
+        final ObjectName objectName = new ObjectName("org.jraf.vtail:type=Pipeline,id=1");
+        assertEquals(15L, ManagementFactory.getPlatformMBeanServer().getAttribute(objectName, "LinesRead"));
+        // nothing keeps the metrics once stopped
+        metrics.start();
+        metrics.stop();
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(objectName));
+    }
+}
@@ -0,0 +1,42 @@
+package org.jraf.vtail.core;
+
+import java.util.ArrayList;
+import java.util.regex.Pattern;
+
+import junit.framework.TestCase;
+
+import org.jraf.vtail.arguments.Arguments;
+import org.jraf.vtail.arguments.Highlight;
+
+public class RuleProfilerTest extends TestCase {
+    public void testIsIgnored() {
+        final Arguments arguments = new Arguments();
+        arguments.ignoreList = new ArrayList<Pattern>();
+        arguments.ignoreList.add(Pattern.compile(".*foo.*"));
+        arguments.ignoreList.add(Pattern.compile(".*bar.*"));
+        final RuleProfiler ruleProfiler = new RuleProfiler(arguments);
+
+        assertTrue(ruleProfiler.isIgnored("a foo"));
+        assertTrue(ruleProfiler.isIgnored("a bar"));
+        assertFalse(ruleProfiler.isIgnored("a baz"));
+
+        // the second rule is only evaluated when the first one doesn't match
+        final String report = ruleProfiler.getReport();
+        assertTrue(report, report.matches("(?s).* 3 +1 +\\d+  -i \\.\\*foo\\.\\*.*"));
+        assertTrue(report, report.matches("(?s).* 2 +1 +\\d+  -i \\.\\*bar\\.\\*.*"));
+    }
+
+    public void testHighlights() {
+        final Arguments arguments = new Arguments();
+        arguments.highlightList = new ArrayList<Highlight>();
+        final Highlight highlight = new Highlight();
+        highlight.pattern = Pattern.compile("E/");
+        arguments.highlightList.add(highlight);
+        final RuleProfiler ruleProfiler = new RuleProfiler(arguments);
+
+        ruleProfiler.onHighlightEvaluated(0, true, 1000);
+        ruleProfiler.onHighlightEvaluated(0, false, 3000);
+        final String report = ruleProfiler.getReport();
+        assertTrue(report, report.matches("(?s).* 2 +1 +2000  -hl E/.*"));
+    }
+}
@@ -0,0 +1,173 @@
+package org.jraf.vtail.core;
+
+import java.awt.GraphicsEnvironment;
+import java.io.OutputStreamWriter;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.SwingUtilities;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.BadLocationException;
+
+import junit.framework.TestCase;
+
+import org.jraf.vtail.arguments.Arguments;
+import org.jraf.vtail.misc.Histogram;
+import org.jraf.vtail.source.StreamSource;
+
+/**
+ * Feeds a window for a long time, while filtering, highlighting and clearing now and then, and checks that the memory, the number of
+ * threads and the display latency stay bounded.<br/>
+ * Needs a display (e.g. {@code xvfb-run}), and only runs when a duration is given, e.g.:
+ * {@code mvn test -Dtest=SoakTest -Dvtail.soak.seconds=86400}.<br/>
+ * Other properties: {@code vtail.soak.rate} (lines per second), {@code vtail.soak.maxlines}, {@code vtail.soak.maxheapgrowthmb},
+ * {@code vtail.soak.maxthreadgrowth} and {@code vtail.soak.maxlatencyms}.
+ */
+public class SoakTest extends TestCase {
+    private static final String TIME_MARKER = " t=";
+    private static final long CHECK_PERIOD_MS = 10000;
+
+    private final Histogram mLatencies = new Histogram();
+    private long mLastDisplayedTime;
+
+    public void testSoak() throws Exception {
+        final long durationMs = Long.getLong("vtail.soak.seconds", 0) * 1000;
+        if (durationMs == 0 || GraphicsEnvironment.isHeadless()) {
+            System.out.println("SoakTest skipped: it needs a display, and -Dvtail.soak.seconds");
+            return;
+        }
+        final int rate = Integer.getInteger("vtail.soak.rate", 2000);
+        final long maxHeapGrowth = Long.getLong("vtail.soak.maxheapgrowthmb", 64) * 1024 * 1024;
+        final int maxThreadGrowth = Integer.getInteger("vtail.soak.maxthreadgrowth", 5);
+        final long maxLatencyMs = Long.getLong("vtail.soak.maxlatencyms", 2000);
+
+        final Arguments arguments = new Arguments();
+        arguments.maxLines = Integer.getInteger("vtail.soak.maxlines", 100000);
+        final PipedInputStream in = new PipedInputStream(1024 * 1024);
+        final Writer writer = new OutputStreamWriter(new PipedOutputStream(in), "UTF-8");
+        final LinePipeline linePipeline = new LinePipeline(arguments);
+        linePipeline.start(new StreamSource("soak", in, "UTF-8"));
+        final VtailWindow vtailWindow = new VtailWindow(arguments, linePipeline);
+        vtailWindow.addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(final DocumentEvent e) {
+                try {
+                    onDisplayed(e.getDocument().getText(e.getOffset(), e.getLength()));
+                } catch (final BadLocationException ex) {
+                    fail(ex.getMessage());
+                }
+            }
+
+            @Override
+            public void removeUpdate(final DocumentEvent e) {}
+
+            @Override
+            public void changedUpdate(final DocumentEvent e) {}
+        });
+        vtailWindow.show();
+        vtailWindow.start("UTF-8");
+
+        final long start = System.currentTimeMillis();
+        long heapBaseline = -1;
+        int threadBaseline = -1;
+        long nextCheck = start + CHECK_PERIOD_MS;
+        int step = 0;
+        long seq = 0;
+        while (System.currentTimeMillis() - start < durationMs) {
+            // a tenth of a second of lines
+            for (int i = 0; i < rate / 10; i++) {
+                writer.write("10-19 14:32:05.123 " + (seq % 7 == 0 ? "E" : "I") + "/Soak( 123): line " + seq + TIME_MARKER + System.nanoTime()
+                        + "\n");
+                seq++;
+            }
+            writer.flush();
+            Thread.sleep(100);
+
+            if (System.currentTimeMillis() < nextCheck) {
+                continue;
+            }
+            nextCheck += CHECK_PERIOD_MS;
+            act(vtailWindow, step);
+            // see act()
+            final boolean filtered = step % 6 == 0 || step % 6 == 1;
+            step++;
+
+            final long heap = getUsedHeapAfterGc();
+            final int threadCount = ManagementFactory.getThreadMXBean().getThreadCount();
+            final long p99 = TimeUnit.NANOSECONDS.toMillis(mLatencies.getPercentile(99));
+            mLatencies.reset();
+            System.out.println("SoakTest: " + (System.currentTimeMillis() - start) / 1000 + "s, " + seq + " lines, heap " + heap / (1024 * 1024)
+                    + " MB, " + threadCount + " threads, latency p99 " + p99 + "ms");
+            if (heapBaseline == -1) {
+                // measure the growth from when the store is full, and the document too (it shows all the lines when not filtered)
+                if (linePipeline.getLineStore().getLineCount() >= arguments.maxLines && !filtered) {
+                    heapBaseline = heap;
+                    threadBaseline = threadCount;
+                }
+                continue;
+            }
+            assertTrue("heap grew by " + (heap - heapBaseline) / (1024 * 1024) + " MB", heap - heapBaseline <= maxHeapGrowth);
+            assertTrue("thread count grew from " + threadBaseline + " to " + threadCount, threadCount - threadBaseline <= maxThreadGrowth);
+            assertTrue("p99 latency " + p99 + "ms", p99 <= maxLatencyMs);
+        }
+        writer.close();
+        assertTrue("the store was never full at a check: run longer, or with a higher vtail.soak.rate", heapBaseline != -1);
+    }
+
+    /**
+     * What a user would do: filter, highlight, clear.
+     */
+    private static void act(final VtailWindow vtailWindow, final int step) throws Exception {
+        SwingUtilities.invokeAndWait(new Runnable() {
+            @Override
+            public void run() {
+                switch (step % 6) {
+                    case 0:
+                        vtailWindow.setFilter("E/Soak");
+                        break;
+                    case 1:
+                        vtailWindow.setHighlight("line 1");
+                        break;
+                    case 2:
+                        vtailWindow.setFilter(null);
+                        break;
+                    case 3:
+                        vtailWindow.setHighlight(null);
+                        break;
+                    case 5:
+                        vtailWindow.clickClear();
+                        break;
+                }
+            }
+        });
+    }
+
+    private synchronized void onDisplayed(final String text) {
+        final long now = System.nanoTime();
+        int markerIndex = text.indexOf(TIME_MARKER);
+        while (markerIndex != -1) {
+            int pos = markerIndex + TIME_MARKER.length();
+            long time = 0;
+            while (pos < text.length() && text.charAt(pos) >= '0' && text.charAt(pos) <= '9') {
+                time = time * 10 + text.charAt(pos) - '0';
+                pos++;
+            }
+            // filtering displays the old lines again: only the new ones count
+            if (time > mLastDisplayedTime) {
+                mLatencies.record(now - time);
+                mLastDisplayedTime = time;
+            }
+            markerIndex = text.indexOf(TIME_MARKER, pos);
+        }
+    }
+
+    private static long getUsedHeapAfterGc() {
+        System.gc();
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
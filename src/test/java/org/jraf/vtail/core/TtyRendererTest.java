@@ -0,0 +1,87 @@
+package org.jraf.vtail.core;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import org.jraf.vtail.arguments.Arguments;
+import org.jraf.vtail.arguments.Highlight;
+import org.jraf.vtail.arguments.HighlightConverter;
+import org.jraf.vtail.arguments.LevelHighlightConverter;
+import org.jraf.vtail.arguments.OverloadPolicy;
+import org.jraf.vtail.arguments.TagHighlightConverter;
+
+public class TtyRendererTest extends TestCase {
+
+    private static TtyRenderer newRenderer(final Arguments arguments) {
+        return new TtyRenderer(arguments, new ByteArrayOutputStream(), "UTF-8");
+    }
+
+    public void testNoHighlight() {
+        final StringBuilder output = new StringBuilder();
+        newRenderer(new Arguments()).appendLine(output, "plain line");
+        assertEquals("plain line\n", output.toString());
+    }
+
+    public void testHighlights() {
+        final Arguments arguments = new Arguments();
+        arguments.highlightList = new ArrayList<Highlight>();
+        arguments.highlightList.add(new HighlightConverter("-hl").convert("foo:red,bold"));
+        arguments.highlightList.add(new HighlightConverter("-hl").convert("o+:#00ff00,#000000,underline"));
+        final StringBuilder output = new StringBuilder();
+        newRenderer(arguments).appendLine(output, "a foo");
+        assertEquals("\033[0ma \033[0;1;38;2;255;0;0mf\033[0;1;4;38;2;0;255;0;48;2;0;0;0moo\033[0m\n", output.toString());
+    }
+
+    public void testLatest() {
+        final Arguments arguments = new Arguments();
+        arguments.overloadPolicy = OverloadPolicy.LATEST;
+        arguments.latest = 2;
+        final TtyRenderer renderer = newRenderer(arguments);
+        final StringBuilder output = new StringBuilder();
+        renderer.appendLines(output, Arrays.asList("a", "b", "c", "d"));
+        assertEquals("[not displayed: 2]\nc\nd\n", output.toString());
+
+        output.setLength(0);
+        renderer.appendLines(output, Arrays.asList("e", "f"));
+        assertEquals("e\nf\n", output.toString());
+    }
+
+    public void testLevelHighlight() {
+        final Arguments arguments = new Arguments();
+        arguments.levelHighlightList = Arrays.asList(new LevelHighlightConverter("-hlv").convert("E:italic"));
+        final StringBuilder output = new StringBuilder();
+        final TtyRenderer renderer = newRenderer(arguments);
+        renderer.appendLine(output, "10-12 14:32:05.123 E/Tag( 12): x");
+        renderer.appendLine(output, "10-12 14:32:05.123 I/Tag( 12): y");
+        assertEquals("\033[0;3m10-12 14:32:05.123 E/Tag( 12): x\033[0m\n10-12 14:32:05.123 I/Tag( 12): y\n", output.toString());
+    }
+
+    public void testTagHighlight() {
+        final Arguments arguments = new Arguments();
+        arguments.tagHighlightList = Arrays.asList(new TagHighlightConverter("-hlt").convert("dalvikvm:italic"));
+        final StringBuilder output = new StringBuilder();
+        final TtyRenderer renderer = newRenderer(arguments);
+        renderer.appendLine(output, "10-12 14:32:05.123 D/dalvikvm( 12): GC");
+        renderer.appendLine(output, "10-12 14:32:05.123 D/dalvikvmx( 12): GC");
+        assertEquals("\033[0;3m10-12 14:32:05.123 D/dalvikvm( 12): GC\033[0m\n10-12 14:32:05.123 D/dalvikvmx( 12): GC\n", output.toString());
+    }
+
+    public void testHighlightOrder() {
+        final Arguments arguments = new Arguments();
+        // like on the command line: -hl .*Tag.*:red -hlv E:#00ff00 -hl ^10:#0000ff
+        arguments.highlightList = new ArrayList<Highlight>();
+        arguments.highlightList.add(new HighlightConverter("-hl").convert(".*Tag.*:red"));
+        arguments.levelHighlightList = Arrays.asList(new LevelHighlightConverter("-hlv").convert("E:#00ff00"));
+        arguments.highlightList.add(new HighlightConverter("-hl").convert("^10:#0000ff"));
+        final StringBuilder output = new StringBuilder();
+        final TtyRenderer renderer = newRenderer(arguments);
+        renderer.appendLine(output, "10-12 14:32:05.123 E/Tag( 12): x");
+        renderer.appendLine(output, "10-12 14:32:05.123 I/Tag( 12): y");
+        // the later highlights win
+        assertEquals("\033[0;38;2;0;0;255m10\033[0;38;2;0;255;0m-12 14:32:05.123 E/Tag( 12): x\033[0m\n"
+                + "\033[0;38;2;0;0;255m10\033[0;38;2;255;0;0m-12 14:32:05.123 I/Tag( 12): y\033[0m\n", output.toString());
+    }
+}
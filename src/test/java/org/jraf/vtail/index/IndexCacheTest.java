@@ -0,0 +1,78 @@
+package org.jraf.vtail.index;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+public class IndexCacheTest extends TestCase {
+    private File mCacheDirectory;
+    private File mFile;
+
+    @Override
+    protected void setUp() throws IOException {
+        mCacheDirectory = File.createTempFile("vtail", "cache");
+        mCacheDirectory.delete();
+        mFile = File.createTempFile("vtail", ".log");
+        mFile.deleteOnExit();
+        write(mFile, "line 1\nline 2\n", false);
+    }
+
+    @Override
+    protected void tearDown() {
+        final File[] files = mCacheDirectory.listFiles();
+        if (files != null) {
+            for (final File file : files) {
+                file.delete();
+            }
+        }
+        mCacheDirectory.delete();
+    }
+
+    private static void write(final File file, final String text, final boolean append) throws IOException {
+        final FileOutputStream out = new FileOutputStream(file, append);
+        out.write(text.getBytes("UTF-8"));
+        out.close();
+    }
+
+    private void save() {
+        final LineOffsetIndex lineOffsetIndex = new LineOffsetIndex();
+        lineOffsetIndex.setProgress(2, 14, 14);
+        final TimestampIndex timestampIndex = new TimestampIndex();
+        timestampIndex.add(1000, 0);
+        timestampIndex.setIndexedLength(14);
+        new IndexCache(mCacheDirectory, "logcat").save(mFile, lineOffsetIndex, timestampIndex);
+    }
+
+    public void testUnchanged() {
+        save();
+        final LineOffsetIndex lineOffsetIndex = new LineOffsetIndex();
+        final TimestampIndex timestampIndex = new TimestampIndex();
+        assertTrue(new IndexCache(mCacheDirectory, "logcat").load(mFile, lineOffsetIndex, timestampIndex));
+        assertEquals(2, lineOffsetIndex.getLineCount());
+        assertEquals(14, lineOffsetIndex.getIndexedLength());
+        assertEquals(1, timestampIndex.size());
+        assertEquals(14, timestampIndex.getIndexedLength());
+    }
+
+    public void testOtherSettings() {
+        save();
+        assertFalse(new IndexCache(mCacheDirectory, "log4j").load(mFile, new LineOffsetIndex(), new TimestampIndex()));
+    }
+
+    public void testAppended() throws IOException {
+        save();
+        write(mFile, "line 3\n", true);
+        final LineOffsetIndex lineOffsetIndex = new LineOffsetIndex();
+        assertTrue(new IndexCache(mCacheDirectory, "logcat").load(mFile, lineOffsetIndex, null));
+        // only the new part remains to be indexed
+        assertEquals(14, lineOffsetIndex.getIndexedLength());
+    }
+
+    public void testReplaced() throws IOException {
+        save();
+        write(mFile, "LINE 1\nline 2\nline 3\n", false);
+        assertFalse(new IndexCache(mCacheDirectory, "logcat").load(mFile, new LineOffsetIndex(), new TimestampIndex()));
+    }
+}
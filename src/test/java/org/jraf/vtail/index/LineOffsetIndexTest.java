@@ -0,0 +1,49 @@
+package org.jraf.vtail.index;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class LineOffsetIndexTest extends TestCase {
+
+    public void testIndexAndReadPages() throws IOException, InterruptedException {
+        final File file = File.createTempFile("vtail", ".log");
+        file.deleteOnExit();
+        final PrintStream out = new PrintStream(new FileOutputStream(file), false, "UTF-8");
+        for (int i = 0; i < 5000; i++) {
+            out.print("line " + i + "\n");
+        }
+        out.print("partial");
+        out.close();
+
+        final LineOffsetIndex index = new LineOffsetIndex();
+        // before indexing: estimated
+        assertEquals(file.length() / 100, index.getEstimatedLineCount(file.length()));
+
+        final LineOffsetIndexer indexer = new LineOffsetIndexer(file, index);
+        final Thread thread = new Thread(indexer);
+        thread.start();
+        while (index.getIndexedLength() < file.length()) {
+            Thread.sleep(10);
+        }
+        indexer.stop();
+        assertEquals(5000, index.getLineCount());
+        assertEquals(5001, index.getEstimatedLineCount(file.length()));
+
+        final PageReader pageReader = new PageReader(file, "UTF-8", index);
+        List<String> lines = pageReader.read(0, 3);
+        assertEquals(3, lines.size());
+        assertEquals("line 0", lines.get(0));
+        lines = pageReader.read(3000, 2);
+        assertEquals("line 3000", lines.get(0));
+        assertEquals("line 3001", lines.get(1));
+        lines = pageReader.read(4998, 10);
+        assertEquals(2, lines.size());
+        assertEquals("line 4999", lines.get(1));
+        pageReader.close();
+    }
+}
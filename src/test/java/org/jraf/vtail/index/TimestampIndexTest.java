@@ -0,0 +1,76 @@
+package org.jraf.vtail.index;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Calendar;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.jraf.vtail.parser.LogcatParser;
+
+public class TimestampIndexTest extends TestCase {
+
+    public void testFindOffsetBefore() {
+        final TimestampIndex index = new TimestampIndex();
+        index.add(1000, 0);
+        index.add(2000, 100);
+        index.add(1500, 150); // out of order: ignored
+        index.add(3000, 200);
+        assertEquals(3, index.size());
+        assertEquals(0, index.findOffsetBefore(500));
+        assertEquals(0, index.findOffsetBefore(1000));
+        assertEquals(0, index.findOffsetBefore(2000));
+        assertEquals(100, index.findOffsetBefore(2500));
+        assertEquals(200, index.findOffsetBefore(5000));
+    }
+
+    public void testParseTime() {
+        final Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(2010, Calendar.OCTOBER, 12, 15, 0, 0);
+        final long reference = calendar.getTimeInMillis();
+
+        calendar.set(Calendar.HOUR_OF_DAY, 14);
+        calendar.set(Calendar.MINUTE, 32);
+        calendar.set(Calendar.SECOND, 5);
+        assertEquals(calendar.getTimeInMillis(), TimestampIndex.parseTime("14:32:05", reference));
+        assertEquals(calendar.getTimeInMillis(), TimestampIndex.parseTime("10-12 14:32:05", reference));
+        assertEquals(calendar.getTimeInMillis(), TimestampIndex.parseTime("2010-10-12T14:32:05", reference));
+
+        // after the reference: the day before
+        calendar.set(Calendar.HOUR_OF_DAY, 16);
+        calendar.add(Calendar.DAY_OF_MONTH, -1);
+        assertEquals(calendar.getTimeInMillis(), TimestampIndex.parseTime("16:32:05", reference));
+
+        assertEquals(Long.MIN_VALUE, TimestampIndex.parseTime("foo", reference));
+    }
+
+    public void testIndexAndReadWindow() throws IOException, InterruptedException {
+        final File file = File.createTempFile("vtail", ".log");
+        file.deleteOnExit();
+        final PrintStream out = new PrintStream(new FileOutputStream(file), false, "UTF-8");
+        for (int i = 0; i < 20000; i++) {
+            out.print(String.format("10-12 14:%02d:%02d.000 I/Test(  1): line %d\n", i / 600, i / 10 % 60, i));
+        }
+        out.close();
+
+        final TimestampIndex index = new TimestampIndex();
+        final TimestampIndexer indexer = new TimestampIndexer(file, "UTF-8", new LogcatParser(), index);
+        final Thread thread = new Thread(indexer);
+        thread.start();
+        while (index.getLastTimestamp() == Long.MIN_VALUE || index.findOffsetBefore(Long.MAX_VALUE) < file.length() - 16 * 1024 - 100) {
+            Thread.sleep(10);
+        }
+        indexer.stop();
+        assertTrue(index.size() > 10);
+
+        final long timestamp = TimestampIndex.parseTime("14:32:05", index.getLastTimestamp());
+        final List<String> lines = TimeWindowReader.read(file, "UTF-8", index, new LogcatParser(), timestamp, 5, 10);
+        assertEquals(15, lines.size());
+        assertTrue(lines.get(5).endsWith("line 19250"));
+        assertTrue(lines.get(0).endsWith("line 19245"));
+    }
+}
@@ -0,0 +1,35 @@
+package org.jraf.vtail.misc;
+
+import junit.framework.TestCase;
+
+public class HistogramTest extends TestCase {
+    public void testBuckets() {
+        for (long value = 0; value < 100000; value++) {
+            final int bucket = Histogram.getBucket(value);
+            assertTrue(value <= Histogram.getBucketMax(bucket));
+            if (bucket > 0) {
+                assertTrue(value > Histogram.getBucketMax(bucket - 1));
+            }
+        }
+        assertTrue(Histogram.getBucketMax(Histogram.getBucket(Long.MAX_VALUE)) == Long.MAX_VALUE);
+    }
+
+    public void testPercentiles() {
+        final Histogram histogram = new Histogram();
+        assertEquals(0, histogram.getPercentile(50));
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1000, histogram.getMax());
+        final long p50 = histogram.getPercentile(50);
+        assertTrue(p50 >= 500 && p50 < 500 * 1.07);
+        final long p99 = histogram.getPercentile(99);
+        assertTrue(p99 >= 990 && p99 <= 1000);
+        assertEquals(1000, histogram.getPercentile(100));
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(99));
+    }
+}
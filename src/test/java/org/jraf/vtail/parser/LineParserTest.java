@@ -0,0 +1,82 @@
+package org.jraf.vtail.parser;
+
+import java.util.Calendar;
+
+import junit.framework.TestCase;
+
+public class LineParserTest extends TestCase {
+    private final LineFields mFields = new LineFields();
+
+    @Override
+    protected void setUp() {
+        mFields.reset();
+    }
+
+    public void testLogcatTime() {
+        assertTrue(new LogcatParser().parse("10-12 14:32:05.123 W/ActivityManager(  123): Activity idle timeout", mFields));
+        assertEquals(LogLevel.WARN, mFields.level);
+        assertEquals("ActivityManager", mFields.tag);
+        assertEquals(123, mFields.pid);
+        final Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(mFields.timestamp);
+        assertEquals(Calendar.OCTOBER, calendar.get(Calendar.MONTH));
+        assertEquals(12, calendar.get(Calendar.DAY_OF_MONTH));
+        assertEquals(14, calendar.get(Calendar.HOUR_OF_DAY));
+        assertEquals(5, calendar.get(Calendar.SECOND));
+        assertEquals(123, calendar.get(Calendar.MILLISECOND));
+    }
+
+    public void testLogcatBrief() {
+        assertTrue(new LogcatParser().parse("E/dalvikvm( 4567): oops", mFields));
+        assertEquals(LogLevel.ERROR, mFields.level);
+        assertEquals("dalvikvm", mFields.tag);
+        assertEquals(4567, mFields.pid);
+        assertEquals(LineFields.NO_TIMESTAMP, mFields.timestamp);
+    }
+
+    public void testLogcatThreadtime() {
+        assertTrue(new LogcatParser().parse("10-12 14:32:05.123  1234  5678 I ActivityManager: Start proc", mFields));
+        assertEquals(LogLevel.INFO, mFields.level);
+        assertEquals("ActivityManager", mFields.tag);
+        assertEquals(1234, mFields.pid);
+    }
+
+    public void testLogcatNotRecognized() {
+        assertFalse(new LogcatParser().parse("\tat com.voxmobili.Foo.bar(Foo.java:12)", mFields));
+        assertFalse(new LogcatParser().parse("", mFields));
+    }
+
+    public void testLog4j() {
+        assertTrue(new Log4jParser().parse("2010-10-12 14:32:05,123 WARN  [main] org.jraf.Foo - Something happened", mFields));
+        assertEquals(LogLevel.WARN, mFields.level);
+        assertEquals("org.jraf.Foo", mFields.tag);
+        mFields.reset();
+        assertTrue(new Log4jParser().parse("2010-10-12 14:32:05.123 [main] ERROR org.jraf.Foo - Something happened", mFields));
+        assertEquals(LogLevel.ERROR, mFields.level);
+        assertEquals("org.jraf.Foo", mFields.tag);
+    }
+
+    public void testSyslog() {
+        assertTrue(new SyslogParser().parse("Oct  2 14:32:05 myhost sshd[1234]: Accepted publickey", mFields));
+        assertEquals("sshd", mFields.tag);
+        assertEquals(1234, mFields.pid);
+        mFields.reset();
+        assertTrue(new SyslogParser().parse("<28>Oct 12 14:32:05 myhost kernel: Out of memory", mFields));
+        assertEquals("kernel", mFields.tag);
+        assertEquals(LogLevel.WARN, mFields.level);
+        mFields.reset();
+        // an empty pri is not a fatal one
+        assertFalse(new SyslogParser().parse("<>Oct 12 14:32:05 myhost kernel: Out of memory", mFields));
+    }
+
+    public void testAuto() {
+        final LineParser parser = LineFormat.AUTO.newParser();
+        assertTrue(parser.parse("Oct 12 14:32:05 myhost cron[1]: job", mFields));
+        mFields.reset();
+        assertTrue(parser.parse("W/Foo( 1): bar", mFields));
+        assertEquals("Foo", mFields.tag);
+        mFields.reset();
+        assertFalse(parser.parse("hello world", mFields));
+        assertEquals(LogLevel.UNKNOWN, mFields.level);
+    }
+}
@@ -0,0 +1,124 @@
+package org.jraf.vtail.source;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class NetworkSourceTest extends TestCase {
+    private final List<String> mLines = new ArrayList<String>();
+    private SourceScheduler mScheduler;
+    private NetworkSource mSource;
+
+    @Override
+    protected void setUp() throws IOException {
+        mScheduler = new SourceScheduler(new Source.LineSink() {
+            @Override
+            public void onLine(final Source source, final String line) {
+                synchronized (mLines) {
+                    mLines.add(line);
+                }
+            }
+        });
+        mSource = new NetworkSource(0, 0, "UTF-8");
+        mScheduler.start(mSource);
+    }
+
+    @Override
+    protected void tearDown() {
+        assertTrue(mScheduler.shutdown(5000));
+    }
+
+    private void waitForLines(final int count) throws InterruptedException {
+        final long start = System.currentTimeMillis();
+        while (System.currentTimeMillis() - start < 5000) {
+            synchronized (mLines) {
+                if (mLines.size() >= count) {
+                    return;
+                }
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    public void testNewlineFraming() throws IOException, InterruptedException {
+        final Socket socket = new Socket(InetAddress.getByName("127.0.0.1"), mSource.getTcpPort());
+        final OutputStream out = socket.getOutputStream();
+        // split across writes
+        out.write("first li".getBytes("UTF-8"));
+        out.flush();
+        Thread.sleep(50);
+        out.write("ne\r\n".getBytes("UTF-8"));
+        // lines starting with a number are not octet counted
+        out.write("200 OK\n3 retries left\n".getBytes("UTF-8"));
+        out.write("last".getBytes("UTF-8"));
+        socket.close();
+
+        waitForLines(4);
+        synchronized (mLines) {
+            assertEquals(4, mLines.size());
+            assertEquals("first line [127.0.0.1]", mLines.get(0));
+            assertEquals("200 OK [127.0.0.1]", mLines.get(1));
+            assertEquals("3 retries left [127.0.0.1]", mLines.get(2));
+            assertEquals("last [127.0.0.1]", mLines.get(3));
+        }
+    }
+
+    public void testOctetCounting() throws IOException, InterruptedException {
+        final Socket socket = new Socket(InetAddress.getByName("127.0.0.1"), mSource.getTcpPort());
+        final OutputStream out = socket.getOutputStream();
+        // the length split across writes, and a newline inside the message
+        out.write("1".getBytes("UTF-8"));
+        out.flush();
+        Thread.sleep(50);
+        out.write("0 two\nlines.".getBytes("UTF-8"));
+        out.write("7 200 OK\n".getBytes("UTF-8"));
+        out.write("2024-10-12 is not a length\n".getBytes("UTF-8"));
+        socket.close();
+
+        waitForLines(3);
+        synchronized (mLines) {
+            assertEquals(3, mLines.size());
+            assertEquals("two\nlines. [127.0.0.1]", mLines.get(0));
+            assertEquals("200 OK [127.0.0.1]", mLines.get(1));
+            assertEquals("2024-10-12 is not a length [127.0.0.1]", mLines.get(2));
+        }
+    }
+
+    public void testManyTcpSenders() throws IOException, InterruptedException {
+        final List<Socket> sockets = new ArrayList<Socket>();
+        for (int i = 0; i < 30; i++) {
+            sockets.add(new Socket(InetAddress.getByName("127.0.0.1"), mSource.getTcpPort()));
+        }
+        for (int n = 0; n < 100; n++) {
+            for (final Socket socket : sockets) {
+                socket.getOutputStream().write(("message " + n + "\n").getBytes("UTF-8"));
+            }
+        }
+        for (final Socket socket : sockets) {
+            socket.close();
+        }
+        waitForLines(3000);
+        synchronized (mLines) {
+            assertEquals(3000, mLines.size());
+        }
+    }
+
+    public void testUdp() throws IOException, InterruptedException {
+        final DatagramSocket socket = new DatagramSocket();
+        final byte[] data = "<28>Oct 12 14:32:05 myhost kernel: Out of memory\n".getBytes("UTF-8");
+        socket.send(new DatagramPacket(data, data.length, InetAddress.getByName("127.0.0.1"), mSource.getUdpPort()));
+        socket.close();
+        waitForLines(1);
+        synchronized (mLines) {
+            assertEquals(1, mLines.size());
+            assertEquals("<28>Oct 12 14:32:05 myhost kernel: Out of memory [127.0.0.1]", mLines.get(0));
+        }
+    }
+}
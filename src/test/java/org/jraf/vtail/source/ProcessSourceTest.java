@@ -0,0 +1,53 @@
+package org.jraf.vtail.source;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class ProcessSourceTest extends TestCase {
+
+    public void testSplitCommand() {
+        assertEquals(Arrays.asList("adb", "-d", "logcat", "-v", "time"), ProcessSource.splitCommand("  adb -d\tlogcat  -v time "));
+        assertEquals(Arrays.asList("sh", "-c", "tail -f /var/log/syslog | grep 'a b'"),
+                ProcessSource.splitCommand("sh -c \"tail -f /var/log/syslog | grep 'a b'\""));
+        assertEquals(Arrays.asList("grep", "a \"b\" c", ""), ProcessSource.splitCommand("grep 'a \"b\" c' ''"));
+        assertEquals(Arrays.asList("say", "it's", "a\\b", "x y"), ProcessSource.splitCommand("say it\\'s \"a\\\\b\" x\\ y"));
+        try {
+            ProcessSource.splitCommand("echo 'oops");
+            fail();
+        } catch (final IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    public void testRestart() throws InterruptedException {
+        if (System.getProperty("os.name").startsWith("Windows")) {
+            return;
+        }
+        final List<String> lines = new ArrayList<String>();
+        final SourceScheduler scheduler = new SourceScheduler(new Source.LineSink() {
+            @Override
+            public void onLine(final Source source, final String line) {
+                synchronized (lines) {
+                    lines.add(line);
+                }
+            }
+        });
+        final ProcessSource source = new ProcessSource(Arrays.asList("sh", "-c", "echo out; echo err >&2"), "UTF-8");
+        scheduler.start(source);
+        final long start = System.currentTimeMillis();
+        while (source.getStartCount() < 2 && System.currentTimeMillis() - start < 5000) {
+            Thread.sleep(10);
+        }
+        assertTrue(scheduler.shutdown(5000));
+        assertTrue(source.getStartCount() >= 2);
+        synchronized (lines) {
+            // lines of all the runs are kept, stderr included
+            assertTrue(lines.size() >= 2);
+            assertTrue(lines.contains("out"));
+            assertTrue(lines.contains("err"));
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package org.jraf.vtail.source;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+public class SourceSchedulerTest extends TestCase {
+
+    public void testManySources() throws IOException, InterruptedException {
+        final AtomicInteger lineCount = new AtomicInteger();
+        final SourceScheduler scheduler = new SourceScheduler(new Source.LineSink() {
+            @Override
+            public void onLine(final Source source, final String line) {
+                lineCount.incrementAndGet();
+            }
+        });
+        for (int i = 0; i < 200; i++) {
+            final InputStream inputStream = new ByteArrayInputStream(("a " + i + "\nb " + i + "\n").getBytes("UTF-8"));
+            scheduler.start(new StreamSource("source" + i, inputStream, "UTF-8"));
+        }
+        final long start = System.currentTimeMillis();
+        while (lineCount.get() < 400 && System.currentTimeMillis() - start < 5000) {
+            Thread.sleep(10);
+        }
+        assertEquals(400, lineCount.get());
+        assertTrue(scheduler.shutdown(5000));
+    }
+
+    public void testShutdownStopsBlockedSource() throws IOException {
+        final SourceScheduler scheduler = new SourceScheduler(new Source.LineSink() {
+            @Override
+            public void onLine(final Source source, final String line) {}
+        });
+        // never written to: the source is blocked on its read
+        final PipedInputStream inputStream = new PipedInputStream();
+        final PipedOutputStream outputStream = new PipedOutputStream(inputStream);
+        scheduler.start(new StreamSource("blocked", inputStream, "UTF-8"));
+        assertTrue(scheduler.shutdown(5000));
+        assertEquals(0, scheduler.getSourceCount());
+        outputStream.close();
+    }
+}
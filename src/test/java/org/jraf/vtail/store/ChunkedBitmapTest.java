@@ -0,0 +1,101 @@
+package org.jraf.vtail.store;
+
+import junit.framework.TestCase;
+
+public class ChunkedBitmapTest extends TestCase {
+
+    public void testSetGetNext() {
+        final ChunkedBitmap bitmap = new ChunkedBitmap();
+        bitmap.set(3);
+        bitmap.set(64);
+        bitmap.set(200000);
+        assertTrue(bitmap.get(3));
+        assertFalse(bitmap.get(4));
+        assertEquals(3, bitmap.nextSetBit(0));
+        assertEquals(64, bitmap.nextSetBit(4));
+        assertEquals(200000, bitmap.nextSetBit(65));
+        assertEquals(-1, bitmap.nextSetBit(200001));
+        assertEquals(-1, bitmap.nextSetBit(10000000));
+        assertEquals(3, bitmap.cardinality());
+    }
+
+    public void testAndOr() {
+        final ChunkedBitmap a = new ChunkedBitmap();
+        final ChunkedBitmap b = new ChunkedBitmap();
+        for (int i = 0; i < 300000; i += 3) {
+            a.set(i);
+        }
+        for (int i = 0; i < 300000; i += 5) {
+            b.set(i);
+        }
+        final ChunkedBitmap and = new ChunkedBitmap(a);
+        and.and(b);
+        assertEquals(20000, and.cardinality());
+        assertEquals(15, and.nextSetBit(1));
+        final ChunkedBitmap or = new ChunkedBitmap(a);
+        or.or(b);
+        assertEquals(100000 + 60000 - 20000, or.cardinality());
+        // a is untouched
+        assertEquals(100000, a.cardinality());
+    }
+
+    public void testClearBefore() {
+        final ChunkedBitmap bitmap = new ChunkedBitmap();
+        for (int i = 0; i < 200000; i++) {
+            bitmap.set(i);
+        }
+        bitmap.clearBefore(70000);
+        assertEquals(70000, bitmap.nextSetBit(0));
+        assertEquals(130000, bitmap.cardinality());
+
+        bitmap.clearBefore(200000);
+        assertTrue(bitmap.isEmpty());
+        assertEquals(-1, bitmap.nextSetBit(0));
+        bitmap.set(10);
+        assertEquals(10, bitmap.nextSetBit(0));
+    }
+
+    public void testSparse() {
+        final ChunkedBitmap sparse = new ChunkedBitmap();
+        final ChunkedBitmap dense = new ChunkedBitmap();
+        for (int i = 0; i < 1000000; i++) {
+            if (i % 1000 == 0) {
+                sparse.set(i);
+            }
+            if (i % 2 == 0) {
+                dense.set(i);
+            }
+        }
+        // about 66 bits in each chunk: stored as arrays, much smaller than 16 chunks of 8 KB
+        assertEquals(1000, sparse.cardinality());
+        assertTrue(sparse.getMemoryEstimate() < 8 * 1024);
+        assertTrue(dense.getMemoryEstimate() >= 16 * 8 * 1024);
+
+        // and / or across both kinds of chunks
+        final ChunkedBitmap and = new ChunkedBitmap(dense);
+        and.and(sparse);
+        assertEquals(1000, and.cardinality());
+        assertTrue(and.getMemoryEstimate() < 4 * 1024);
+        final ChunkedBitmap or = new ChunkedBitmap(sparse);
+        or.or(dense);
+        assertEquals(500000, or.cardinality());
+        sparse.set(1);
+        final ChunkedBitmap orArray = new ChunkedBitmap(dense);
+        orArray.or(sparse);
+        assertEquals(500001, orArray.cardinality());
+        assertTrue(orArray.get(1));
+        assertFalse(dense.get(1));
+
+        // an array chunk becomes a bitmap when full
+        final ChunkedBitmap growing = new ChunkedBitmap();
+        for (int i = 0; i < 65536; i += 8) {
+            growing.set(i);
+        }
+        assertEquals(8192, growing.cardinality());
+        assertEquals(65528, growing.nextSetBit(65521));
+        assertEquals(-1, growing.nextSetBit(65529));
+        growing.clearBefore(65536 - 8 * 100);
+        assertEquals(100, growing.cardinality());
+        assertTrue(growing.getMemoryEstimate() < 1024);
+    }
+}
@@ -0,0 +1,60 @@
+package org.jraf.vtail.store;
+
+import junit.framework.TestCase;
+
+public class LineBlocksTest extends TestCase {
+    private static String line(final int i) {
+        return "10-12 14:32:05." + (i % 1000) + " I/ActivityManager(  " + (i % 7) + "): Start proc com.android.é" + i;
+    }
+
+    public void testCompress() {
+        final LineBlocks lineBlocks = new LineBlocks(true);
+        final int count = LineBlocks.BLOCK_SIZE * 5 + 7;
+        long charCount = 0;
+        for (int i = 0; i < count; i++) {
+            lineBlocks.add(line(i));
+            charCount += line(i).length();
+        }
+        final LineBlocks uncompressed = new LineBlocks(false);
+        for (int i = 0; i < count; i++) {
+            uncompressed.add(line(i));
+        }
+        assertEquals(0, uncompressed.getCompressedByteCount());
+        // before any block is decompressed in the cache
+        assertTrue(lineBlocks.getMemoryEstimate() < uncompressed.getMemoryEstimate());
+
+        lineBlocks.add("multi\nline");
+        assertEquals(count + 1, lineBlocks.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals(line(i), lineBlocks.get(i));
+        }
+        assertEquals("multi\nline", lineBlocks.get(count));
+        assertTrue(lineBlocks.getCompressedByteCount() > 0);
+        // 3 blocks out of 6 are compressed
+        assertTrue(lineBlocks.getCompressedByteCount() < charCount / 2 / 5);
+    }
+
+    public void testRemoveFirst() {
+        final LineBlocks lineBlocks = new LineBlocks(true);
+        final int count = LineBlocks.BLOCK_SIZE * 4;
+        for (int i = 0; i < count; i++) {
+            lineBlocks.add(line(i));
+        }
+        final long compressedByteCount = lineBlocks.getCompressedByteCount();
+        lineBlocks.removeFirst(10);
+        assertEquals(count - 10, lineBlocks.size());
+        assertEquals(line(10), lineBlocks.get(0));
+        lineBlocks.removeFirst(LineBlocks.BLOCK_SIZE);
+        assertEquals(line(10 + LineBlocks.BLOCK_SIZE), lineBlocks.get(0));
+        // the first block has been dropped
+        assertTrue(lineBlocks.getCompressedByteCount() < compressedByteCount);
+        lineBlocks.add("last");
+        assertEquals("last", lineBlocks.get(lineBlocks.size() - 1));
+
+        lineBlocks.clear();
+        assertEquals(0, lineBlocks.size());
+        assertEquals(0, lineBlocks.getMemoryEstimate());
+        lineBlocks.add("first");
+        assertEquals("first", lineBlocks.get(0));
+    }
+}
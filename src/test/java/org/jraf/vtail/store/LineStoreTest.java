@@ -0,0 +1,121 @@
+package org.jraf.vtail.store;
+
+import junit.framework.TestCase;
+
+import org.jraf.vtail.parser.LogLevel;
+import org.jraf.vtail.parser.LogcatParser;
+
+public class LineStoreTest extends TestCase {
+
+    public void testCollapseIdentical() {
+        final LineStore lineStore = new LineStore(true, false, null);
+        assertTrue(lineStore.add("retrying"));
+        assertFalse(lineStore.add("retrying"));
+        assertFalse(lineStore.add("retrying"));
+        assertTrue(lineStore.add("connected"));
+        assertTrue(lineStore.add("retrying"));
+        assertEquals(3, lineStore.size());
+        assertEquals(3, lineStore.getRepeatCount(0));
+        assertEquals(1, lineStore.getRepeatCount(1));
+    }
+
+    public void testNoCollapse() {
+        final LineStore lineStore = new LineStore(false, false, null);
+        assertTrue(lineStore.add("retrying"));
+        assertTrue(lineStore.add("retrying"));
+        assertEquals(2, lineStore.size());
+    }
+
+    public void testCollapseSimilar() {
+        final LineStore lineStore = new LineStore(true, true, null);
+        assertTrue(lineStore.add("10-12 14:32:05.123 W/Sync( 123): retry 1"));
+        assertFalse(lineStore.add("10-12 14:32:05.456 W/Sync( 123): retry 22"));
+        assertTrue(lineStore.add("10-12 14:32:05.456 W/Sync( 123): retry x"));
+        assertEquals(2, lineStore.getRepeatCount(0));
+    }
+
+    public void testIsSimilar() {
+        assertTrue(LineStore.isSimilar("a1b22c", "a333b4c"));
+        assertFalse(LineStore.isSimilar("a1b", "ab"));
+        assertFalse(LineStore.isSimilar("a1", "a1b"));
+        assertEquals(LineStore.similarHash("x 1.2 y"), LineStore.similarHash("x 10.20 y"));
+    }
+
+    public void testMemoryEstimate() {
+        final LineStore lineStore = new LineStore(false, false, null);
+        final long empty = lineStore.getMemoryEstimate();
+        lineStore.add("0123456789");
+        assertTrue(lineStore.getMemoryEstimate() >= empty + 20);
+        lineStore.clear();
+        assertEquals(empty, lineStore.getMemoryEstimate());
+    }
+
+    public void testMaxLines() {
+        final LineStore lineStore = new LineStore(false, false, new LogcatParser(), 32, true);
+        for (int i = 0; i < 100; i++) {
+            lineStore.add("10-12 14:32:05.123 " + (i % 2 == 0 ? "W" : "E") + "/Sync( 123): line " + i);
+        }
+        // evicted by batches of 2 lines (32 / 16)
+        final int firstIndex = lineStore.getFirstIndex();
+        assertEquals(100, lineStore.size());
+        assertTrue(lineStore.getLineCount() >= 32 && lineStore.getLineCount() <= 34);
+        assertEquals(100 - lineStore.getLineCount(), firstIndex);
+        assertTrue(lineStore.get(firstIndex).endsWith(" line " + firstIndex));
+        assertTrue(lineStore.get(99).endsWith(" line 99"));
+        assertEquals(LogLevel.ERROR, lineStore.getLevel(99));
+
+        // the evicted lines are not in the facet index anymore
+        final boolean[] levels = new boolean[LogLevel.COUNT];
+        levels[LogLevel.WARN] = true;
+        assertEquals(firstIndex, lineStore.getFacetIndex().select(levels, null).nextSetBit(0));
+
+        lineStore.clear();
+        assertEquals(0, lineStore.getFirstIndex());
+        assertEquals(0, lineStore.size());
+    }
+
+    public void testRebase() {
+        final LineStore lineStore = new LineStore(false, false, new LogcatParser(), 32, true);
+        // as if the session had already been running for 2^31 lines
+        lineStore.setFirstIndex(Integer.MAX_VALUE - 50);
+        final boolean[] levels = new boolean[LogLevel.COUNT];
+        levels[LogLevel.ERROR] = true;
+        int rebaseCount = 0;
+        int previousSize = lineStore.size();
+        for (int i = 0; i < 100; i++) {
+            lineStore.add("10-12 14:32:05.123 " + (i % 2 == 0 ? "W" : "E") + "/Sync( 123): line " + i);
+            final int delta = lineStore.rebase();
+            if (delta != 0) {
+                rebaseCount++;
+                previousSize -= delta;
+            }
+            // the indexes never overflow
+            assertEquals(previousSize + 1, lineStore.size());
+            previousSize = lineStore.size();
+            assertTrue(lineStore.getFirstIndex() >= 0);
+            assertTrue(lineStore.get(lineStore.size() - 1).endsWith(" line " + i));
+        }
+        assertEquals(1, rebaseCount);
+        assertTrue(lineStore.size() < LineStore.REBASE_THRESHOLD);
+        final int firstIndex = lineStore.getFirstIndex();
+        assertTrue(lineStore.get(firstIndex).endsWith(" line " + (100 - lineStore.getLineCount())));
+
+        // the facet index follows
+        final int firstError = lineStore.getFacetIndex().select(levels, null).nextSetBit(0);
+        assertTrue(firstError == firstIndex || firstError == firstIndex + 1);
+        assertEquals(LogLevel.ERROR, lineStore.getLevel(firstError));
+        assertEquals(LogLevel.ERROR, lineStore.getLevel(lineStore.size() - 1));
+        assertEquals(firstError, lineStore.getFacetIndex().select(levels, new int[] { lineStore.getTagId(firstError) }).nextSetBit(0));
+    }
+
+    public void testMaxTagCount() {
+        final LineStore lineStore = new LineStore(false, false, new LogcatParser(), 32, true);
+        for (int i = 0; i < LineStore.MAX_TAG_COUNT + 10; i++) {
+            lineStore.add("10-12 14:32:05.123 W/Tag" + i + "( 123): line " + i);
+        }
+        // the tags beyond the cap get no id
+        assertEquals(LineStore.MAX_TAG_COUNT, lineStore.getTagDictionary().size());
+        assertEquals(Dictionary.NO_ID, lineStore.getTagId(lineStore.size() - 1));
+        assertEquals(LineStore.MAX_TAG_COUNT - 1, lineStore.getTagDictionary().getId("Tag" + (LineStore.MAX_TAG_COUNT - 1)));
+    }
+}
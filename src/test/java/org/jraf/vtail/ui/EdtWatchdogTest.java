@@ -0,0 +1,37 @@
+package org.jraf.vtail.ui;
+
+import javax.swing.SwingUtilities;
+
+import junit.framework.TestCase;
+
+public class EdtWatchdogTest extends TestCase {
+    public void testStall() throws Exception {
+        final EdtWatchdog edtWatchdog = new EdtWatchdog(100);
+        edtWatchdog.startThread();
+        // let a few heartbeats go through, so that the watchdog knows the thread
+        Thread.sleep(300);
+        assertEquals(0, edtWatchdog.getStallCount());
+
+        SwingUtilities.invokeAndWait(new Runnable() {
+            @Override
+            public void run() {
+                blockTheUi();
+            }
+        });
+        Thread.sleep(300);
+
+        assertEquals(1, edtWatchdog.getStallCount());
+        final String summary = edtWatchdog.getSummary();
+        assertTrue(summary, summary.contains("Stalls over 100ms: 1"));
+        assertTrue(summary, summary.contains("EdtWatchdogTest.blockTheUi"));
+        assertFalse(summary, summary.contains("still blocked"));
+    }
+
+    private static void blockTheUi() {
+        try {
+            Thread.sleep(500);
+        } catch (final InterruptedException e) {
+            // what can you do
+        }
+    }
+}